@@ -0,0 +1,129 @@
+package freecell.controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import freecell.model.Cards;
+import freecell.model.FreecellOperations;
+
+/**
+ * This class represents a controller that plays one game of freecell command by command. The
+ * commands of the game are chained one after the other on the given executor, which can be shared
+ * by any number of games: a game only uses a thread while one of its commands is being played.
+ * Commands are parsed and answered by {@link MoveCommandProtocol}, so the output is the same as
+ * {@link FreecellController}'s for the same input.
+ */
+public class AsyncFreecellController implements IAsyncFreecellController<Cards> {
+
+  private final Executor executor;
+  private final CommandToken token;
+
+  private CompletableFuture<?> tail;
+  private FreecellOperations<Cards> model;
+  private MoveCommandProtocol protocol;
+  private StringBuilder output;
+
+  /**
+   * Constructs an AsyncFreecellController.
+   *
+   * @param executor the executor that plays the commands
+   * @throws IllegalArgumentException if the executor is null
+   */
+  public AsyncFreecellController(Executor executor) throws IllegalArgumentException {
+    if (executor == null) {
+      throw new IllegalArgumentException("The executor passed is null.");
+    }
+    this.executor = executor;
+    this.token = new CommandToken();
+    this.tail = CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public CompletableFuture<CommandResult> start(List<Cards> deck, FreecellOperations<Cards> model,
+                                                boolean shuffle) {
+    return chain(() -> {
+      if (deck == null || model == null) {
+        throw new IllegalArgumentException("The deck or model passed is null.");
+      }
+      try {
+        model.startGame(deck, shuffle);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("The deck is invalid.");
+      }
+      this.model = model;
+      this.output = new StringBuilder();
+      this.protocol = new MoveCommandProtocol(model, output);
+      protocol.start();
+      return result();
+    });
+  }
+
+  @Override
+  public CompletableFuture<CommandResult> submit(String command) {
+    return chain(() -> {
+      if (protocol == null) {
+        throw new IllegalStateException("The game has not started yet.");
+      }
+      if (protocol.isFinished()) {
+        throw new IllegalStateException("The game is already finished.");
+      }
+      if (command == null) {
+        throw new IllegalArgumentException("The command passed is null.");
+      }
+      token.reset();
+      for (int i = 0; i < command.length() && !protocol.isFinished(); i++) {
+        char c = command.charAt(i);
+        if (!Character.isWhitespace(c)) {
+          token.feed(c);
+        } else if (!token.isEmpty()) {
+          protocol.accept(token);
+          token.reset();
+        }
+      }
+      if (!token.isEmpty() && !protocol.isFinished()) {
+        protocol.accept(token);
+      }
+      token.reset();
+      return result();
+    });
+  }
+
+  /**
+   * Returns the result of the command just played and clears the output for the next one.
+   *
+   * @return the result of the command
+   */
+  private CommandResult result() {
+    CommandResult result = new CommandResult(output.toString(), protocol.isFinished(),
+            model.isGameOver(), protocol.isQuit());
+    output.setLength(0);
+    return result;
+  }
+
+  /**
+   * Run a step after every step submitted before it, whether they succeeded or not.
+   *
+   * @param step the step to run
+   * @return the future result of the step
+   */
+  private synchronized CompletableFuture<CommandResult> chain(Step step) {
+    CompletableFuture<CommandResult> next = tail.handleAsync((ignored, error) -> {
+      try {
+        return step.run();
+      } catch (IOException e) {
+        throw new IllegalStateException("The output cannot be written.");
+      }
+    }, executor);
+    tail = next;
+    return next;
+  }
+
+  /**
+   * This is the interface of one step of a game, run on the executor.
+   */
+  private interface Step {
+    CommandResult run() throws IOException;
+  }
+}
@@ -0,0 +1,65 @@
+package freecell.controller;
+
+/**
+ * This class represents the result of one command played by an {@link IAsyncFreecellController}:
+ * the output the command produced, exactly as the blocking controller would have written it, and
+ * whether the game is finished.
+ */
+public final class CommandResult {
+
+  private final String output;
+  private final boolean finished;
+  private final boolean gameOver;
+  private final boolean quit;
+
+  /**
+   * Constructs a CommandResult.
+   *
+   * @param output   the output of the command
+   * @param finished true if the game expects no more commands
+   * @param gameOver true if the game was won
+   * @param quit     true if the game was quit
+   */
+  CommandResult(String output, boolean finished, boolean gameOver, boolean quit) {
+    this.output = output;
+    this.finished = finished;
+    this.gameOver = gameOver;
+    this.quit = quit;
+  }
+
+  /**
+   * Returns the output of the command: boards, prompts and messages.
+   *
+   * @return the output of the command
+   */
+  public String getOutput() {
+    return output;
+  }
+
+  /**
+   * Returns true if the game expects no more commands.
+   *
+   * @return true if the game is finished
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Returns true if the game was won.
+   *
+   * @return true if the game was won
+   */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /**
+   * Returns true if the game was quit.
+   *
+   * @return true if the game was quit
+   */
+  public boolean isQuit() {
+    return quit;
+  }
+}
@@ -0,0 +1,167 @@
+package freecell.controller;
+
+/**
+ * This class represents one whitespace-separated token of the controller's text protocol, fed
+ * one character at a time. Instead of keeping the characters, it keeps what the protocol needs to
+ * know about them: the length, the first character, whether it asks to quit, and the number written
+ * by the whole token and by the token without its first character, parsed with the rules of
+ * {@link Integer#parseInt(String)}. It never allocates, so one instance can be reused for every
+ * token of a session.
+ */
+public final class CommandToken {
+
+  private static final int START = 0;
+  private static final int SIGN = 1;
+  private static final int DIGITS = 2;
+  private static final int INVALID = 3;
+
+  private int length;
+  private char first;
+  private boolean quit;
+
+  private int wholeState;
+  private boolean wholeNegative;
+  private long wholeValue;
+
+  private int restState;
+  private boolean restNegative;
+  private long restValue;
+
+  /**
+   * Constructs an empty CommandToken.
+   */
+  public CommandToken() {
+    reset();
+  }
+
+  /**
+   * Forget every character fed so far.
+   */
+  public void reset() {
+    length = 0;
+    first = 0;
+    quit = false;
+    wholeState = START;
+    wholeNegative = false;
+    wholeValue = 0;
+    restState = START;
+    restNegative = false;
+    restValue = 0;
+  }
+
+  /**
+   * Add the next character of the token.
+   *
+   * @param c the next character of the token
+   */
+  public void feed(char c) {
+    if (c == 'q' || c == 'Q') {
+      quit = true;
+    }
+    if (length == 0) {
+      first = c;
+    } else {
+      restState = parse(restState, restNegative, restValue, c);
+      if (restState == SIGN && c == '-') {
+        restNegative = true;
+      } else if (restState == DIGITS) {
+        restValue = restValue * 10 + Character.digit(c, 10);
+      }
+    }
+    wholeState = parse(wholeState, wholeNegative, wholeValue, c);
+    if (wholeState == SIGN && c == '-') {
+      wholeNegative = true;
+    } else if (wholeState == DIGITS) {
+      wholeValue = wholeValue * 10 + Character.digit(c, 10);
+    }
+    length = length + 1;
+  }
+
+  /**
+   * Returns the state of a number after the given character, checking for overflow before the
+   * digit is added.
+   */
+  private static int parse(int state, boolean negative, long value, char c) {
+    if (state == INVALID) {
+      return INVALID;
+    }
+    int digit = Character.digit(c, 10);
+    if (digit < 0) {
+      if (state == START && (c == '-' || c == '+')) {
+        return SIGN;
+      }
+      return INVALID;
+    }
+    long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+    if (value * 10 + digit > limit) {
+      return INVALID;
+    }
+    return DIGITS;
+  }
+
+  /**
+   * Returns true if no character was fed since the last reset.
+   *
+   * @return true if the token is empty
+   */
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  /**
+   * Returns the number of characters of the token.
+   *
+   * @return the number of characters of the token
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns the first character of the token.
+   *
+   * @return the first character of the token
+   */
+  public char first() {
+    return first;
+  }
+
+  /**
+   * Returns true if the token contains q or Q, which quits the game.
+   *
+   * @return true if the token asks to quit
+   */
+  public boolean isQuit() {
+    return quit;
+  }
+
+  /**
+   * Returns the number written by the whole token if it is a valid number starting from 1, or -1
+   * otherwise.
+   *
+   * @return the number written by the token, or -1
+   */
+  public int number() {
+    return positive(wholeState, wholeNegative, wholeValue);
+  }
+
+  /**
+   * Returns the number written by the token without its first character, like 7 for C7, if it is
+   * a valid number starting from 1, or -1 otherwise.
+   *
+   * @return the number after the first character, or -1
+   */
+  public int pileNumber() {
+    return positive(restState, restNegative, restValue);
+  }
+
+  /**
+   * Returns the parsed value if it is a complete number starting from 1, or -1 otherwise.
+   */
+  private static int positive(int state, boolean negative, long value) {
+    if (state != DIGITS || negative || value < 1) {
+      return -1;
+    }
+    return (int) value;
+  }
+}
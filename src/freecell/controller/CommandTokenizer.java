@@ -0,0 +1,65 @@
+package freecell.controller;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * This class represents a streaming tokenizer for the controller's text protocol. It reads the
+ * input into one reusable character buffer and feeds every character of the next
+ * whitespace-separated token to a {@link CommandToken}, splitting tokens where
+ * {@link java.util.Scanner} would with its default delimiter, but without regular expressions,
+ * strings or exceptions. Like {@code Scanner}, it treats a failing read as the end of the input.
+ */
+public final class CommandTokenizer {
+
+  private static final int BUFFER_SIZE = 1024;
+
+  private final Readable in;
+  private final CharBuffer buffer;
+  private boolean ended;
+
+  /**
+   * Constructs a CommandTokenizer reading from the given input.
+   *
+   * @param in the input to split into tokens
+   */
+  public CommandTokenizer(Readable in) {
+    this.in = in;
+    this.buffer = CharBuffer.allocate(BUFFER_SIZE);
+    this.buffer.flip();
+  }
+
+  /**
+   * Read the next token into the given token.
+   *
+   * @param token the token to fill, reset first
+   * @return false if the input ended before another token
+   */
+  public boolean next(CommandToken token) {
+    token.reset();
+    while (true) {
+      while (buffer.hasRemaining()) {
+        char c = buffer.get();
+        if (!Character.isWhitespace(c)) {
+          token.feed(c);
+        } else if (!token.isEmpty()) {
+          return true;
+        }
+      }
+      if (ended) {
+        return !token.isEmpty();
+      }
+      buffer.clear();
+      int read;
+      try {
+        read = in.read(buffer);
+      } catch (IOException e) {
+        read = -1;
+      }
+      buffer.flip();
+      if (read < 0) {
+        ended = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,388 @@
+package freecell.controller;
+
+import java.io.BufferedReader;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import freecell.model.Cards;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+
+/**
+ * This class represents a headless controller that plays many scripted games back to back. A
+ * script describes every game in a block of lines:
+ * <pre>
+ * game 1            starts a game and names it
+ * variant multi     single (the default) or multi for multi-card moves
+ * cascades 8        the number of cascade piles, 8 by default
+ * opens 4           the number of open piles, 4 by default
+ * deal 11982        the numbered deal to play, or
+ * deck A♣ 2♣ ...    the 52 cards to deal, in dealing order
+ * moves C1 7 F1 ... the moves, as typed to the controller, on one or more lines
+ * end               ends the game, optional before the next game
+ * </pre>
+ * Lines starting with # are comments. Moves are played with the same protocol as
+ * {@link FreecellController}. All output goes through one buffer to the given sink, and depending
+ * on the {@link Output} chosen it is the full transcript, only the final board or only a summary.
+ */
+public final class FreecellBatchRunner {
+
+  /**
+   * Type for how much is written for every game.
+   */
+  public enum Output {
+    /**
+     * Everything the controller would write, board after board.
+     */
+    TRANSCRIPT,
+    /**
+     * The final board and the result of the game.
+     */
+    FINAL_STATE,
+    /**
+     * One line with the result of the game.
+     */
+    SUMMARY
+  }
+
+  private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+  private static final Appendable DISCARD = new Appendable() {
+    @Override
+    public Appendable append(CharSequence csq) {
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      return this;
+    }
+  };
+
+  private final Appendable sink;
+  private final Output output;
+  private final StringBuilder buffer;
+  private final CommandToken token;
+
+  private int gamesPlayed;
+  private int gamesWon;
+
+  /**
+   * Constructs a FreecellBatchRunner.
+   *
+   * @param sink   where the output is written, flushed at the end of every run if it is
+   *               {@link Flushable}
+   * @param output how much is written for every game
+   * @throws IllegalArgumentException if the sink or output is null
+   */
+  public FreecellBatchRunner(Appendable sink, Output output) throws IllegalArgumentException {
+    if (sink == null || output == null) {
+      throw new IllegalArgumentException("The sink or output passed is null.");
+    }
+    this.sink = sink;
+    this.output = output;
+    this.buffer = new StringBuilder(FLUSH_THRESHOLD + 4096);
+    this.token = new CommandToken();
+  }
+
+  /**
+   * Play every game of the given script.
+   *
+   * @param script the script of the games
+   * @throws IllegalArgumentException if the script is malformed
+   * @throws IllegalStateException    if the script cannot be read or the output cannot be written
+   */
+  public void run(Reader script) throws IllegalArgumentException, IllegalStateException {
+    try {
+      BufferedReader reader = new BufferedReader(script);
+      GameScript game = null;
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber = lineNumber + 1;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        int space = line.indexOf(' ');
+        String keyword = space < 0 ? line : line.substring(0, space);
+        String value = space < 0 ? "" : line.substring(space + 1).trim();
+        if (keyword.equals("game")) {
+          if (game != null) {
+            play(game);
+          }
+          game = new GameScript(value.isEmpty() ? String.valueOf(gamesPlayed + 1) : value);
+          continue;
+        }
+        if (game == null) {
+          game = new GameScript(String.valueOf(gamesPlayed + 1));
+        }
+        if (!game.read(keyword, value)) {
+          throw new IllegalArgumentException("Line " + lineNumber + " of the script is "
+                  + "malformed: " + line);
+        }
+        if (keyword.equals("end")) {
+          play(game);
+          game = null;
+        }
+      }
+      if (game != null) {
+        play(game);
+      }
+      buffer.append("Played ").append(gamesPlayed).append(" games, ").append(gamesWon)
+              .append(" won.\n");
+      flush();
+      if (sink instanceof Flushable) {
+        ((Flushable) sink).flush();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("The script cannot be read or the output cannot be "
+              + "written.");
+    }
+  }
+
+  /**
+   * Returns the number of games played so far.
+   *
+   * @return the number of games played
+   */
+  public int getGamesPlayed() {
+    return gamesPlayed;
+  }
+
+  /**
+   * Returns the number of games won so far.
+   *
+   * @return the number of games won
+   */
+  public int getGamesWon() {
+    return gamesWon;
+  }
+
+  /**
+   * Play one game of the script and write its output.
+   *
+   * @param game the game to play
+   * @throws IOException if the output cannot be written
+   */
+  private void play(GameScript game) throws IOException {
+    gamesPlayed = gamesPlayed + 1;
+    FreecellOperationsBuilder<Cards> builder = game.multi ? FreecellMultiMoveModel.getBuilder()
+            : FreecellModel.getBuilder();
+    FreecellOperations<Cards> model;
+    try {
+      builder.cascades(game.cascades);
+      builder.opens(game.opens);
+      model = builder.build();
+      model.startGame(game.deck == null ? model.getDeck() : game.deck, false);
+    } catch (IllegalArgumentException e) {
+      buffer.append("Game ").append(game.name).append(": ").append(e.getMessage()).append('\n');
+      flushIfFull();
+      return;
+    }
+
+    if (output == Output.TRANSCRIPT) {
+      buffer.append("Game ").append(game.name).append(":\n");
+    }
+    MoveCommandProtocol protocol = output == Output.TRANSCRIPT
+            ? new MoveCommandProtocol(model, buffer) : new MoveCommandProtocol(model, DISCARD,
+            false);
+    boolean finished = protocol.start();
+    String moves = game.moves.toString();
+    for (int i = 0; i < moves.length() && !finished; i++) {
+      char c = moves.charAt(i);
+      if (!Character.isWhitespace(c)) {
+        token.feed(c);
+      } else if (!token.isEmpty()) {
+        finished = protocol.accept(token);
+        token.reset();
+        flushIfFull();
+      }
+    }
+    token.reset();
+
+    String result;
+    if (model.isGameOver()) {
+      gamesWon = gamesWon + 1;
+      result = "won";
+    } else if (protocol.isQuit()) {
+      result = "quit";
+    } else {
+      result = "unfinished";
+    }
+    if (output == Output.TRANSCRIPT) {
+      if (buffer.length() > 0 && buffer.charAt(buffer.length() - 1) != '\n') {
+        buffer.append('\n');
+      }
+    } else {
+      buffer.append("Game ").append(game.name).append(": ");
+      if (output == Output.FINAL_STATE) {
+        buffer.append('\n').append(model.getGameState()).append('\n');
+      }
+      buffer.append(result).append(", ").append(protocol.getAppliedMoves())
+              .append(" moves applied, ").append(protocol.getRejectedMoves())
+              .append(" rejected\n");
+    }
+    flushIfFull();
+  }
+
+  /**
+   * Write the buffer to the sink once it is large enough.
+   *
+   * @throws IOException if the output cannot be written
+   */
+  private void flushIfFull() throws IOException {
+    if (buffer.length() >= FLUSH_THRESHOLD) {
+      flush();
+    }
+  }
+
+  /**
+   * Write the buffer to the sink.
+   *
+   * @throws IOException if the output cannot be written
+   */
+  private void flush() throws IOException {
+    sink.append(buffer);
+    buffer.setLength(0);
+  }
+
+  /**
+   * This class represents one game read from a script.
+   */
+  private static final class GameScript {
+
+    private final String name;
+    private final StringBuilder moves;
+    private boolean multi;
+    private int cascades;
+    private int opens;
+    private List<Cards> deck;
+
+    /**
+     * Constructs a GameScript with the default settings.
+     *
+     * @param name the name of the game
+     */
+    private GameScript(String name) {
+      this.name = name;
+      this.moves = new StringBuilder();
+      this.cascades = 8;
+      this.opens = 4;
+    }
+
+    /**
+     * Read one line of the script.
+     *
+     * @param keyword the first word of the line
+     * @param value   the rest of the line
+     * @return false if the line is malformed
+     */
+    private boolean read(String keyword, String value) {
+      try {
+        switch (keyword) {
+          case "variant":
+            if (!value.equals("single") && !value.equals("multi")) {
+              return false;
+            }
+            multi = value.equals("multi");
+            return true;
+          case "cascades":
+            cascades = Integer.parseInt(value);
+            return true;
+          case "opens":
+            opens = Integer.parseInt(value);
+            return true;
+          case "deal":
+            deck = DealGenerator.deal(Integer.parseInt(value));
+            return true;
+          case "deck":
+            deck = parseDeck(value);
+            return deck != null;
+          case "moves":
+            moves.append(value).append(' ');
+            return true;
+          case "end":
+            return true;
+          default:
+            return false;
+        }
+      } catch (IllegalArgumentException e) {
+        return false;
+      }
+    }
+
+    /**
+     * Returns the cards written in the given text, separated by spaces or commas, or null if a
+     * card is malformed. A card is a value (A, 2 to 10 or T, J, Q, K) followed by a suit (♣, ♦,
+     * ♥, ♠ or C, D, H, S).
+     *
+     * @param text the cards to read
+     * @return the cards, or null
+     */
+    private static List<Cards> parseDeck(String text) {
+      List<Cards> cards = new ArrayList<>(52);
+      for (String card : text.split("[\\s,]+")) {
+        if (card.length() < 2) {
+          return null;
+        }
+        String value = card.substring(0, card.length() - 1);
+        int suit = "♣♦♥♠".indexOf(card.charAt(card.length() - 1));
+        if (suit < 0) {
+          suit = "CDHS".indexOf(Character.toUpperCase(card.charAt(card.length() - 1)));
+        }
+        int number = 0;
+        if (value.equals("10")) {
+          number = 10;
+        } else if (value.length() == 1) {
+          number = "A23456789TJQK".indexOf(Character.toUpperCase(value.charAt(0))) + 1;
+        }
+        if (suit < 0 || number < 1) {
+          return null;
+        }
+        cards.add(new Cards(number, "♣♦♥♠".substring(suit, suit + 1)));
+      }
+      return cards;
+    }
+  }
+
+  /**
+   * Run a script from the command line. The arguments are the path of the script and optionally
+   * the output, one of transcript, final or summary, which is the default.
+   *
+   * @param args the command line arguments
+   * @throws IOException if the script cannot be opened
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: FreecellBatchRunner script [transcript|final|summary]");
+      return;
+    }
+    Output output = Output.SUMMARY;
+    if (args.length > 1 && args[1].equals("transcript")) {
+      output = Output.TRANSCRIPT;
+    } else if (args.length > 1 && args[1].equals("final")) {
+      output = Output.FINAL_STATE;
+    }
+    Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    try (Reader script = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+      new FreecellBatchRunner(out, output).run(script);
+    }
+  }
+}
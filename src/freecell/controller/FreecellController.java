@@ -1,14 +1,11 @@
 package freecell.controller;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 
 import freecell.model.Cards;
 import freecell.model.FreecellOperations;
-import freecell.model.PileType;
 
 /**
  * This class represents a FreecellController which “runs” the program, effectively facilitating it
@@ -18,8 +15,6 @@ public class FreecellController implements IFreecellController<Cards> {
   private final Readable in;
   private final Appendable out;
 
-  private Map<Character, PileType> pileTypeMap;
-
   /**
    * Constructs a FreecellController with a Readable object and an Appendable object.
    *
@@ -33,11 +28,6 @@ public class FreecellController implements IFreecellController<Cards> {
     }
     this.in = rd;
     this.out = ap;
-
-    pileTypeMap = new HashMap<>();
-    pileTypeMap.put('C', PileType.CASCADE);
-    pileTypeMap.put('F', PileType.FOUNDATION);
-    pileTypeMap.put('O', PileType.OPEN);
   }
 
   @Override
@@ -54,122 +44,18 @@ public class FreecellController implements IFreecellController<Cards> {
     }
 
     try {
-      Scanner scan = new Scanner(this.in);
-      String sourcePile;
-      String destinationPile;
-      Integer cardIndex;
-      Integer pileNumber;
-      Integer destPileNumber;
-
-      while (true) {
-        this.out.append(model.getGameState() + "\n");
-        if (!model.isGameOver()) {
-          char theSourcePile;
-          PileType source;
-          do {
-            sourcePile = scan.next();
-            if (sourcePile.contains("q") || sourcePile.contains("Q")) {
-              this.out.append("Game quit prematurely.");
-              return;
-            }
-            theSourcePile = sourcePile.charAt(0);
-            if (sourcePile.length() < 2) {
-              out.append("There should have both source pile name and index like C1 or O1. "
-                      + "Please input again.\n");
-              continue;
-            }
-            source = pileTypeMap.get(theSourcePile);
-            if (source != null) {
-              pileNumber = parseInt(sourcePile.substring(1));
-              if (pileNumber == null || pileNumber < 1) {
-                out.append("Source pile index should be a valid number starting from 1. "
-                        + "Please input again.\n");
-                continue;
-              }
-              pileNumber = pileNumber - 1;
-              break;
-            }
-            out.append("Source pile number should be one of C, F or O. "
-                    + "Please input again.\n");
-          }
-          while (true);
-
-          do {
-            String cardIndexAsString = scan.next();
-            if (cardIndexAsString.contains("q") || cardIndexAsString.contains("Q")) {
-              this.out.append("Game quit prematurely.");
-              return;
-            }
-            cardIndex = parseInt(cardIndexAsString);
-            if (cardIndex == null || cardIndex < 1) {
-              out.append("Card index should be a valid number starting from 1. "
-                      + "Please input again.\n");
-              continue;
-            }
-            cardIndex = cardIndex - 1;
-            break;
-          }
-          while (true);
-
-          char theDestinationPile;
-          PileType destination;
-          do {
-            destinationPile = scan.next();
-            if (destinationPile.contains("q") || destinationPile.contains("Q")) {
-              this.out.append("Game quit prematurely.");
-              return;
-            }
-            theDestinationPile = destinationPile.charAt(0);
-            if (destinationPile.length() < 2) {
-              out.append("There should have both destination pile name and index like C1 or O1. "
-                      + "Please input again.\n");
-              continue;
-            }
-            destination = pileTypeMap.get(theDestinationPile);
-            if (destination != null) {
-              destPileNumber = parseInt(destinationPile.substring(1));
-              if (destPileNumber == null || destPileNumber < 1) {
-                out.append("Destination pile index should be a valid number starting from 1. "
-                        + "Please input again.\n");
-                continue;
-              }
-              destPileNumber = destPileNumber - 1;
-              break;
-            }
-            out.append("Destination pile number should be one of C, F or O. "
-                    + "Please input again.\n");
-          }
-          while (true);
-
-          try {
-            model.move(source, pileNumber, cardIndex, destination, destPileNumber);
-          } catch (Exception e) {
-            out.append("Invalid move. Try again." + e.getMessage() + "\n");
-          }
-
-        } else {
-          this.out.append(model.getGameState() + "\n");
-          this.out.append("Game over.\n");
-          break;
+      CommandTokenizer tokenizer = new CommandTokenizer(this.in);
+      MoveCommandProtocol protocol = new MoveCommandProtocol(model, this.out);
+      CommandToken token = new CommandToken();
+      boolean finished = protocol.start();
+      while (!finished) {
+        if (!tokenizer.next(token)) {
+          throw new NoSuchElementException();
         }
+        finished = protocol.accept(token);
       }
     } catch (IOException e) {
       throw new IllegalStateException();
     }
   }
-
-  /**
-   * Returns the Integer transformed from the given string. If the transformation fails, then it
-   * will return null.
-   *
-   * @param target given string
-   * @return the Integer transformed from the given string, if fails then return null
-   */
-  private Integer parseInt(String target) {
-    try {
-      return Integer.parseInt(target);
-    } catch (NumberFormatException e) {
-      return null;
-    }
-  }
 }
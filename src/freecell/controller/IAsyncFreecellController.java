@@ -0,0 +1,37 @@
+package freecell.controller;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import freecell.model.FreecellOperations;
+
+/**
+ * Interface for a freecell game controller driven one command at a time. Unlike
+ * {@link IFreecellController}, it does not own a read loop: every command is submitted by the
+ * caller and answered by a future, and the commands of one game are played one after the other in
+ * the order they were submitted, without a thread waiting for input in between.
+ */
+public interface IAsyncFreecellController<K> {
+
+  /**
+   * Start a new game of freecell with the provided deck. The result holds the first board.
+   *
+   * @param deck    the deck to be used to play this game
+   * @param model   the model for the game
+   * @param shuffle shuffle the deck if true, false otherwise
+   * @return the future result of starting the game, failed with an IllegalArgumentException if
+   *         the deck is null or invalid, or if the model is null
+   */
+  CompletableFuture<CommandResult> start(List<K> deck, FreecellOperations<K> model,
+                                         boolean shuffle);
+
+  /**
+   * Play one command, made of the same tokens as the input of {@link IFreecellController}, like
+   * "C1 7 F1" or "q". A command may hold any number of tokens, even part of a move.
+   *
+   * @param command the command to play
+   * @return the future result of the command, failed with an IllegalStateException if the game
+   *         is not started or already finished
+   */
+  CompletableFuture<CommandResult> submit(String command);
+}
@@ -0,0 +1,234 @@
+package freecell.controller;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import freecell.model.Cards;
+import freecell.model.FreecellOperations;
+import freecell.model.PileType;
+
+/**
+ * This class represents the text protocol of the freecell controller as a state machine fed one
+ * token at a time. A move is three tokens: the source pile like C1, the card index like 7 and the
+ * destination pile like F1, and any token containing q or Q quits. The machine writes exactly the
+ * board dumps, prompts and messages of {@link FreecellController#playGame}, so any front-end that
+ * can split its input into tokens plays the same game, whether it reads from a blocking stream or
+ * from partial reads of a non-blocking channel.
+ */
+public final class MoveCommandProtocol {
+
+  private static final int SOURCE = 0;
+  private static final int CARD = 1;
+  private static final int DESTINATION = 2;
+  private static final int FINISHED = 3;
+
+  private final FreecellOperations<Cards> model;
+  private final Appendable out;
+  private final boolean showBoards;
+
+  private int expecting;
+  private PileType source;
+  private int pileNumber;
+  private int cardIndex;
+
+  private int appliedMoves;
+  private int rejectedMoves;
+  private boolean quit;
+
+  /**
+   * Constructs a MoveCommandProtocol playing a started game.
+   *
+   * @param model the model of the game, already started
+   * @param out   where the board dumps and messages are written
+   */
+  public MoveCommandProtocol(FreecellOperations<Cards> model, Appendable out) {
+    this(model, out, true);
+  }
+
+  /**
+   * Constructs a MoveCommandProtocol playing a started game, optionally without writing the board
+   * after every move. Without board dumps the game state is never rendered, which is what makes
+   * scripted games cheap to replay.
+   *
+   * @param model      the model of the game, already started
+   * @param out        where the board dumps and messages are written
+   * @param showBoards write the board after every move if true
+   */
+  public MoveCommandProtocol(FreecellOperations<Cards> model, Appendable out,
+                             boolean showBoards) {
+    this.model = Objects.requireNonNull(model);
+    this.out = Objects.requireNonNull(out);
+    this.showBoards = showBoards;
+    this.expecting = SOURCE;
+  }
+
+  /**
+   * Write the first board dump. This must be called once before the first token.
+   *
+   * @return true if the game is already over
+   * @throws IOException if the output cannot be written
+   */
+  public boolean start() throws IOException {
+    return showBoard();
+  }
+
+  /**
+   * Returns true if the game was quit or is over and no more tokens are expected.
+   *
+   * @return true if no more tokens are expected
+   */
+  public boolean isFinished() {
+    return expecting == FINISHED;
+  }
+
+  /**
+   * Returns true if the game was quit with q or Q.
+   *
+   * @return true if the game was quit
+   */
+  public boolean isQuit() {
+    return quit;
+  }
+
+  /**
+   * Returns the number of moves the model accepted.
+   *
+   * @return the number of moves the model accepted
+   */
+  public int getAppliedMoves() {
+    return appliedMoves;
+  }
+
+  /**
+   * Returns the number of complete moves the model rejected.
+   *
+   * @return the number of moves the model rejected
+   */
+  public int getRejectedMoves() {
+    return rejectedMoves;
+  }
+
+  /**
+   * Play the next token.
+   *
+   * @param token the next token, not empty
+   * @return true if the game was quit or is over and no more tokens are expected
+   * @throws IOException           if the output cannot be written
+   * @throws IllegalStateException if the game is already finished
+   */
+  public boolean accept(CommandToken token) throws IOException, IllegalStateException {
+    if (expecting == FINISHED) {
+      throw new IllegalStateException("The game is already finished.");
+    }
+    if (token.isQuit()) {
+      out.append("Game quit prematurely.");
+      expecting = FINISHED;
+      quit = true;
+      return true;
+    }
+
+    if (expecting == SOURCE) {
+      if (token.length() < 2) {
+        out.append("There should have both source pile name and index like C1 or O1. "
+                + "Please input again.\n");
+        return false;
+      }
+      source = pileType(token.first());
+      if (source == null) {
+        out.append("Source pile number should be one of C, F or O. "
+                + "Please input again.\n");
+        return false;
+      }
+      int number = token.pileNumber();
+      if (number < 1) {
+        out.append("Source pile index should be a valid number starting from 1. "
+                + "Please input again.\n");
+        return false;
+      }
+      pileNumber = number - 1;
+      expecting = CARD;
+      return false;
+    }
+
+    if (expecting == CARD) {
+      int number = token.number();
+      if (number < 1) {
+        out.append("Card index should be a valid number starting from 1. "
+                + "Please input again.\n");
+        return false;
+      }
+      cardIndex = number - 1;
+      expecting = DESTINATION;
+      return false;
+    }
+
+    if (token.length() < 2) {
+      out.append("There should have both destination pile name and index like C1 or O1. "
+              + "Please input again.\n");
+      return false;
+    }
+    PileType destination = pileType(token.first());
+    if (destination == null) {
+      out.append("Destination pile number should be one of C, F or O. "
+              + "Please input again.\n");
+      return false;
+    }
+    int number = token.pileNumber();
+    if (number < 1) {
+      out.append("Destination pile index should be a valid number starting from 1. "
+              + "Please input again.\n");
+      return false;
+    }
+
+    try {
+      model.move(source, pileNumber, cardIndex, destination, number - 1);
+      appliedMoves = appliedMoves + 1;
+    } catch (Exception e) {
+      rejectedMoves = rejectedMoves + 1;
+      out.append("Invalid move. Try again." + e.getMessage() + "\n");
+    }
+    expecting = SOURCE;
+    return showBoard();
+  }
+
+  /**
+   * Write the board and, if the game is over, the final board and the game over message. Without
+   * board dumps only the game over message is written.
+   *
+   * @return true if the game is over
+   * @throws IOException if the output cannot be written
+   */
+  private boolean showBoard() throws IOException {
+    if (showBoards) {
+      out.append(model.getGameState() + "\n");
+    }
+    if (!model.isGameOver()) {
+      return false;
+    }
+    if (showBoards) {
+      out.append(model.getGameState() + "\n");
+    }
+    out.append("Game over.\n");
+    expecting = FINISHED;
+    return true;
+  }
+
+  /**
+   * Returns the type of pile named by the given letter, or null if there is none.
+   *
+   * @param letter the letter of the pile, one of C, F or O
+   * @return the type of pile, or null
+   */
+  private static PileType pileType(char letter) {
+    switch (letter) {
+      case 'C':
+        return PileType.CASCADE;
+      case 'F':
+        return PileType.FOUNDATION;
+      case 'O':
+        return PileType.OPEN;
+      default:
+        return null;
+    }
+  }
+}
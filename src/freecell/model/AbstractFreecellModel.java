@@ -1,6 +1,7 @@
 package freecell.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -13,7 +14,10 @@ import static freecell.model.PileType.FOUNDATION;
 import static freecell.model.PileType.OPEN;
 
 /**
- * This abstract class represents a AbstractFreecellModel and supports all its operations.
+ * This abstract class represents a AbstractFreecellModel and supports all its operations. Every
+ * move is played by the same path, following the tables of the {@link RuleVariant} of the model.
+ * New games, moves, snapshots and restores hold the monitor of the model, so a snapshot taken on
+ * another thread, like a hint request or a spectator, always sees the board between two moves.
  */
 public abstract class AbstractFreecellModel implements FreecellOperations<Cards> {
 
@@ -28,15 +32,33 @@ public abstract class AbstractFreecellModel implements FreecellOperations<Cards>
   protected int opensNum;
 
   protected int status;
+  protected final RuleVariant variant;
   protected static final int NOT_STARTED = 1;
   protected static final int STARTED = 2;
   protected static final int OVER = 3;
 
+  /**
+   * The number of foundation piles of every game, which come first in the order of the piles of
+   * {@link #getGameState()}.
+   */
+  public static final int FOUNDATIONS = 4;
+
   protected static final String CLUB = "♣";
   protected static final String DIAMOND = "♦";
   protected static final String HEART = "♥";
   protected static final String SPADE = "♠";
 
+  private static final int EVENT_RING_CAPACITY = 1024;
+  private static final int HIBERNATED_HEADER = 4;
+
+  private volatile MoveEventRing events;
+
+  private BoardSnapshot lastSnapshot;
+  private boolean[] changedPiles;
+  private int[] buildRuns;
+  private int freeOpens = -1;
+  private int emptyCascades = -1;
+
   /**
    * Constructs a AbstractFreecellModel with a deck, cascades piles, open piles, foundation piles,
    * cascades number, open number, status and a pileTypeMap.
@@ -45,6 +67,23 @@ public abstract class AbstractFreecellModel implements FreecellOperations<Cards>
    * @param opensNum    the users' input for the number of this open pile
    */
   public AbstractFreecellModel(int cascadesNum, int opensNum) {
+    this(cascadesNum, opensNum, RuleVariant.FREECELL);
+  }
+
+  /**
+   * Constructs a AbstractFreecellModel playing by the rules of the given variant.
+   *
+   * @param cascadesNum the users' input for the number of this cascades pile
+   * @param opensNum    the users' input for the number of this open pile
+   * @param variant     the rules of the game
+   * @throws IllegalArgumentException if the variant is null
+   */
+  protected AbstractFreecellModel(int cascadesNum, int opensNum, RuleVariant variant)
+          throws IllegalArgumentException {
+    if (variant == null) {
+      throw new IllegalArgumentException("The variant passed is null.");
+    }
+    this.variant = variant;
     deck = new ArrayList<>();
     cascadesPile = new ArrayList<>();
     opensPile = new ArrayList<>();
@@ -80,7 +119,8 @@ public abstract class AbstractFreecellModel implements FreecellOperations<Cards>
   }
 
   @Override
-  public void startGame(List<Cards> deck, boolean shuffle) throws IllegalArgumentException {
+  public synchronized void startGame(List<Cards> deck, boolean shuffle)
+          throws IllegalArgumentException {
     if (deck == null) {
       deck = this.deck;
     }
@@ -98,6 +138,7 @@ public abstract class AbstractFreecellModel implements FreecellOperations<Cards>
     }
 
     initializePiles();
+    lastSnapshot = null;
 
     //allocate cards to piles
     for (int i = 0; i < 52; i++) {
@@ -106,10 +147,692 @@ public abstract class AbstractFreecellModel implements FreecellOperations<Cards>
     this.status = 2;
   }
 
+  @Override
+  public synchronized void move(PileType source,
+                                int pileNumber,
+                                int cardIndex,
+                                PileType destination,
+                                int destPileNumber)
+          throws IllegalArgumentException, IllegalStateException {
+    if (lastSnapshot != null) {
+      pileChanged(source, pileNumber);
+      pileChanged(destination, destPileNumber);
+    }
+    MoveEventRing ring = this.events;
+    int destinationSize = pileSize(destination, destPileNumber);
+    if (ring == null) {
+      applyMove(source, pileNumber, cardIndex, destination, destPileNumber);
+      pilesMoved(source, pileNumber, destination, destPileNumber, destinationSize);
+      return;
+    }
+
+    try {
+      applyMove(source, pileNumber, cardIndex, destination, destPileNumber);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      ring.publish(MoveEvent.Type.REJECTED, source, pileNumber, cardIndex, destination,
+              destPileNumber, 0, MoveEvent.NO_CARD, MoveEvent.NO_CARD, e.getMessage());
+      throw e;
+    }
+    pilesMoved(source, pileNumber, destination, destPileNumber, destinationSize);
+    ring.publish(MoveEvent.Type.APPLIED, source, pileNumber, cardIndex, destination,
+            destPileNumber, pileSize(destination, destPileNumber) - destinationSize,
+            topCode(source, pileNumber), topCode(destination, destPileNumber), null);
+    if (this.status == 3) {
+      ring.publish(MoveEvent.Type.GAME_OVER, source, pileNumber, cardIndex, destination,
+              destPileNumber, 0, MoveEvent.NO_CARD, MoveEvent.NO_CARD, null);
+    }
+  }
+
+  @Override
+  public synchronized void moveAll(List<Move> moves)
+          throws IllegalArgumentException, IllegalStateException {
+    if (moves == null || moves.contains(null)) {
+      throw new IllegalArgumentException("The moves cannot be null.");
+    }
+    MoveEventRing ring = this.events;
+    int statusBefore = this.status;
+    //the undo log: how many cards every applied move took from its source pile
+    int[] moved = new int[moves.size()];
+    int[] tops = ring == null ? null : new int[2 * moves.size()];
+    int applied = 0;
+    try {
+      for (Move m : moves) {
+        if (lastSnapshot != null) {
+          pileChanged(m.getSource(), m.getPileNumber());
+          pileChanged(m.getDestination(), m.getDestPileNumber());
+        }
+        int sourceSize = pileSize(m.getSource(), m.getPileNumber());
+        int destinationSize = pileSize(m.getDestination(), m.getDestPileNumber());
+        applyMove(m.getSource(), m.getPileNumber(), m.getCardIndex(), m.getDestination(),
+                m.getDestPileNumber());
+        pilesMoved(m.getSource(), m.getPileNumber(), m.getDestination(), m.getDestPileNumber(),
+                destinationSize);
+        moved[applied] = sourceSize - pileSize(m.getSource(), m.getPileNumber());
+        if (tops != null) {
+          tops[2 * applied] = topCode(m.getSource(), m.getPileNumber());
+          tops[2 * applied + 1] = topCode(m.getDestination(), m.getDestPileNumber());
+        }
+        applied = applied + 1;
+      }
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      undo(moves, moved, applied);
+      this.status = statusBefore;
+      Move m = moves.get(applied);
+      if (ring != null) {
+        ring.publish(MoveEvent.Type.REJECTED, m.getSource(), m.getPileNumber(),
+                m.getCardIndex(), m.getDestination(), m.getDestPileNumber(), 0,
+                MoveEvent.NO_CARD, MoveEvent.NO_CARD, e.getMessage());
+      }
+      String message = "Move " + (applied + 1) + " (" + m + ") is not possible: "
+              + e.getMessage();
+      if (e instanceof IllegalStateException) {
+        throw new IllegalStateException(message);
+      }
+      throw new IllegalArgumentException(message);
+    }
+
+    if (ring != null) {
+      for (int i = 0; i < applied; i++) {
+        Move m = moves.get(i);
+        ring.publish(MoveEvent.Type.APPLIED, m.getSource(), m.getPileNumber(),
+                m.getCardIndex(), m.getDestination(), m.getDestPileNumber(), moved[i],
+                tops[2 * i], tops[2 * i + 1], null);
+      }
+      if (this.status == 3 && statusBefore != 3) {
+        Move m = moves.get(applied - 1);
+        ring.publish(MoveEvent.Type.GAME_OVER, m.getSource(), m.getPileNumber(),
+                m.getCardIndex(), m.getDestination(), m.getDestPileNumber(), 0,
+                MoveEvent.NO_CARD, MoveEvent.NO_CARD, null);
+      }
+    }
+  }
+
+  /**
+   * Take back the first moves of a list, last move first, by putting the cards each of them
+   * moved back on its source pile. No rule is checked, since every move is taken back from the
+   * board it left.
+   *
+   * @param moves   the moves
+   * @param moved   how many cards every move took from its source pile
+   * @param applied how many moves were applied
+   */
+  private void undo(List<Move> moves, int[] moved, int applied) {
+    for (int i = applied - 1; i >= 0; i--) {
+      if (moved[i] == 0) {
+        continue;
+      }
+      Move m = moves.get(i);
+      List<Cards> from = pileTypeMap.get(m.getDestination()).get(m.getDestPileNumber());
+      List<Cards> to = pileTypeMap.get(m.getSource()).get(m.getPileNumber());
+      List<Cards> cards = from.subList(from.size() - moved[i], from.size());
+      to.addAll(cards);
+      cards.clear();
+    }
+    forgetPiles();
+  }
+
+  /**
+   * Returns the number of cards at the top of the given cascade pile that form a valid build of
+   * the variant. The length of every cascade is cached and kept up
+   * to date by the moves, so this is usually one array read.
+   *
+   * @param pileNumber the cascade pile number, starting at 0
+   * @return the length of the build at the top of the cascade pile
+   */
+  protected int buildRun(int pileNumber) {
+    if (buildRuns == null) {
+      buildRuns = new int[cascadesNum];
+      Arrays.fill(buildRuns, -1);
+    }
+    if (buildRuns[pileNumber] < 0) {
+      buildRuns[pileNumber] = variant.buildRun(pileTypeMap.get(CASCADE).get(pileNumber));
+    }
+    return buildRuns[pileNumber];
+  }
+
+  /**
+   * Returns the number of empty open piles. The count is kept up to date by the moves.
+   *
+   * @return the number of empty open piles
+   */
+  protected int freeOpenCount() {
+    if (freeOpens < 0) {
+      freeOpens = countEmpty(pileTypeMap.get(OPEN));
+    }
+    return freeOpens;
+  }
+
+  /**
+   * Returns the number of empty cascade piles. The count is kept up to date by the moves.
+   *
+   * @return the number of empty cascade piles
+   */
+  protected int emptyCascadeCount() {
+    if (emptyCascades < 0) {
+      emptyCascades = countEmpty(pileTypeMap.get(CASCADE));
+    }
+    return emptyCascades;
+  }
+
+  /**
+   * Returns the number of empty piles among the given piles.
+   *
+   * @param piles the piles
+   * @return the number of empty piles
+   */
+  private static int countEmpty(List<List<Cards>> piles) {
+    int count = 0;
+    for (List<Cards> pile : piles) {
+      if (pile.isEmpty()) {
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Update the cached builds of the cascade piles and the counts of empty piles after a move.
+   * The cards a move takes from a cascade shorten its build, and the cards it puts on a cascade
+   * lengthen it, since they form a build that stacks on its top card; a build whose length is no
+   * longer known is recomputed when it is next needed.
+   *
+   * @param source          the type of the source pile
+   * @param pileNumber      the pile number of the source pile
+   * @param destination     the type of the destination pile
+   * @param destPileNumber  the pile number of the destination pile
+   * @param destinationSize the number of cards in the destination pile before the move
+   */
+  private void pilesMoved(PileType source, int pileNumber, PileType destination,
+                          int destPileNumber, int destinationSize) {
+    int moved = pileSize(destination, destPileNumber) - destinationSize;
+    if (moved == 0) {
+      return;
+    }
+    if (pileSize(source, pileNumber) == 0) {
+      emptyChanged(source, 1);
+    }
+    if (destinationSize == 0) {
+      emptyChanged(destination, -1);
+    }
+    if (buildRuns == null) {
+      return;
+    }
+    if (source == CASCADE) {
+      int run = buildRuns[pileNumber];
+      buildRuns[pileNumber] = run > moved ? run - moved : -1;
+    }
+    if (destination == CASCADE) {
+      int run = buildRuns[destPileNumber];
+      buildRuns[destPileNumber] = destinationSize == 0 ? moved : run < 0 ? -1 : run + moved;
+    }
+  }
+
+  /**
+   * Add to the count of empty piles of the given type, if it is known.
+   *
+   * @param type  the type of the piles
+   * @param delta the number of piles that became empty, or minus the number that were filled
+   */
+  private void emptyChanged(PileType type, int delta) {
+    if (type == OPEN && freeOpens >= 0) {
+      freeOpens = freeOpens + delta;
+    } else if (type == CASCADE && emptyCascades >= 0) {
+      emptyCascades = emptyCascades + delta;
+    }
+  }
+
+  /**
+   * Forget the cached builds and counts of empty piles, after the piles were changed other than
+   * by a move.
+   */
+  private void forgetPiles() {
+    buildRuns = null;
+    freeOpens = -1;
+    emptyCascades = -1;
+  }
+
+  /**
+   * Returns the rules this model plays by.
+   *
+   * @return the rules of the game
+   */
+  public RuleVariant getVariant() {
+    return variant;
+  }
+
+  /**
+   * Move the cards from the given source pile to the given destination pile following the rules
+   * of the variant of this model. If the move is not possible, the piles are left as they were.
+   * Every rule is read from the tables of the variant and the counts of empty piles and builds
+   * kept by the model, so a move takes constant time besides moving the cards.
+   *
+   * @param source         the type of the source pile
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @throws IllegalArgumentException if the move is not possible
+   * @throws IllegalStateException    if a move is attempted before the game has starts or after
+   *                                  the game is over
+   */
+  protected void applyMove(PileType source,
+                           int pileNumber,
+                           int cardIndex,
+                           PileType destination,
+                           int destPileNumber)
+          throws IllegalArgumentException, IllegalStateException {
+
+    if (this.status == OVER || this.status == NOT_STARTED) {
+      throw new IllegalStateException("Current state doesn't allow you to move cards.");
+    }
+
+    List<List<Cards>> listOfSourcePile = pileTypeMap.get(source);
+    List<List<Cards>> listOfDestinationPile = pileTypeMap.get(destination);
+
+    if (pileNumber >= listOfSourcePile.size() || destPileNumber >= listOfDestinationPile.size()) {
+      throw new IllegalArgumentException("There is no such pile.");
+    }
+
+    List<Cards> sourcePile = listOfSourcePile.get(pileNumber);
+    List<Cards> destinationPile = listOfDestinationPile.get(destPileNumber);
+    if (!variant.isMultiMove()) {
+      if (cardIndex != sourcePile.size() - 1) {
+        throw new IllegalArgumentException("This card cannot be moved or there is no such card.");
+      }
+    } else if (cardIndex > sourcePile.size() - 1) {
+      throw new IllegalArgumentException("There is no such card.");
+    }
+    Cards sourceCard = sourcePile.get(cardIndex);
+    int count = sourcePile.size() - cardIndex;
+
+    if (count > 1) {
+      int run = source == CASCADE ? buildRun(pileNumber) : variant.buildRun(sourcePile);
+      if (run < count || count > getMaxMovableCards()) {
+        throw new IllegalArgumentException("Source cards is not a valid build.");
+      }
+      if (destination == OPEN) {
+        throw new IllegalArgumentException("You cannot move more than 1 card to an open pile.");
+      }
+      if (destination == FOUNDATION) {
+        throw new IllegalArgumentException("You didn't follow foundation pile rules.");
+      }
+    }
+
+    //the cards leave their pile first, so a move onto the same pile sees the card below them
+    List<Cards> movingCards = count == 1 ? null
+            : new ArrayList<>(sourcePile.subList(cardIndex, sourcePile.size()));
+    sourcePile.subList(cardIndex, sourcePile.size()).clear();
+    int code = sourceCard.toCode();
+    String error = null;
+    if (destination == OPEN) {
+      if (destinationPile.size() != 0) {
+        error = "This open pile already exists a card.";
+      }
+    } else if (destination == CASCADE) {
+      if (destinationPile.size() == 0 ? !variant.canFillEmptyCascade(code)
+              : !variant.canStack(code, destinationPile.get(destinationPile.size() - 1)
+              .toCode())) {
+        error = "This card cannot be moved.";
+      }
+    } else if (destinationPile.size() == 0 ? !variant.canStartFoundation(code)
+            : RuleTables.nextOnFoundation(destinationPile.get(destinationPile.size() - 1)
+            .toCode()) != code) {
+      error = "This card cannot be moved.";
+    }
+    List<Cards> target = error == null ? destinationPile : sourcePile;
+    if (movingCards == null) {
+      target.add(sourceCard);
+    } else {
+      target.addAll(movingCards);
+    }
+    if (error != null) {
+      throw new IllegalArgumentException(error);
+    }
+
+    if (isGameOver()) {
+      this.status = OVER;
+    }
+  }
+
+  /**
+   * Returns the maximum number of cards that can be moved at once under the rules of the
+   * variant, given the free open piles and empty cascade piles. The empty piles are counted as
+   * the moves are made, so this takes constant time.
+   *
+   * @return the maximum number of cards that can be moved at once
+   */
+  public int getMaxMovableCards() {
+    return variant.maxMovableCards(freeOpenCount(), emptyCascadeCount());
+  }
+
+  /**
+   * Returns the number of cards at the top of the given cascade pile that can be moved at once:
+   * the cards of the valid build at its top, up to the maximum number of cards that can be moved.
+   * The builds are kept up to date as the moves are made, so this takes constant time.
+   *
+   * @param pileNumber the cascade pile number, starting at 0
+   * @return the number of cards that can be moved from the top of the cascade pile
+   * @throws IllegalArgumentException if there is no such cascade pile
+   * @throws IllegalStateException    if the game has not started
+   */
+  public int getMovableRun(int pileNumber) throws IllegalArgumentException,
+          IllegalStateException {
+    if (this.status == NOT_STARTED) {
+      throw new IllegalStateException("The game has not started.");
+    }
+    if (pileNumber < 0 || pileNumber >= cascadesPile.size()) {
+      throw new IllegalArgumentException("There is no such pile.");
+    }
+    return Math.min(buildRun(pileNumber), getMaxMovableCards());
+  }
+
+  /**
+   * Register a listener that receives the move-applied, move-rejected and game-over events of
+   * this model on its own thread. The events are published through a preallocated ring buffer, so
+   * a slow listener never slows down {@link #move}; it skips the events it could not keep up
+   * with instead.
+   *
+   * @param listener the listener to register
+   * @throws IllegalArgumentException if the listener is null
+   */
+  public synchronized void addMoveListener(MoveListener listener)
+          throws IllegalArgumentException {
+    if (listener == null) {
+      throw new IllegalArgumentException("The listener cannot be null.");
+    }
+    MoveEventRing ring = this.events;
+    if (ring == null) {
+      ring = new MoveEventRing(EVENT_RING_CAPACITY);
+    }
+    ring.addListener(listener);
+    this.events = ring;
+  }
+
+  /**
+   * Remove a listener registered with {@link #addMoveListener(MoveListener)} and stop its thread.
+   *
+   * @param listener the listener to remove
+   */
+  public synchronized void removeMoveListener(MoveListener listener) {
+    MoveEventRing ring = this.events;
+    if (ring == null) {
+      return;
+    }
+    ring.removeListener(listener);
+    if (ring.isEmpty()) {
+      this.events = null;
+    }
+  }
+
+  /**
+   * Remove every listener registered with {@link #addMoveListener(MoveListener)} and stop their
+   * threads, so that nothing keeps this model reachable once it is dropped.
+   */
+  public synchronized void removeMoveListeners() {
+    MoveEventRing ring = this.events;
+    if (ring == null) {
+      return;
+    }
+    ring.removeAll();
+    this.events = null;
+  }
+
+  /**
+   * Returns the sequence number of the last event published to the listeners of this model, or -1
+   * if none was published since the first listener was registered. A listener that reads the game
+   * state on the thread of the player can use it to know which events that state already covers.
+   *
+   * @return the sequence number of the last published event
+   */
+  public long getEventSequence() {
+    MoveEventRing ring = this.events;
+    if (ring == null) {
+      return -1;
+    }
+    return ring.getPublished();
+  }
+
+  /**
+   * Returns this game packed into a byte array: the code of the rules, the status, the number of
+   * open and cascade piles, the length of every pile and then the code of every card, pile after
+   * pile in the order of {@link #getGameState()}. A standard game takes 72 bytes instead of the
+   * lists and cards of the model. Listeners are not part of the packed game.
+   *
+   * @return the packed game
+   * @throws IllegalStateException if there are more than 255 open or cascade piles
+   */
+  public synchronized byte[] hibernate() throws IllegalStateException {
+    if (cascadesNum > 255 || opensNum > 255) {
+      throw new IllegalStateException("This game has too many piles to be hibernated.");
+    }
+    int piles = this.status == 1 ? 0 : FOUNDATIONS + opensNum + cascadesNum;
+    int cards = 0;
+    for (int i = 0; i < piles; i++) {
+      cards = cards + pile(i).size();
+    }
+    byte[] bytes = new byte[HIBERNATED_HEADER + piles + cards];
+    bytes[0] = (byte) variant.toCode();
+    bytes[1] = (byte) this.status;
+    bytes[2] = (byte) opensNum;
+    bytes[3] = (byte) cascadesNum;
+    int at = HIBERNATED_HEADER + piles;
+    for (int i = 0; i < piles; i++) {
+      List<Cards> pile = pile(i);
+      bytes[HIBERNATED_HEADER + i] = (byte) pile.size();
+      for (int j = 0; j < pile.size(); j++) {
+        bytes[at] = (byte) pile.get(j).toCode();
+        at = at + 1;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns a model playing the game packed by {@link #hibernate()}, ready for the next move. Its
+   * deck is the deck of a new model, and only the rules of its variant are kept, not its name.
+   *
+   * @param bytes the packed game
+   * @return the model of the game
+   * @throws IllegalArgumentException if the bytes are not a packed game
+   */
+  public static AbstractFreecellModel rehydrate(byte[] bytes) throws IllegalArgumentException {
+    if (bytes == null || bytes.length < HIBERNATED_HEADER || bytes[1] < 1 || bytes[1] > 3) {
+      throw new IllegalArgumentException("These bytes are not a hibernated game.");
+    }
+    RuleVariant variant;
+    try {
+      variant = RuleVariant.fromCode(bytes[0] & 0xFF);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("These bytes are not a hibernated game.");
+    }
+    int opens = bytes[2] & 0xFF;
+    int cascades = bytes[3] & 0xFF;
+    AbstractFreecellModel model;
+    if (variant == RuleVariant.FREECELL) {
+      model = new FreecellModel(cascades, opens);
+    } else if (variant == RuleVariant.FREECELL_MULTI_MOVE) {
+      model = new FreecellMultiMoveModel(cascades, opens);
+    } else {
+      model = new VariantFreecellModel(cascades, opens, variant);
+    }
+    model.status = bytes[1];
+    if (model.status == 1) {
+      return model;
+    }
+    model.initializePiles();
+    int piles = FOUNDATIONS + opens + cascades;
+    int at = HIBERNATED_HEADER + piles;
+    try {
+      for (int i = 0; i < piles; i++) {
+        List<Cards> pile = model.pile(i);
+        int length = bytes[HIBERNATED_HEADER + i];
+        for (int j = 0; j < length; j++) {
+          pile.add(Cards.fromCode(bytes[at]));
+          at = at + 1;
+        }
+      }
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("These bytes are not a hibernated game.");
+    }
+    if (at != bytes.length) {
+      throw new IllegalArgumentException("These bytes are not a hibernated game.");
+    }
+    return model;
+  }
+
+  /**
+   * Returns an immutable snapshot of the board. Only the piles changed since the previous
+   * snapshot of this model are copied; the others are shared with it. It holds the monitor of the
+   * model, so it may be called from any thread.
+   *
+   * @return the snapshot of the board
+   */
+  public synchronized BoardSnapshot snapshot() {
+    int piles = this.status == 1 ? 0 : FOUNDATIONS + opensNum + cascadesNum;
+    byte[][] previous = lastSnapshot == null || lastSnapshot.status() == 1 ? null
+            : lastSnapshot.piles();
+    byte[][] codes = new byte[piles][];
+    for (int i = 0; i < piles; i++) {
+      if (previous != null && !changedPiles[i]) {
+        codes[i] = previous[i];
+        continue;
+      }
+      List<Cards> pile = pile(i);
+      codes[i] = new byte[pile.size()];
+      for (int j = 0; j < codes[i].length; j++) {
+        codes[i][j] = (byte) pile.get(j).toCode();
+      }
+    }
+    lastSnapshot = new BoardSnapshot(variant, this.status,
+            opensNum, cascadesNum, codes);
+    changedPiles = new boolean[piles];
+    return lastSnapshot;
+  }
+
+  /**
+   * Returns an immutable copy of the whole board, like {@link #snapshot()} but without sharing
+   * piles with it or changing which piles the next snapshot copies, so taking it leaves the model
+   * exactly as it was. It holds the monitor of the model, so it may be called from any thread.
+   *
+   * @return the copy of the board
+   */
+  public synchronized BoardSnapshot copyBoard() {
+    int piles = this.status == 1 ? 0 : FOUNDATIONS + opensNum + cascadesNum;
+    byte[][] codes = new byte[piles][];
+    for (int i = 0; i < piles; i++) {
+      List<Cards> pile = pile(i);
+      codes[i] = new byte[pile.size()];
+      for (int j = 0; j < codes[i].length; j++) {
+        codes[i][j] = (byte) pile.get(j).toCode();
+      }
+    }
+    return new BoardSnapshot(variant, this.status, opensNum, cascadesNum, codes);
+  }
+
+  /**
+   * Put the board back as it was when the given snapshot was taken.
+   *
+   * @param snapshot the snapshot to restore
+   * @throws IllegalArgumentException if the snapshot is null or was taken from a game with
+   *                                  other numbers of piles or another variant
+   */
+  public synchronized void restore(BoardSnapshot snapshot) throws IllegalArgumentException {
+    if (snapshot == null) {
+      throw new IllegalArgumentException("The snapshot passed is null.");
+    }
+    if (snapshot.getOpensNum() != opensNum || snapshot.getCascadesNum() != cascadesNum
+            || !snapshot.getVariant().sameRules(variant)) {
+      throw new IllegalArgumentException("The snapshot was taken from another kind of game.");
+    }
+    this.status = snapshot.status();
+    if (this.status == 1) {
+      lastSnapshot = null;
+      return;
+    }
+    if (foundationsPile.size() != FOUNDATIONS) {
+      initializePiles();
+    }
+    forgetPiles();
+    byte[][] codes = snapshot.piles();
+    for (int i = 0; i < codes.length; i++) {
+      List<Cards> pile = pile(i);
+      pile.clear();
+      for (byte code : codes[i]) {
+        pile.add(Cards.fromCode(code));
+      }
+    }
+    lastSnapshot = snapshot;
+    changedPiles = new boolean[codes.length];
+  }
+
+  /**
+   * Record that the given pile may change before the next snapshot.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   */
+  private void pileChanged(PileType type, int pileNumber) {
+    int count = type == FOUNDATION ? FOUNDATIONS : type == OPEN ? opensNum : cascadesNum;
+    if (type == null || pileNumber < 0 || pileNumber >= count) {
+      return;
+    }
+    changedPiles[(type == FOUNDATION ? 0 : type == OPEN ? FOUNDATIONS
+            : FOUNDATIONS + opensNum) + pileNumber] = true;
+  }
+
+  /**
+   * Returns the pile with the given index, counting the foundation piles, then the open piles
+   * and then the cascade piles.
+   *
+   * @param index the index of the pile
+   * @return the pile
+   */
+  private List<Cards> pile(int index) {
+    if (index < FOUNDATIONS) {
+      return foundationsPile.get(index);
+    }
+    if (index < FOUNDATIONS + opensNum) {
+      return opensPile.get(index - FOUNDATIONS);
+    }
+    return cascadesPile.get(index - FOUNDATIONS - opensNum);
+  }
+
+  /**
+   * Returns the number of cards in the given pile, or 0 if there is no such pile.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the number of cards in the pile
+   */
+  private int pileSize(PileType type, int pileNumber) {
+    List<List<Cards>> piles = pileTypeMap.get(type);
+    if (piles == null || pileNumber < 0 || pileNumber >= piles.size()) {
+      return 0;
+    }
+    return piles.get(pileNumber).size();
+  }
+
+  /**
+   * Returns the code of the top card of the given pile, or {@link MoveEvent#NO_CARD} if the pile
+   * is empty or there is no such pile.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the code of the top card of the pile
+   */
+  private int topCode(PileType type, int pileNumber) {
+    int size = pileSize(type, pileNumber);
+    if (size == 0) {
+      return MoveEvent.NO_CARD;
+    }
+    return pileTypeMap.get(type).get(pileNumber).get(size - 1).toCode();
+  }
+
   /**
    * Initialize the cascades, open, foundation Piles.
    */
   private void initializePiles() {
+    forgetPiles();
     cascadesPile.clear();
     opensPile.clear();
     foundationsPile.clear();
@@ -122,10 +845,9 @@ public abstract class AbstractFreecellModel implements FreecellOperations<Cards>
       opensPile.add(new ArrayList<>());
     }
 
-    foundationsPile.add(new ArrayList<>());
-    foundationsPile.add(new ArrayList<>());
-    foundationsPile.add(new ArrayList<>());
-    foundationsPile.add(new ArrayList<>());
+    for (int i = 0; i < FOUNDATIONS; i++) {
+      foundationsPile.add(new ArrayList<>());
+    }
   }
 
   /**
@@ -260,7 +982,7 @@ public abstract class AbstractFreecellModel implements FreecellOperations<Cards>
     }
     StringBuilder sb = new StringBuilder();
 
-    for (int i = 0; i < 4; i++) {
+    for (int i = 0; i < FOUNDATIONS; i++) {
       if (foundationsPile.get(i).size() == 0) {
         sb.append("F" + (i + 1) + ":\n");
       } else {
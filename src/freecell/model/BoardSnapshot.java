@@ -0,0 +1,227 @@
+package freecell.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static freecell.model.AbstractFreecellModel.FOUNDATIONS;
+
+/**
+ * This class represents an immutable snapshot of the board of a game, taken with
+ * {@link AbstractFreecellModel#snapshot()}. Every pile is kept as the codes of its cards, and a
+ * pile that did not change since the previous snapshot of the same model is shared with it rather
+ * than copied, so taking a snapshot after every move only copies the piles that move touched.
+ */
+public final class BoardSnapshot {
+
+  private final RuleVariant variant;
+  private final int status;
+  private final int opensNum;
+  private final int cascadesNum;
+  private final byte[][] piles;
+
+  /**
+   * Constructs a BoardSnapshot. The pile arrays are never modified after this.
+   *
+   * @param variant     the rules of the game
+   * @param status      the status of the game
+   * @param opensNum    the number of open piles
+   * @param cascadesNum the number of cascade piles
+   * @param piles       the codes of the cards of every pile: foundations, opens, then cascades
+   */
+  BoardSnapshot(RuleVariant variant, int status, int opensNum, int cascadesNum,
+                byte[][] piles) {
+    this.variant = variant;
+    this.status = status;
+    this.opensNum = opensNum;
+    this.cascadesNum = cascadesNum;
+    this.piles = piles;
+  }
+
+  /**
+   * Returns true if the snapshot was taken from a game that allows multi-card moves.
+   *
+   * @return true if the game allows multi-card moves
+   */
+  public boolean isMultiMove() {
+    return variant.isMultiMove();
+  }
+
+  /**
+   * Returns the rules of the game the snapshot was taken from.
+   *
+   * @return the rules of the game
+   */
+  public RuleVariant getVariant() {
+    return variant;
+  }
+
+  /**
+   * Returns true if the game was over when the snapshot was taken.
+   *
+   * @return true if the game was over
+   */
+  public boolean isGameOver() {
+    return status == AbstractFreecellModel.OVER;
+  }
+
+  /**
+   * Returns true if the game had started when the snapshot was taken.
+   *
+   * @return true if the game had started
+   */
+  public boolean isStarted() {
+    return status != AbstractFreecellModel.NOT_STARTED;
+  }
+
+  /**
+   * Returns the number of open piles.
+   *
+   * @return the number of open piles
+   */
+  public int getOpensNum() {
+    return opensNum;
+  }
+
+  /**
+   * Returns the number of cascade piles.
+   *
+   * @return the number of cascade piles
+   */
+  public int getCascadesNum() {
+    return cascadesNum;
+  }
+
+  /**
+   * Returns the number of cards in the given pile.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the number of cards in the pile
+   * @throws IllegalArgumentException if there is no such pile
+   */
+  public int getPileSize(PileType type, int pileNumber) throws IllegalArgumentException {
+    return pile(type, pileNumber).length;
+  }
+
+  /**
+   * Returns the card at the given index of the given pile.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @param cardIndex  the index of the card, starting at 0 from the bottom of the pile
+   * @return the card
+   * @throws IllegalArgumentException if there is no such pile or card
+   */
+  public Cards getCard(PileType type, int pileNumber, int cardIndex)
+          throws IllegalArgumentException {
+    byte[] pile = pile(type, pileNumber);
+    if (cardIndex < 0 || cardIndex >= pile.length) {
+      throw new IllegalArgumentException("There is no such card.");
+    }
+    return Cards.fromCode(pile[cardIndex]);
+  }
+
+  /**
+   * Returns the cards of the given pile, bottom card first.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the cards of the pile
+   * @throws IllegalArgumentException if there is no such pile
+   */
+  public List<Cards> getPile(PileType type, int pileNumber) throws IllegalArgumentException {
+    byte[] pile = pile(type, pileNumber);
+    List<Cards> cards = new ArrayList<>(pile.length);
+    for (byte code : pile) {
+      cards.add(Cards.fromCode(code));
+    }
+    return Collections.unmodifiableList(cards);
+  }
+
+  /**
+   * Returns true if the given pile holds the same cards in this snapshot and the given one. Piles
+   * shared between the two snapshots are recognized without comparing their cards.
+   *
+   * @param other      the other snapshot
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return true if the pile did not change
+   * @throws IllegalArgumentException if there is no such pile in one of the snapshots
+   */
+  public boolean isPileUnchanged(BoardSnapshot other, PileType type, int pileNumber)
+          throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("The snapshot passed is null.");
+    }
+    byte[] pile = pile(type, pileNumber);
+    byte[] otherPile = other.pile(type, pileNumber);
+    return pile == otherPile || Arrays.equals(pile, otherPile);
+  }
+
+  /**
+   * Returns the state of the game when the snapshot was taken, formatted like
+   * {@link FreecellOperations#getGameState()}.
+   *
+   * @return the formatted state of the game
+   */
+  public String getGameState() {
+    if (!isStarted()) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < piles.length; i++) {
+      if (i < FOUNDATIONS) {
+        sb.append('F').append(i + 1);
+      } else if (i < FOUNDATIONS + opensNum) {
+        sb.append('O').append(i - FOUNDATIONS + 1);
+      } else {
+        sb.append('C').append(i - FOUNDATIONS - opensNum + 1);
+      }
+      sb.append(':');
+      for (int j = 0; j < piles[i].length; j++) {
+        sb.append(j == 0 ? " " : ", ").append(Cards.fromCode(piles[i][j]));
+      }
+      sb.append('\n');
+    }
+    return sb.substring(0, sb.length() - 1);
+  }
+
+  /**
+   * Returns the codes of the cards of every pile. The arrays must not be modified.
+   *
+   * @return the codes of the cards of every pile
+   */
+  byte[][] piles() {
+    return piles;
+  }
+
+  /**
+   * Returns the status of the game when the snapshot was taken.
+   *
+   * @return the status of the game
+   */
+  int status() {
+    return status;
+  }
+
+  /**
+   * Returns the codes of the cards of the given pile.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the codes of the cards of the pile
+   * @throws IllegalArgumentException if there is no such pile
+   */
+  private byte[] pile(PileType type, int pileNumber) throws IllegalArgumentException {
+    int count = type == PileType.FOUNDATION ? FOUNDATIONS
+            : type == PileType.OPEN ? opensNum : cascadesNum;
+    if (!isStarted() || type == null || pileNumber < 0 || pileNumber >= count) {
+      throw new IllegalArgumentException("There is no such pile.");
+    }
+    int offset = type == PileType.FOUNDATION ? 0
+            : type == PileType.OPEN ? FOUNDATIONS : FOUNDATIONS + opensNum;
+    return piles[offset + pileNumber];
+  }
+}
@@ -6,8 +6,11 @@ import java.util.Objects;
  * This class represents a card with value and suit.
  */
 public class Cards {
+  private static final String[] SUITS = {"♣", "♦", "♥", "♠"};
+
   private int value;
   private String suit;
+  private int code;
 
   /**
    * Constructs a card with value and suit. The values of A, J, Q, K are 1, 11, 12, 13 and there are
@@ -26,6 +29,7 @@ public class Cards {
     }
     this.value = value;
     this.suit = suit;
+    this.code = suitIndex(suit) * 13 + value - 1;
   }
 
   @Override
@@ -57,6 +61,7 @@ public class Cards {
    */
   public void setValue(int value) {
     this.value = value;
+    this.code = -1;
   }
 
   /**
@@ -73,6 +78,51 @@ public class Cards {
    */
   public void setSuit(String suit) {
     this.suit = suit;
+    this.code = -1;
+  }
+
+  /**
+   * Returns the compact code of this card. Codes run from 0 to 51, grouped by suit in the order
+   * clubs, diamonds, hearts, spades, and by value inside each suit, so that the code of a card is
+   * 13 * suit index + value - 1. The code is kept with the card, so this only reads a field.
+   *
+   * @return the code of this card
+   */
+  public int toCode() {
+    if (code < 0) {
+      code = suitIndex(suit) * 13 + value - 1;
+    }
+    return code;
+  }
+
+  /**
+   * Returns a new card built from the given compact code.
+   *
+   * @param code the code of the card, as returned by {@link #toCode()}
+   * @return the card with this code
+   * @throws IllegalArgumentException if the code is not between 0 and 51
+   */
+  public static Cards fromCode(int code) throws IllegalArgumentException {
+    if (code < 0 || code >= 52) {
+      throw new IllegalArgumentException("Card cannot have this code.");
+    }
+    return new Cards(code % 13 + 1, SUITS[code / 13]);
+  }
+
+  /**
+   * Returns the index of the given suit in the order clubs, diamonds, hearts, spades.
+   *
+   * @param suit the suit of a card
+   * @return the index of the suit
+   * @throws IllegalArgumentException if the suit is invalid
+   */
+  static int suitIndex(String suit) throws IllegalArgumentException {
+    for (int i = 0; i < SUITS.length; i++) {
+      if (SUITS[i].equals(suit)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Card cannot have this suit.");
   }
 
   @Override
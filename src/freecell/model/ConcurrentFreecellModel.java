@@ -0,0 +1,253 @@
+package freecell.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This class represents a freecell model that can be shared by one player and many readers, like
+ * spectators, renderers or hint requests. It wraps another model: moves and new games are
+ * serialized with the write lock of a {@link StampedLock}, while reads first try an optimistic
+ * stamp and only take the read lock when a move ran at the same time. The game state is rendered
+ * at most once per move and then shared by every reader, and whether the game is over is
+ * computed by the player when it moves, so reads of either never wait for a lock.
+ */
+public class ConcurrentFreecellModel implements FreecellOperations<Cards> {
+
+  private final FreecellOperations<Cards> delegate;
+  private final StampedLock lock;
+
+  private volatile long version;
+  private volatile boolean gameOver;
+  private volatile RenderedState rendered;
+
+  /**
+   * Constructs a ConcurrentFreecellModel. The wrapped model must not be used directly any more.
+   *
+   * @param delegate the model to wrap
+   * @throws IllegalArgumentException if the model is null
+   */
+  public ConcurrentFreecellModel(FreecellOperations<Cards> delegate)
+          throws IllegalArgumentException {
+    if (delegate == null) {
+      throw new IllegalArgumentException("The model passed is null.");
+    }
+    this.delegate = delegate;
+    this.lock = new StampedLock();
+    this.gameOver = delegate.isGameOver();
+  }
+
+  @Override
+  public List<Cards> getDeck() {
+    long stamp = lock.readLock();
+    try {
+      return new ArrayList<>(delegate.getDeck());
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public void startGame(List<Cards> deck, boolean shuffle) throws IllegalArgumentException {
+    long stamp = lock.writeLock();
+    try {
+      delegate.startGame(deck, shuffle);
+    } finally {
+      changed();
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void move(PileType source, int pileNumber, int cardIndex, PileType destination,
+                   int destPileNumber) throws IllegalArgumentException, IllegalStateException {
+    long stamp = lock.writeLock();
+    try {
+      delegate.move(source, pileNumber, cardIndex, destination, destPileNumber);
+    } finally {
+      changed();
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void moveAll(List<Move> moves) throws IllegalArgumentException, IllegalStateException {
+    long stamp = lock.writeLock();
+    try {
+      delegate.moveAll(moves);
+    } finally {
+      changed();
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  @Override
+  public String getGameState() {
+    long current = version;
+    RenderedState state = rendered;
+    if (state != null && state.version == current) {
+      return state.text;
+    }
+
+    String text = null;
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      current = version;
+      try {
+        text = delegate.getGameState();
+      } catch (RuntimeException e) {
+        //a move changed the piles while they were read, the stamp is invalid
+      }
+    }
+    if (stamp == 0 || !lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        current = version;
+        text = delegate.getGameState();
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    rendered = new RenderedState(current, text);
+    return text;
+  }
+
+  /**
+   * Returns a copy of the cards of the given pile, bottom card first. The wrapped model must be
+   * an {@link AbstractFreecellModel}.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the cards of the pile
+   * @throws IllegalArgumentException if there is no such pile
+   * @throws IllegalStateException    if the game has not started or the wrapped model does not
+   *                                  expose its piles
+   */
+  public List<Cards> getPile(PileType type, int pileNumber)
+          throws IllegalArgumentException, IllegalStateException {
+    if (!(delegate instanceof AbstractFreecellModel)) {
+      throw new IllegalStateException("The wrapped model does not expose its piles.");
+    }
+    if (type == null) {
+      throw new IllegalArgumentException("There is no such pile.");
+    }
+    int[] codes = null;
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        codes = readPile(type, pileNumber);
+      } catch (RuntimeException e) {
+        if (lock.validate(stamp)) {
+          throw e;
+        }
+        //otherwise a move changed the piles while they were read
+      }
+    }
+    if (stamp == 0 || !lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        codes = readPile(type, pileNumber);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    if (codes == null) {
+      throw new IllegalArgumentException("There is no such pile.");
+    }
+    List<Cards> cards = new ArrayList<>(codes.length);
+    for (int code : codes) {
+      cards.add(Cards.fromCode(code));
+    }
+    return Collections.unmodifiableList(cards);
+  }
+
+  /**
+   * Returns true if the wrapped model exposes its piles, see {@link #getPile} and
+   * {@link #copyBoard()}.
+   *
+   * @return true if the wrapped model exposes its piles
+   */
+  public boolean exposesPiles() {
+    return delegate instanceof AbstractFreecellModel;
+  }
+
+  /**
+   * Returns an immutable copy of the board of the wrapped model, taken under the read lock. The
+   * copy leaves the snapshots of the wrapped model untouched, see
+   * {@link AbstractFreecellModel#copyBoard()}.
+   *
+   * @return the copy of the board
+   * @throws IllegalStateException if the wrapped model does not expose its piles
+   */
+  public BoardSnapshot copyBoard() throws IllegalStateException {
+    if (!(delegate instanceof AbstractFreecellModel)) {
+      throw new IllegalStateException("The wrapped model does not expose its piles.");
+    }
+    long stamp = lock.readLock();
+    try {
+      return ((AbstractFreecellModel) delegate).copyBoard();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the codes of the cards of the given pile, or null if there is no such pile.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the codes of the cards, or null
+   * @throws IllegalStateException if the game has not started
+   */
+  private int[] readPile(PileType type, int pileNumber) throws IllegalStateException {
+    AbstractFreecellModel model = (AbstractFreecellModel) delegate;
+    if (model.status == AbstractFreecellModel.NOT_STARTED) {
+      throw new IllegalStateException("The game has not started yet.");
+    }
+    List<List<Cards>> piles = model.pileTypeMap.get(type);
+    if (pileNumber < 0 || pileNumber >= piles.size()) {
+      return null;
+    }
+    List<Cards> pile = piles.get(pileNumber);
+    int[] codes = new int[pile.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = pile.get(i).toCode();
+    }
+    return codes;
+  }
+
+  /**
+   * Record that the wrapped model may have changed. Called with the write lock held.
+   */
+  private void changed() {
+    version = version + 1;
+    rendered = null;
+    gameOver = delegate.isGameOver();
+  }
+
+  /**
+   * This class represents the game state rendered for one version of the game.
+   */
+  private static final class RenderedState {
+
+    private final long version;
+    private final String text;
+
+    /**
+     * Constructs a RenderedState.
+     *
+     * @param version the version of the game
+     * @param text    the game state
+     */
+    private RenderedState(long version, String text) {
+      this.version = version;
+      this.text = text;
+    }
+  }
+}
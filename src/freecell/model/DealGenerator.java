@@ -0,0 +1,53 @@
+package freecell.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class generates the numbered deals of the classic Microsoft freecell game. A deal is
+ * returned as a deck in dealing order, so dealing it without shuffling on 8 cascade piles, as
+ * {@link FreecellOperations#startGame(List, boolean)} does round robin, lays out the well known
+ * game of that number.
+ */
+public final class DealGenerator {
+
+  private static final String[] SUITS = {"♣", "♦", "♥", "♠"};
+
+  /**
+   * This class only has static methods.
+   */
+  private DealGenerator() {
+  }
+
+  /**
+   * Returns the deck of the given deal number.
+   *
+   * @param dealNumber the number of the deal, starting at 1
+   * @return the deck of this deal, in dealing order
+   * @throws IllegalArgumentException if the deal number is less than 1
+   */
+  public static List<Cards> deal(int dealNumber) throws IllegalArgumentException {
+    if (dealNumber < 1) {
+      throw new IllegalArgumentException("The deal number should start from 1.");
+    }
+    int[] cards = new int[52];
+    for (int i = 0; i < 52; i++) {
+      cards[i] = 51 - i;
+    }
+    long seed = dealNumber;
+    for (int i = 0; i < 51; i++) {
+      seed = (seed * 214013 + 2531011) & 0x7fffffff;
+      int random = (int) (seed >> 16);
+      int j = 51 - random % (52 - i);
+      int swap = cards[i];
+      cards[i] = cards[j];
+      cards[j] = swap;
+    }
+
+    List<Cards> deck = new ArrayList<>(52);
+    for (int i = 0; i < 52; i++) {
+      deck.add(new Cards(cards[i] / 4 + 1, SUITS[cards[i] % 4]));
+    }
+    return deck;
+  }
+}
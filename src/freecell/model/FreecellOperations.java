@@ -59,6 +59,19 @@ public interface FreecellOperations<K> {
             int destPileNumber) throws IllegalArgumentException,
           IllegalStateException;
 
+  /**
+   * Apply the given moves in order as one move: either every move is applied, or the first move
+   * that is not possible is reported and the game is left exactly as it was before the first
+   * move, game over status included.
+   *
+   * @param moves the moves to apply, in order
+   * @throws IllegalArgumentException if the list or a move is null, or if one of the moves is not
+   *                                  possible
+   * @throws IllegalStateException    if one of the moves is attempted before the game has started
+   *                                  or after it is over
+   */
+  void moveAll(List<Move> moves) throws IllegalArgumentException, IllegalStateException;
+
   /**
    * Signal if the game is over or not.
    *
@@ -1,13 +1,23 @@
 package freecell.model;
 
 /**
- * This is the interface of the FreecellOperationsBuilder. It is used to receive cascades number and
- * opens number input by users and create a build.
+ * This is the interface of the FreecellOperationsBuilder. It is used to receive cascades number,
+ * opens number and the variant of the rules input by users and create a build.
  */
 public interface FreecellOperationsBuilder<K> {
   FreecellOperationsBuilder cascades(int c);
 
   FreecellOperationsBuilder opens(int o);
 
+  /**
+   * Play by the rules of the given variant, with its usual numbers of cascade and open piles
+   * unless they are set after this.
+   *
+   * @param variant the rules of the game
+   * @return this builder
+   * @throws IllegalArgumentException if the variant is null
+   */
+  FreecellOperationsBuilder<K> variant(RuleVariant variant);
+
   FreecellOperations<K> build();
 }
@@ -0,0 +1,160 @@
+package freecell.model;
+
+import java.util.Objects;
+
+/**
+ * This class represents one move of a game of freecell: the card at the given index of a source
+ * pile, with every card above it, goes to a destination pile. Piles and cards are numbered from 0
+ * like in {@link FreecellOperations#move}. A move can also be packed into a single int, which is
+ * how long lists of moves are stored without an object per move.
+ */
+public final class Move {
+
+  private static final int PILE_BITS = 6;
+  private static final int CARD_BITS = 8;
+
+  private final PileType source;
+  private final int pileNumber;
+  private final int cardIndex;
+  private final PileType destination;
+  private final int destPileNumber;
+
+  /**
+   * Constructs a Move.
+   *
+   * @param source         the type of the source pile
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @throws IllegalArgumentException if a pile type is null or a number is negative
+   */
+  public Move(PileType source, int pileNumber, int cardIndex, PileType destination,
+              int destPileNumber) throws IllegalArgumentException {
+    if (source == null || destination == null) {
+      throw new IllegalArgumentException("The pile type cannot be null.");
+    }
+    if (pileNumber < 0 || cardIndex < 0 || destPileNumber < 0) {
+      throw new IllegalArgumentException("The pile number and card index cannot be negative.");
+    }
+    this.source = source;
+    this.pileNumber = pileNumber;
+    this.cardIndex = cardIndex;
+    this.destination = destination;
+    this.destPileNumber = destPileNumber;
+  }
+
+  /**
+   * Returns the type of the source pile.
+   *
+   * @return the type of the source pile
+   */
+  public PileType getSource() {
+    return source;
+  }
+
+  /**
+   * Returns the number of the source pile, starting at 0.
+   *
+   * @return the number of the source pile
+   */
+  public int getPileNumber() {
+    return pileNumber;
+  }
+
+  /**
+   * Returns the index of the moved card in the source pile, starting at 0.
+   *
+   * @return the index of the moved card
+   */
+  public int getCardIndex() {
+    return cardIndex;
+  }
+
+  /**
+   * Returns the type of the destination pile.
+   *
+   * @return the type of the destination pile
+   */
+  public PileType getDestination() {
+    return destination;
+  }
+
+  /**
+   * Returns the number of the destination pile, starting at 0.
+   *
+   * @return the number of the destination pile
+   */
+  public int getDestPileNumber() {
+    return destPileNumber;
+  }
+
+  /**
+   * Returns this move packed into an int: the pile types take 2 bits each, the pile numbers 6
+   * bits each and the card index 8 bits.
+   *
+   * @return the packed move
+   * @throws IllegalStateException if a pile number is 64 or more or the card index is 256 or more
+   */
+  public int toCode() throws IllegalStateException {
+    if (pileNumber >= 1 << PILE_BITS || destPileNumber >= 1 << PILE_BITS
+            || cardIndex >= 1 << CARD_BITS) {
+      throw new IllegalStateException("This move is too large to be packed.");
+    }
+    return source.ordinal()
+            | pileNumber << 2
+            | cardIndex << (2 + PILE_BITS)
+            | destination.ordinal() << (2 + PILE_BITS + CARD_BITS)
+            | destPileNumber << (4 + PILE_BITS + CARD_BITS);
+  }
+
+  /**
+   * Returns the move packed into the given int by {@link #toCode()}.
+   *
+   * @param code the packed move
+   * @return the move
+   * @throws IllegalArgumentException if the code is not a packed move
+   */
+  public static Move fromCode(int code) throws IllegalArgumentException {
+    PileType[] types = PileType.values();
+    int source = code & 3;
+    int destination = (code >>> (2 + PILE_BITS + CARD_BITS)) & 3;
+    if (code < 0 || code >>> (4 + 2 * PILE_BITS + CARD_BITS) != 0
+            || source >= types.length || destination >= types.length) {
+      throw new IllegalArgumentException("This is not a packed move.");
+    }
+    return new Move(types[source], (code >>> 2) & ((1 << PILE_BITS) - 1),
+            (code >>> (2 + PILE_BITS)) & ((1 << CARD_BITS) - 1), types[destination],
+            (code >>> (4 + PILE_BITS + CARD_BITS)) & ((1 << PILE_BITS) - 1));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Move)) {
+      return false;
+    }
+    Move that = (Move) o;
+    return source == that.source && pileNumber == that.pileNumber
+            && cardIndex == that.cardIndex && destination == that.destination
+            && destPileNumber == that.destPileNumber;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(source, pileNumber, cardIndex, destination, destPileNumber);
+  }
+
+  /**
+   * Returns this move as typed to the controller, like "C1 7 F1".
+   *
+   * @return the move as typed to the controller
+   */
+  @Override
+  public String toString() {
+    return source.name().charAt(0) + String.valueOf(pileNumber + 1) + " " + (cardIndex + 1)
+            + " " + destination.name().charAt(0) + (destPileNumber + 1);
+  }
+}
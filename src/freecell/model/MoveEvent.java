@@ -0,0 +1,177 @@
+package freecell.model;
+
+/**
+ * This class represents an event published by a freecell model when a move is applied, when a move
+ * is rejected or when the game is over. Events are mutable and reused: the model writes them into
+ * preallocated slots and every listener reads them through its own reusable copy.
+ */
+public final class MoveEvent {
+
+  /**
+   * Type for the kinds of events a model publishes.
+   */
+  public enum Type {
+    APPLIED, REJECTED, GAME_OVER
+  }
+
+  /**
+   * The code used for the top card of a pile when that pile is empty.
+   */
+  public static final int NO_CARD = -1;
+
+  volatile long sequence;
+  private Type type;
+  private PileType source;
+  private int pileNumber;
+  private int cardIndex;
+  private PileType destination;
+  private int destPileNumber;
+  private int cardsMoved;
+  private int sourceTop;
+  private int destinationTop;
+  private String message;
+
+  /**
+   * Constructs an empty MoveEvent that has not been published yet.
+   */
+  MoveEvent() {
+    this.sequence = -1;
+  }
+
+  /**
+   * Overwrite all the fields of this event.
+   */
+  void set(Type type, PileType source, int pileNumber, int cardIndex, PileType destination,
+           int destPileNumber, int cardsMoved, int sourceTop, int destinationTop,
+           String message) {
+    this.type = type;
+    this.source = source;
+    this.pileNumber = pileNumber;
+    this.cardIndex = cardIndex;
+    this.destination = destination;
+    this.destPileNumber = destPileNumber;
+    this.cardsMoved = cardsMoved;
+    this.sourceTop = sourceTop;
+    this.destinationTop = destinationTop;
+    this.message = message;
+  }
+
+  /**
+   * Copy all the fields of the given event into this event.
+   *
+   * @param other the event to copy
+   */
+  void copyFrom(MoveEvent other) {
+    set(other.type, other.source, other.pileNumber, other.cardIndex, other.destination,
+            other.destPileNumber, other.cardsMoved, other.sourceTop, other.destinationTop,
+            other.message);
+  }
+
+  /**
+   * Returns the sequence number of this event. Sequence numbers start at 0 and grow by one for
+   * every event of a model, so a listener that fell too far behind sees a gap.
+   *
+   * @return the sequence number of this event
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Returns the type of this event.
+   *
+   * @return the type of this event
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the type of the source pile of the move.
+   *
+   * @return the type of the source pile
+   */
+  public PileType getSource() {
+    return source;
+  }
+
+  /**
+   * Returns the pile number of the source pile of the move, starting at 0.
+   *
+   * @return the pile number of the source pile
+   */
+  public int getPileNumber() {
+    return pileNumber;
+  }
+
+  /**
+   * Returns the index of the first moved card in the source pile, starting at 0.
+   *
+   * @return the index of the first moved card
+   */
+  public int getCardIndex() {
+    return cardIndex;
+  }
+
+  /**
+   * Returns the type of the destination pile of the move.
+   *
+   * @return the type of the destination pile
+   */
+  public PileType getDestination() {
+    return destination;
+  }
+
+  /**
+   * Returns the pile number of the destination pile of the move, starting at 0.
+   *
+   * @return the pile number of the destination pile
+   */
+  public int getDestPileNumber() {
+    return destPileNumber;
+  }
+
+  /**
+   * Returns the number of cards moved, or 0 if the move was rejected.
+   *
+   * @return the number of cards moved
+   */
+  public int getCardsMoved() {
+    return cardsMoved;
+  }
+
+  /**
+   * Returns the code of the top card of the source pile after the move, or {@link #NO_CARD} if the
+   * pile is empty. See {@link Cards#toCode()}.
+   *
+   * @return the code of the top card of the source pile
+   */
+  public int getSourceTop() {
+    return sourceTop;
+  }
+
+  /**
+   * Returns the code of the top card of the destination pile after the move, or {@link #NO_CARD}
+   * if the pile is empty. See {@link Cards#toCode()}.
+   *
+   * @return the code of the top card of the destination pile
+   */
+  public int getDestinationTop() {
+    return destinationTop;
+  }
+
+  /**
+   * Returns the reason a move was rejected, or null for other events.
+   *
+   * @return the reason a move was rejected
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return type + " #" + sequence + " " + source + (pileNumber + 1) + " " + (cardIndex + 1)
+            + " " + destination + (destPileNumber + 1);
+  }
+}
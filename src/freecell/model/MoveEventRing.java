@@ -0,0 +1,221 @@
+package freecell.model;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class represents a preallocated single-producer ring buffer of move events. The model
+ * writes events into reusable slots without locking or allocating and never waits for listeners.
+ * Every listener runs on its own thread, copies each slot into its own reusable event and checks
+ * the slot was not overwritten while it was being copied. A listener that falls more than a full
+ * ring behind skips the events it missed, which it can see as a gap in the sequence numbers.
+ * An idle listener spins, then yields and then parks until the model publishes again, so a quiet
+ * game costs its listeners no wake-ups.
+ */
+final class MoveEventRing {
+
+  private static final int SPINS = 100;
+  private static final int YIELDS = 100;
+  private static final Consumer[] NO_CONSUMERS = new Consumer[0];
+
+  private final MoveEvent[] slots;
+  private final int mask;
+  private volatile Consumer[] consumers;
+
+  private volatile long published;
+
+  /**
+   * Constructs a MoveEventRing with the given capacity, rounded up to a power of two.
+   *
+   * @param capacity the number of events kept for listeners that fall behind
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  MoveEventRing(int capacity) throws IllegalArgumentException {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity of the ring must be positive.");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size = size << 1;
+    }
+    this.slots = new MoveEvent[size];
+    for (int i = 0; i < size; i++) {
+      slots[i] = new MoveEvent();
+    }
+    this.mask = size - 1;
+    this.consumers = NO_CONSUMERS;
+    this.published = -1;
+  }
+
+  /**
+   * Returns true if no listener is registered.
+   *
+   * @return true if no listener is registered
+   */
+  boolean isEmpty() {
+    return consumers.length == 0;
+  }
+
+  /**
+   * Returns the sequence number of the last published event, or -1 if there is none.
+   *
+   * @return the sequence number of the last published event
+   */
+  long getPublished() {
+    return published;
+  }
+
+  /**
+   * Start a new thread that delivers the events published from now on to the given listener.
+   *
+   * @param listener the listener to register
+   */
+  synchronized void addListener(MoveListener listener) {
+    Consumer consumer = new Consumer(listener, published + 1);
+    Consumer[] added = Arrays.copyOf(consumers, consumers.length + 1);
+    added[consumers.length] = consumer;
+    consumers = added;
+    consumer.thread.start();
+  }
+
+  /**
+   * Stop delivering events to the given listener and let its thread finish.
+   *
+   * @param listener the listener to remove
+   */
+  synchronized void removeListener(MoveListener listener) {
+    Consumer[] kept = new Consumer[consumers.length];
+    int count = 0;
+    for (Consumer consumer : consumers) {
+      if (consumer.listener == listener) {
+        consumer.running = false;
+        LockSupport.unpark(consumer.thread);
+      } else {
+        kept[count] = consumer;
+        count = count + 1;
+      }
+    }
+    consumers = count == 0 ? NO_CONSUMERS : Arrays.copyOf(kept, count);
+  }
+
+  /**
+   * Stop delivering events to every listener and let their threads finish.
+   */
+  synchronized void removeAll() {
+    for (Consumer consumer : consumers) {
+      consumer.running = false;
+      LockSupport.unpark(consumer.thread);
+    }
+    consumers = NO_CONSUMERS;
+  }
+
+  /**
+   * Write an event into the next slot, make it visible to the listeners and wake up the listeners
+   * that are parked. Only one thread may publish at a time.
+   */
+  void publish(MoveEvent.Type type, PileType source, int pileNumber, int cardIndex,
+               PileType destination, int destPileNumber, int cardsMoved, int sourceTop,
+               int destinationTop, String message) {
+    long sequence = published + 1;
+    MoveEvent slot = slots[(int) sequence & mask];
+    slot.sequence = -1;
+    VarHandle.storeStoreFence();
+    slot.set(type, source, pileNumber, cardIndex, destination, destPileNumber, cardsMoved,
+            sourceTop, destinationTop, message);
+    slot.sequence = sequence;
+    published = sequence;
+    for (Consumer consumer : consumers) {
+      if (consumer.parked) {
+        LockSupport.unpark(consumer.thread);
+      }
+    }
+  }
+
+  /**
+   * This class represents the reading side of one listener.
+   */
+  private final class Consumer implements Runnable {
+
+    private final MoveListener listener;
+    private final MoveEvent event;
+    private final Thread thread;
+    private long next;
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    /**
+     * Constructs a Consumer that starts reading at the given sequence number.
+     *
+     * @param listener the listener to call
+     * @param next     the sequence number of the first event to deliver
+     */
+    private Consumer(MoveListener listener, long next) {
+      this.listener = listener;
+      this.event = new MoveEvent();
+      this.next = next;
+      this.running = true;
+      this.thread = new Thread(this, "freecell-move-listener");
+      this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      int idle = 0;
+      while (running) {
+        long available = published;
+        if (next > available) {
+          idle = idle(idle);
+          continue;
+        }
+        idle = 0;
+        if (available - next > mask) {
+          next = available - mask;
+        }
+        MoveEvent slot = slots[(int) next & mask];
+        if (slot.sequence != next) {
+          next = next + 1;
+          continue;
+        }
+        event.copyFrom(slot);
+        VarHandle.acquireFence();
+        if (slot.sequence != next) {
+          next = next + 1;
+          continue;
+        }
+        event.sequence = next;
+        next = next + 1;
+        try {
+          listener.onMoveEvent(event);
+        } catch (RuntimeException e) {
+          //a failing listener must not stop the events of the other listeners
+        }
+      }
+    }
+
+    /**
+     * Wait for the next event, spinning first, then yielding and at last parking until the next
+     * event is published or the listener is removed. The consumer says it is parked before it
+     * checks for an event one last time, and the model publishes before it checks for parked
+     * consumers, so one of them always sees the other and no wake-up is lost.
+     *
+     * @param idle how many times this consumer already waited in a row
+     * @return the new number of waits in a row
+     */
+    private int idle(int idle) {
+      if (idle < SPINS) {
+        Thread.onSpinWait();
+      } else if (idle < SPINS + YIELDS) {
+        Thread.yield();
+      } else {
+        parked = true;
+        if (published < next && running) {
+          LockSupport.park(this);
+        }
+        parked = false;
+        return idle;
+      }
+      return idle + 1;
+    }
+  }
+}
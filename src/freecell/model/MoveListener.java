@@ -0,0 +1,18 @@
+package freecell.model;
+
+/**
+ * This is the interface of a listener that reacts to the moves of a freecell game. Listeners are
+ * registered on a model with {@link AbstractFreecellModel#addMoveListener(MoveListener)} and are
+ * called on their own thread, never on the thread of the player who moves the cards.
+ */
+public interface MoveListener {
+
+  /**
+   * Called for every event published by the model, in the order the events happened. The event
+   * object is reused for the next event, so a listener that needs to keep it must copy what it
+   * needs before returning.
+   *
+   * @param event the event that happened
+   */
+  void onMoveEvent(MoveEvent event);
+}
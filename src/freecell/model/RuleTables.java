@@ -0,0 +1,41 @@
+package freecell.model;
+
+/**
+ * This class represents the foundation rule shared by every variant compiled into a table indexed
+ * by card code, as returned by {@link Cards#toCode()}: {@code NEXT_FOUNDATION[card]} is the card
+ * that goes on top of it on a foundation, so the check is one array read instead of comparing
+ * suits and values. The stacking rules of the cascades depend on the variant and are compiled by
+ * {@link RuleVariant} instead.
+ */
+public final class RuleTables {
+
+  /**
+   * The code of no card, what {@link #nextOnFoundation(int)} returns for a king.
+   */
+  public static final int NO_CARD = -1;
+
+  private static final int[] NEXT_FOUNDATION = new int[52];
+
+  static {
+    for (int card = 0; card < 52; card++) {
+      NEXT_FOUNDATION[card] = card % 13 == 12 ? NO_CARD : card + 1;
+    }
+  }
+
+  /**
+   * This class only has static methods.
+   */
+  private RuleTables() {
+  }
+
+  /**
+   * Returns the code of the card that goes on top of the given card on a foundation, the next
+   * value of the same suit, or {@link #NO_CARD} for a king.
+   *
+   * @param card the code of the card on top of the foundation
+   * @return the code of the next card, or {@link #NO_CARD}
+   */
+  public static int nextOnFoundation(int card) {
+    return NEXT_FOUNDATION[card];
+  }
+}
@@ -0,0 +1,578 @@
+package freecell.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class represents the rules of a variant of freecell as data: how cards build on the
+ * cascade piles, which cards may fill an empty cascade pile, which cards may start a foundation
+ * pile, how many cards can be moved at once and the usual numbers of piles. The rules are
+ * compiled into tables indexed by card code when the variant is built, and every model plays its
+ * moves through the same path reading these tables. Variants are immutable and built with
+ * {@link #getBuilder()}, or taken from the constants of the well-known variants.
+ *
+ * <p>Every variant deals one deck of 52 cards into the cascade piles and has one foundation pile
+ * per suit, so the numbers of cards and foundation piles are not part of the data.
+ */
+public final class RuleVariant {
+
+  /**
+   * Type for how cards build on the cascade piles.
+   */
+  public enum BuildRule {
+    /**
+     * A card goes on the card one value higher of the other color.
+     */
+    ALTERNATE_COLORS,
+    /**
+     * A card goes on the card one value higher of the same suit.
+     */
+    SAME_SUIT,
+    /**
+     * A card goes on the card one value higher of any suit.
+     */
+    ANY_SUIT
+  }
+
+  /**
+   * Type for which cards may fill an empty cascade pile.
+   */
+  public enum EmptyCascadeRule {
+    /**
+     * Any card or build.
+     */
+    ANY_CARD,
+    /**
+     * Only a king or a build starting with a king.
+     */
+    KINGS_ONLY,
+    /**
+     * Nothing, an empty cascade pile stays empty.
+     */
+    NONE
+  }
+
+  /**
+   * Type for how many cards can be moved at once, with N free open piles and K empty cascade
+   * piles.
+   */
+  public enum SupermovePolicy {
+    /**
+     * One card at a time, always the top card of its pile.
+     */
+    SINGLE_CARD,
+    /**
+     * Up to (N + 1) * 2 ^ K cards of a valid build.
+     */
+    FREE_PILES,
+    /**
+     * Up to N + 1 cards of a valid build.
+     */
+    FREE_OPENS
+  }
+
+  /**
+   * The rules of {@link FreecellModel}: alternate colors, any card on an empty cascade or
+   * foundation pile, one card at a time.
+   */
+  public static final RuleVariant FREECELL = new RuleVariant("freecell",
+          BuildRule.ALTERNATE_COLORS, EmptyCascadeRule.ANY_CARD, SupermovePolicy.SINGLE_CARD,
+          false, 8, 4);
+
+  /**
+   * The rules of {@link FreecellMultiMoveModel}: the rules of {@link #FREECELL} with moves of
+   * whole builds.
+   */
+  public static final RuleVariant FREECELL_MULTI_MOVE = new RuleVariant("freecell-multi-move",
+          BuildRule.ALTERNATE_COLORS, EmptyCascadeRule.ANY_CARD, SupermovePolicy.FREE_PILES,
+          false, 8, 4);
+
+  /**
+   * Baker's Game: freecell building by suit.
+   */
+  public static final RuleVariant BAKERS_GAME = new RuleVariant("bakers-game",
+          BuildRule.SAME_SUIT, EmptyCascadeRule.ANY_CARD, SupermovePolicy.FREE_PILES, true, 8,
+          4);
+
+  /**
+   * Eight Off: eight open piles, building by suit and only kings on empty cascade piles.
+   */
+  public static final RuleVariant EIGHT_OFF = new RuleVariant("eight-off",
+          BuildRule.SAME_SUIT, EmptyCascadeRule.KINGS_ONLY, SupermovePolicy.FREE_OPENS, true, 8,
+          8);
+
+  /**
+   * Seahaven Towers: ten cascade piles, building by suit and only kings on empty cascade piles.
+   */
+  public static final RuleVariant SEAHAVEN = new RuleVariant("seahaven",
+          BuildRule.SAME_SUIT, EmptyCascadeRule.KINGS_ONLY, SupermovePolicy.FREE_OPENS, true, 10,
+          4);
+
+  private static final int CARDS = 52;
+
+  private final String name;
+  private final BuildRule buildRule;
+  private final EmptyCascadeRule emptyCascadeRule;
+  private final SupermovePolicy supermovePolicy;
+  private final boolean acesStartFoundations;
+  private final int cascades;
+  private final int opens;
+
+  private final long[] canStack;
+  private final long emptyCascadeCards;
+  private final long emptyFoundationCards;
+
+  /**
+   * Constructs a RuleVariant and compiles its tables.
+   *
+   * @param name                 the name of the variant
+   * @param buildRule            how cards build on the cascade piles
+   * @param emptyCascadeRule     which cards may fill an empty cascade pile
+   * @param supermovePolicy      how many cards can be moved at once
+   * @param acesStartFoundations true if only aces may start a foundation pile, false if any card
+   *                             may
+   * @param cascades             the usual number of cascade piles
+   * @param opens                the usual number of open piles
+   */
+  private RuleVariant(String name, BuildRule buildRule, EmptyCascadeRule emptyCascadeRule,
+                      SupermovePolicy supermovePolicy, boolean acesStartFoundations,
+                      int cascades, int opens) {
+    this.name = name;
+    this.buildRule = buildRule;
+    this.emptyCascadeRule = emptyCascadeRule;
+    this.supermovePolicy = supermovePolicy;
+    this.acesStartFoundations = acesStartFoundations;
+    this.cascades = cascades;
+    this.opens = opens;
+
+    this.canStack = new long[CARDS];
+    long emptyCascade = 0;
+    long emptyFoundation = 0;
+    for (int card = 0; card < CARDS; card++) {
+      for (int under = 0; under < CARDS; under++) {
+        if (under % 13 == card % 13 + 1 && builds(card / 13, under / 13)) {
+          canStack[card] |= 1L << under;
+        }
+      }
+      if (emptyCascadeRule == EmptyCascadeRule.ANY_CARD
+              || emptyCascadeRule == EmptyCascadeRule.KINGS_ONLY && card % 13 == 12) {
+        emptyCascade |= 1L << card;
+      }
+      if (!acesStartFoundations || card % 13 == 0) {
+        emptyFoundation |= 1L << card;
+      }
+    }
+    this.emptyCascadeCards = emptyCascade;
+    this.emptyFoundationCards = emptyFoundation;
+  }
+
+  /**
+   * Returns true if a card of the given suit builds on a card of the other suit.
+   *
+   * @param suit  the index of the suit of the card put on top
+   * @param under the index of the suit of the card below
+   * @return true if the suits build
+   */
+  private boolean builds(int suit, int under) {
+    switch (buildRule) {
+      case ALTERNATE_COLORS:
+        return (suit == 1 || suit == 2) != (under == 1 || under == 2);
+      case SAME_SUIT:
+        return suit == under;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Returns a new builder of variants, starting from the rules of {@link #FREECELL_MULTI_MOVE}.
+   *
+   * @return a new builder of variants
+   */
+  public static Builder getBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the name of the variant.
+   *
+   * @return the name of the variant
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns how cards build on the cascade piles.
+   *
+   * @return how cards build on the cascade piles
+   */
+  public BuildRule getBuildRule() {
+    return buildRule;
+  }
+
+  /**
+   * Returns which cards may fill an empty cascade pile.
+   *
+   * @return which cards may fill an empty cascade pile
+   */
+  public EmptyCascadeRule getEmptyCascadeRule() {
+    return emptyCascadeRule;
+  }
+
+  /**
+   * Returns how many cards can be moved at once.
+   *
+   * @return how many cards can be moved at once
+   */
+  public SupermovePolicy getSupermovePolicy() {
+    return supermovePolicy;
+  }
+
+  /**
+   * Returns true if only aces may start a foundation pile, false if any card may.
+   *
+   * @return true if only aces may start a foundation pile
+   */
+  public boolean isAcesStartFoundations() {
+    return acesStartFoundations;
+  }
+
+  /**
+   * Returns the usual number of cascade piles of the variant.
+   *
+   * @return the usual number of cascade piles
+   */
+  public int getCascades() {
+    return cascades;
+  }
+
+  /**
+   * Returns the usual number of open piles of the variant.
+   *
+   * @return the usual number of open piles
+   */
+  public int getOpens() {
+    return opens;
+  }
+
+  /**
+   * Returns true if the variant allows moving more than one card at once.
+   *
+   * @return true if the variant allows multi-card moves
+   */
+  public boolean isMultiMove() {
+    return supermovePolicy != SupermovePolicy.SINGLE_CARD;
+  }
+
+  /**
+   * Returns true if the variant plays by the rules of {@link #FREECELL} or
+   * {@link #FREECELL_MULTI_MOVE}, whatever its numbers of piles. Only these rules are followed by
+   * the solver.
+   *
+   * @return true if the variant follows the freecell rules
+   */
+  public boolean isFreecell() {
+    return buildRule == BuildRule.ALTERNATE_COLORS
+            && emptyCascadeRule == EmptyCascadeRule.ANY_CARD
+            && supermovePolicy != SupermovePolicy.FREE_OPENS && !acesStartFoundations;
+  }
+
+  /**
+   * Returns true if the given card can be put on the other card of a cascade pile.
+   *
+   * @param card  the code of the card put on top
+   * @param under the code of the card below
+   * @return true if the card stacks on the other
+   */
+  public boolean canStack(int card, int under) {
+    return (canStack[card] >>> under & 1) != 0;
+  }
+
+  /**
+   * Returns true if the given card, alone or at the bottom of a build, can fill an empty cascade
+   * pile.
+   *
+   * @param card the code of the card
+   * @return true if the card can fill an empty cascade pile
+   */
+  public boolean canFillEmptyCascade(int card) {
+    return (emptyCascadeCards >>> card & 1) != 0;
+  }
+
+  /**
+   * Returns true if the given card can start an empty foundation pile.
+   *
+   * @param card the code of the card
+   * @return true if the card can start a foundation pile
+   */
+  public boolean canStartFoundation(int card) {
+    return (emptyFoundationCards >>> card & 1) != 0;
+  }
+
+  /**
+   * Returns the maximum number of cards that can be moved at once.
+   *
+   * @param freeOpens     the number of free open piles
+   * @param emptyCascades the number of empty cascade piles
+   * @return the maximum number of cards that can be moved at once
+   */
+  public int maxMovableCards(int freeOpens, int emptyCascades) {
+    switch (supermovePolicy) {
+      case SINGLE_CARD:
+        return 1;
+      case FREE_OPENS:
+        return freeOpens + 1;
+      default:
+        long max = (long) (freeOpens + 1) << Math.min(emptyCascades, 32);
+        return (int) Math.min(max, Integer.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Returns the number of cards at the top of the given pile that form a valid build of this
+   * variant, or 0 if the pile is empty.
+   *
+   * @param pile the pile
+   * @return the length of the build at the top of the pile
+   */
+  public int buildRun(List<Cards> pile) {
+    int top = pile.size() - 1;
+    if (top < 0) {
+      return 0;
+    }
+    int run = 1;
+    int card = pile.get(top).toCode();
+    for (int i = top - 1; i >= 0; i--) {
+      int under = pile.get(i).toCode();
+      if (!canStack(card, under)) {
+        break;
+      }
+      card = under;
+      run = run + 1;
+    }
+    return run;
+  }
+
+  /**
+   * Returns the code of the rules of this variant, one byte: 0 for {@link #FREECELL}, 1 for
+   * {@link #FREECELL_MULTI_MOVE} and above 1 for the other rules. The name and numbers of piles
+   * are not part of the code.
+   *
+   * @return the code of the rules
+   */
+  int toCode() {
+    if (sameRules(FREECELL)) {
+      return 0;
+    }
+    if (sameRules(FREECELL_MULTI_MOVE)) {
+      return 1;
+    }
+    return 2 + (buildRule.ordinal() | emptyCascadeRule.ordinal() << 2
+            | supermovePolicy.ordinal() << 4 | (acesStartFoundations ? 1 : 0) << 6);
+  }
+
+  /**
+   * Returns the variant with the given code of rules, as returned by {@link #toCode()}.
+   *
+   * @param code the code of the rules
+   * @return the variant
+   * @throws IllegalArgumentException if the code is not the code of any rules
+   */
+  static RuleVariant fromCode(int code) throws IllegalArgumentException {
+    if (code == 0) {
+      return FREECELL;
+    }
+    if (code == 1) {
+      return FREECELL_MULTI_MOVE;
+    }
+    int bits = code - 2;
+    if (bits < 0 || bits >= 1 << 7 || (bits & 3) > 2 || (bits >> 2 & 3) > 2
+            || (bits >> 4 & 3) > 2) {
+      throw new IllegalArgumentException("There is no variant with this code.");
+    }
+    return new RuleVariant("custom", BuildRule.values()[bits & 3],
+            EmptyCascadeRule.values()[bits >> 2 & 3], SupermovePolicy.values()[bits >> 4 & 3],
+            (bits >> 6 & 1) == 1, 8, 4);
+  }
+
+  /**
+   * Returns true if the given variant has the same rules as this one, whatever its name and
+   * numbers of piles.
+   *
+   * @param other the other variant
+   * @return true if the rules are the same
+   */
+  public boolean sameRules(RuleVariant other) {
+    return other != null && buildRule == other.buildRule
+            && emptyCascadeRule == other.emptyCascadeRule
+            && supermovePolicy == other.supermovePolicy
+            && acesStartFoundations == other.acesStartFoundations;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RuleVariant variant = (RuleVariant) o;
+    return sameRules(variant) && name.equals(variant.name) && cascades == variant.cascades
+            && opens == variant.opens;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, buildRule, emptyCascadeRule, supermovePolicy,
+            acesStartFoundations, cascades, opens);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  /**
+   * This class represents a builder of variants. Every setting starts from the rules of
+   * {@link #FREECELL_MULTI_MOVE}.
+   */
+  public static final class Builder {
+
+    private String name;
+    private BuildRule buildRule;
+    private EmptyCascadeRule emptyCascadeRule;
+    private SupermovePolicy supermovePolicy;
+    private boolean acesStartFoundations;
+    private int cascades;
+    private int opens;
+
+    /**
+     * Constructs a Builder with the rules of {@link #FREECELL_MULTI_MOVE}.
+     */
+    private Builder() {
+      this.name = "custom";
+      this.buildRule = BuildRule.ALTERNATE_COLORS;
+      this.emptyCascadeRule = EmptyCascadeRule.ANY_CARD;
+      this.supermovePolicy = SupermovePolicy.FREE_PILES;
+      this.acesStartFoundations = false;
+      this.cascades = 8;
+      this.opens = 4;
+    }
+
+    /**
+     * Set the name of the variant.
+     *
+     * @param name the name of the variant
+     * @return this builder
+     * @throws IllegalArgumentException if the name is null or empty
+     */
+    public Builder name(String name) throws IllegalArgumentException {
+      if (name == null || name.isEmpty()) {
+        throw new IllegalArgumentException("The name cannot be null or empty.");
+      }
+      this.name = name;
+      return this;
+    }
+
+    /**
+     * Set how cards build on the cascade piles.
+     *
+     * @param buildRule how cards build on the cascade piles
+     * @return this builder
+     * @throws IllegalArgumentException if the rule is null
+     */
+    public Builder buildRule(BuildRule buildRule) throws IllegalArgumentException {
+      if (buildRule == null) {
+        throw new IllegalArgumentException("The build rule cannot be null.");
+      }
+      this.buildRule = buildRule;
+      return this;
+    }
+
+    /**
+     * Set which cards may fill an empty cascade pile.
+     *
+     * @param emptyCascadeRule which cards may fill an empty cascade pile
+     * @return this builder
+     * @throws IllegalArgumentException if the rule is null
+     */
+    public Builder emptyCascadeRule(EmptyCascadeRule emptyCascadeRule)
+            throws IllegalArgumentException {
+      if (emptyCascadeRule == null) {
+        throw new IllegalArgumentException("The empty cascade rule cannot be null.");
+      }
+      this.emptyCascadeRule = emptyCascadeRule;
+      return this;
+    }
+
+    /**
+     * Set how many cards can be moved at once.
+     *
+     * @param supermovePolicy how many cards can be moved at once
+     * @return this builder
+     * @throws IllegalArgumentException if the policy is null
+     */
+    public Builder supermovePolicy(SupermovePolicy supermovePolicy)
+            throws IllegalArgumentException {
+      if (supermovePolicy == null) {
+        throw new IllegalArgumentException("The supermove policy cannot be null.");
+      }
+      this.supermovePolicy = supermovePolicy;
+      return this;
+    }
+
+    /**
+     * Set whether only aces may start a foundation pile.
+     *
+     * @param acesStartFoundations true if only aces may start a foundation pile, false if any
+     *                             card may
+     * @return this builder
+     */
+    public Builder acesStartFoundations(boolean acesStartFoundations) {
+      this.acesStartFoundations = acesStartFoundations;
+      return this;
+    }
+
+    /**
+     * Set the usual number of cascade piles.
+     *
+     * @param cascades the usual number of cascade piles
+     * @return this builder
+     * @throws IllegalArgumentException if the number is less than 4
+     */
+    public Builder cascades(int cascades) throws IllegalArgumentException {
+      if (cascades < 4) {
+        throw new IllegalArgumentException("The number of cascades piles can't be less than 4.");
+      }
+      this.cascades = cascades;
+      return this;
+    }
+
+    /**
+     * Set the usual number of open piles.
+     *
+     * @param opens the usual number of open piles
+     * @return this builder
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public Builder opens(int opens) throws IllegalArgumentException {
+      if (opens < 1) {
+        throw new IllegalArgumentException("The number of opens piles can't be less than 1.");
+      }
+      this.opens = opens;
+      return this;
+    }
+
+    /**
+     * Returns the variant with the rules set, its tables compiled.
+     *
+     * @return the variant
+     */
+    public RuleVariant build() {
+      return new RuleVariant(name, buildRule, emptyCascadeRule, supermovePolicy,
+              acesStartFoundations, cascades, opens);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package freecell.model;
+
+/**
+ * This class represents a model of any variant of freecell, like Baker's Game, Eight Off or
+ * Seahaven Towers, playing by the rules of the given {@link RuleVariant}. Every game is dealt from
+ * one deck into the cascade piles, with the open piles empty.
+ */
+public class VariantFreecellModel extends AbstractFreecellModel {
+
+  /**
+   * Constructs a VariantFreecellModel.
+   *
+   * @param cascadesNum the users' input for the number of this cascades pile
+   * @param opensNum    the users' input for the number of this open pile
+   * @param variant     the rules of the game
+   * @throws IllegalArgumentException if the variant is null
+   */
+  public VariantFreecellModel(int cascadesNum, int opensNum, RuleVariant variant)
+          throws IllegalArgumentException {
+    super(cascadesNum, opensNum, variant);
+  }
+
+  /**
+   * Returns the a new builder of models with the rules and the usual numbers of piles of the given
+   * variant.
+   *
+   * @param variant the rules of the game
+   * @return the a new builder of models
+   * @throws IllegalArgumentException if the variant is null
+   */
+  public static FreecellOperationsBuilder<Cards> getBuilder(RuleVariant variant)
+          throws IllegalArgumentException {
+    if (variant == null) {
+      throw new IllegalArgumentException("The variant passed is null.");
+    }
+    return new VariantModelBuilder(variant);
+  }
+}
@@ -0,0 +1,67 @@
+package freecell.model;
+
+/**
+ * This class represents the builder shared by every model, which is used mainly for receive users'
+ * input about the numbers of cascades piles and open piles and the variant of the rules, and
+ * create the model: a {@link FreecellModel} or a {@link FreecellMultiMoveModel} for their rules
+ * and a {@link VariantFreecellModel} for any other rules.
+ */
+final class VariantModelBuilder implements FreecellOperationsBuilder<Cards> {
+
+  private int cascadesNum;
+  private int opensNum;
+  private RuleVariant variant;
+
+  /**
+   * Constructs a VariantModelBuilder and initialize the numbers of cascades piles and open piles
+   * with the usual numbers of the given variant.
+   *
+   * @param variant the rules of the models built
+   */
+  VariantModelBuilder(RuleVariant variant) {
+    this.variant = variant;
+    this.cascadesNum = variant.getCascades();
+    this.opensNum = variant.getOpens();
+  }
+
+  @Override
+  public FreecellOperationsBuilder<Cards> cascades(int c) throws IllegalArgumentException {
+    if (c < 4) {
+      throw new IllegalArgumentException("The number of cascades piles can't be less than 4.");
+    }
+    cascadesNum = c;
+    return this;
+  }
+
+  @Override
+  public FreecellOperationsBuilder<Cards> opens(int o) throws IllegalArgumentException {
+    if (o < 1) {
+      throw new IllegalArgumentException("The number of opens piles can't be less than 1.");
+    }
+    opensNum = o;
+    return this;
+  }
+
+  @Override
+  public FreecellOperationsBuilder<Cards> variant(RuleVariant variant)
+          throws IllegalArgumentException {
+    if (variant == null) {
+      throw new IllegalArgumentException("The variant passed is null.");
+    }
+    this.variant = variant;
+    this.cascadesNum = variant.getCascades();
+    this.opensNum = variant.getOpens();
+    return this;
+  }
+
+  @Override
+  public FreecellOperations<Cards> build() {
+    if (variant.sameRules(RuleVariant.FREECELL)) {
+      return new FreecellModel(cascadesNum, opensNum);
+    }
+    if (variant.sameRules(RuleVariant.FREECELL_MULTI_MOVE)) {
+      return new FreecellMultiMoveModel(cascadesNum, opensNum);
+    }
+    return new VariantFreecellModel(cascadesNum, opensNum, variant);
+  }
+}
@@ -0,0 +1,517 @@
+package freecell.server;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import freecell.controller.CommandToken;
+import freecell.controller.MoveCommandProtocol;
+import freecell.model.Cards;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+
+/**
+ * This class represents an event-driven server that hosts many games of freecell on one thread.
+ * It is an alternative to {@link FreecellServer} for many mostly idle connections: a session keeps
+ * no thread and no buffers while it waits, only its model and the small state of the protocol.
+ * Input is read into one shared direct buffer, decoded and split into tokens as it arrives, even in
+ * the middle of a token, and played with {@link MoveCommandProtocol}, so the prompts and messages
+ * are exactly those of {@link freecell.controller.FreecellController}. The output of a session is
+ * queued and written with gathering writes.
+ */
+public final class FreecellNioServer implements AutoCloseable {
+
+  private static final int READ_BUFFER_SIZE = 16 * 1024;
+  private static final int GATHER_SIZE = 16;
+
+  private final SocketAddress address;
+  private final FreecellOperationsBuilder<Cards> builder;
+  private final boolean shuffle;
+  private final long idleTimeoutNanos;
+
+  private final ByteBuffer readBuffer;
+  private final ByteBuffer[] gather;
+  private final CountDownLatch terminated;
+
+  private Selector selector;
+  private ServerSocketChannel server;
+  private volatile boolean accepting;
+  private volatile long closeDeadline;
+  private volatile int sessionCount;
+
+  /**
+   * Constructs a FreecellNioServer.
+   *
+   * @param address           the TCP or Unix-domain address to listen on
+   * @param builder           the builder of the model of every session
+   * @param shuffle           shuffle the deck of every session if true
+   * @param idleTimeoutMillis how long a session may stay silent before it is closed, or 0 to
+   *                          never close silent sessions
+   * @throws IllegalArgumentException if the address or builder is null or the timeout is negative
+   */
+  public FreecellNioServer(SocketAddress address, FreecellOperationsBuilder<Cards> builder,
+                           boolean shuffle, long idleTimeoutMillis)
+          throws IllegalArgumentException {
+    if (address == null || builder == null) {
+      throw new IllegalArgumentException("The address or builder passed is null.");
+    }
+    if (idleTimeoutMillis < 0) {
+      throw new IllegalArgumentException("The idle timeout cannot be negative.");
+    }
+    this.address = address;
+    this.builder = builder;
+    this.shuffle = shuffle;
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    this.gather = new ByteBuffer[GATHER_SIZE];
+    this.terminated = new CountDownLatch(1);
+    this.closeDeadline = Long.MAX_VALUE;
+  }
+
+  /**
+   * Start listening and serving sessions on a new thread.
+   *
+   * @throws IOException           if the server cannot listen on its address
+   * @throws IllegalStateException if the server was already started
+   */
+  public synchronized void start() throws IOException, IllegalStateException {
+    if (selector != null) {
+      throw new IllegalStateException("The server was already started.");
+    }
+    selector = Selector.open();
+    if (address instanceof UnixDomainSocketAddress) {
+      server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    } else {
+      server = ServerSocketChannel.open();
+    }
+    server.bind(address);
+    server.configureBlocking(false);
+    server.register(selector, SelectionKey.OP_ACCEPT);
+    accepting = true;
+    Thread thread = new Thread(this::serve, "freecell-selector");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Returns the address the server listens on, which tells the port chosen when listening on
+   * port 0.
+   *
+   * @return the address the server listens on
+   * @throws IOException if the address cannot be read
+   */
+  public SocketAddress getLocalAddress() throws IOException {
+    return server.getLocalAddress();
+  }
+
+  /**
+   * Returns the number of sessions being played.
+   *
+   * @return the number of sessions being played
+   */
+  public int getSessionCount() {
+    return sessionCount;
+  }
+
+  /**
+   * Stop accepting sessions, give the running sessions the given time to finish and then close
+   * them.
+   *
+   * @param graceMillis how long to wait for the running sessions to finish
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized void shutdown(long graceMillis) throws InterruptedException {
+    if (selector == null) {
+      return;
+    }
+    closeDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(graceMillis);
+    accepting = false;
+    selector.wakeup();
+    terminated.await();
+  }
+
+  /**
+   * Close every session at once and stop the server. If interrupted while waiting for the
+   * selector thread to finish, the interrupt flag is restored and the selector thread closes the
+   * sessions on its own, since no grace is given.
+   */
+  @Override
+  public void close() {
+    try {
+      shutdown(0);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      closeDeadline = System.nanoTime();
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Run the selector loop until the server is shut down and every session is closed.
+   */
+  private void serve() {
+    long sweepPeriod = idleTimeoutNanos > 0
+            ? Math.max(idleTimeoutNanos / 4, TimeUnit.MILLISECONDS.toNanos(10)) : 0;
+    long nextSweep = System.nanoTime() + sweepPeriod;
+    try {
+      while (true) {
+        if (!accepting && server.isOpen()) {
+          server.close();
+          deleteSocketFile();
+        }
+        long now = System.nanoTime();
+        if (!accepting && (getSessionCount() == 0 || now >= closeDeadline)) {
+          break;
+        }
+        long timeout = 0;
+        if (sweepPeriod > 0) {
+          timeout = Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextSweep - now));
+        }
+        if (!accepting) {
+          long untilDeadline = TimeUnit.NANOSECONDS.toMillis(closeDeadline - now);
+          timeout = timeout == 0 ? Math.max(1, untilDeadline)
+                  : Math.min(timeout, Math.max(1, untilDeadline));
+        }
+        selector.select(timeout);
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            try {
+              acceptSession();
+            } catch (IOException e) {
+              //the connection was lost before it could be set up
+            }
+            continue;
+          }
+          Session session = (Session) key.attachment();
+          try {
+            if (key.isReadable()) {
+              session.read(key);
+            }
+            if (key.isValid() && key.isWritable()) {
+              session.write(key);
+            }
+          } catch (IOException | RuntimeException e) {
+            closeSession(key);
+          }
+        }
+
+        if (sweepPeriod > 0 && System.nanoTime() >= nextSweep) {
+          closeIdleSessions();
+          nextSweep = System.nanoTime() + sweepPeriod;
+        }
+      }
+    } catch (IOException e) {
+      //the selector failed, every session is closed below
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        closeSession(key);
+      }
+      try {
+        server.close();
+        selector.close();
+      } catch (IOException e) {
+        //nothing is left to release
+      }
+      deleteSocketFile();
+      terminated.countDown();
+    }
+  }
+
+  /**
+   * Accept a waiting connection and start its game.
+   *
+   * @throws IOException if the connection cannot be configured
+   */
+  private void acceptSession() throws IOException {
+    SocketChannel channel = server.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+    //only the selector thread changes the count
+    sessionCount = sessionCount + 1;
+    try {
+      Session session = new Session(channel);
+      key.attach(session);
+      session.begin(key);
+    } catch (IOException | RuntimeException e) {
+      closeSession(key);
+    }
+  }
+
+  /**
+   * Close the sessions that stayed silent longer than the idle timeout.
+   */
+  private void closeIdleSessions() {
+    long now = System.nanoTime();
+    for (SelectionKey key : selector.keys()) {
+      Object attachment = key.attachment();
+      if (attachment instanceof Session && now - ((Session) attachment).lastActivity
+              > idleTimeoutNanos) {
+        closeSession(key);
+      }
+    }
+  }
+
+  /**
+   * Close the connection of a session.
+   *
+   * @param key the key of the session
+   */
+  private void closeSession(SelectionKey key) {
+    if (!(key.attachment() instanceof Session)) {
+      return;
+    }
+    key.attach(null);
+    key.cancel();
+    sessionCount = sessionCount - 1;
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      //the connection is already unusable
+    }
+  }
+
+  /**
+   * Remove the file of a Unix-domain socket once the server stopped listening.
+   */
+  private void deleteSocketFile() {
+    if (address instanceof UnixDomainSocketAddress) {
+      try {
+        Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+      } catch (IOException e) {
+        //the socket file is only left behind
+      }
+    }
+  }
+
+  /**
+   * This class represents one connection playing one game. Between two reads it keeps only the
+   * model, the protocol, the token being read and the state of the UTF-8 decoder; the queue of
+   * output exists only while output is waiting to be written.
+   */
+  private final class Session implements Appendable {
+
+    private final SocketChannel channel;
+    private final FreecellOperations<Cards> model;
+    private final CommandToken token;
+    private MoveCommandProtocol protocol;
+    private ArrayDeque<ByteBuffer> output;
+    private boolean finished;
+    private int pendingBytes;
+    private int codePoint;
+    private long lastActivity;
+
+    /**
+     * Constructs a Session over an accepted connection and deals its game.
+     *
+     * @param channel the accepted connection
+     */
+    private Session(SocketChannel channel) {
+      this.channel = channel;
+      this.model = builder.build();
+      this.token = new CommandToken();
+      this.lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Start the game and send the first board.
+     *
+     * @param key the key of this session
+     * @throws IOException if the board cannot be sent
+     */
+    private void begin(SelectionKey key) throws IOException {
+      model.startGame(model.getDeck(), shuffle);
+      protocol = new MoveCommandProtocol(model, this);
+      finished = protocol.start();
+      write(key);
+    }
+
+    /**
+     * Read what arrived, play every complete token and send the output.
+     *
+     * @param key the key of this session
+     * @throws IOException if the connection fails
+     */
+    private void read(SelectionKey key) throws IOException {
+      lastActivity = System.nanoTime();
+      readBuffer.clear();
+      int read = channel.read(readBuffer);
+      if (read < 0) {
+        if (!finished && !token.isEmpty()) {
+          endToken();
+        }
+        finished = true;
+        write(key);
+        return;
+      }
+      readBuffer.flip();
+      while (readBuffer.hasRemaining() && !finished) {
+        decode(readBuffer.get());
+      }
+      write(key);
+    }
+
+    /**
+     * Decode the next byte of UTF-8 input, replacing malformed input by U+FFFD.
+     *
+     * @param b the next byte of input
+     * @throws IOException if the output cannot be queued
+     */
+    private void decode(byte b) throws IOException {
+      int unsigned = b & 0xFF;
+      if (pendingBytes > 0) {
+        if ((unsigned & 0xC0) == 0x80) {
+          codePoint = (codePoint << 6) | (unsigned & 0x3F);
+          pendingBytes = pendingBytes - 1;
+          if (pendingBytes == 0) {
+            accept(codePoint);
+          }
+          return;
+        }
+        pendingBytes = 0;
+        accept(0xFFFD);
+        if (finished) {
+          return;
+        }
+      }
+      if (unsigned < 0x80) {
+        accept(unsigned);
+      } else if ((unsigned & 0xE0) == 0xC0) {
+        codePoint = unsigned & 0x1F;
+        pendingBytes = 1;
+      } else if ((unsigned & 0xF0) == 0xE0) {
+        codePoint = unsigned & 0x0F;
+        pendingBytes = 2;
+      } else if ((unsigned & 0xF8) == 0xF0) {
+        codePoint = unsigned & 0x07;
+        pendingBytes = 3;
+      } else {
+        accept(0xFFFD);
+      }
+    }
+
+    /**
+     * Add a decoded character to the current token, or end the token on whitespace.
+     *
+     * @param c the decoded code point
+     * @throws IOException if the output cannot be queued
+     */
+    private void accept(int c) throws IOException {
+      if (Character.isBmpCodePoint(c)) {
+        acceptChar((char) c);
+      } else if (Character.isValidCodePoint(c)) {
+        acceptChar(Character.highSurrogate(c));
+        acceptChar(Character.lowSurrogate(c));
+      } else {
+        acceptChar('\uFFFD');
+      }
+    }
+
+    /**
+     * Add a character to the current token, or end the token on whitespace.
+     *
+     * @param c the character
+     * @throws IOException if the output cannot be queued
+     */
+    private void acceptChar(char c) throws IOException {
+      if (finished) {
+        return;
+      }
+      if (!Character.isWhitespace(c)) {
+        token.feed(c);
+      } else if (!token.isEmpty()) {
+        endToken();
+      }
+    }
+
+    /**
+     * Play the current token.
+     *
+     * @throws IOException if the output cannot be queued
+     */
+    private void endToken() throws IOException {
+      finished = protocol.accept(token);
+      token.reset();
+    }
+
+    /**
+     * Write as much queued output as the connection takes, and close the session once it is
+     * finished and everything is written.
+     *
+     * @param key the key of this session
+     * @throws IOException if the connection fails
+     */
+    private void write(SelectionKey key) throws IOException {
+      while (output != null && !output.isEmpty()) {
+        int count = 0;
+        for (ByteBuffer buffer : output) {
+          if (count == GATHER_SIZE) {
+            break;
+          }
+          gather[count] = buffer;
+          count = count + 1;
+        }
+        long written = channel.write(gather, 0, count);
+        Arrays.fill(gather, 0, count, null);
+        while (!output.isEmpty() && !output.peekFirst().hasRemaining()) {
+          output.pollFirst();
+        }
+        if (written == 0) {
+          break;
+        }
+      }
+      if (output != null && !output.isEmpty()) {
+        key.interestOps(SelectionKey.OP_WRITE);
+        return;
+      }
+      output = null;
+      if (finished) {
+        closeSession(key);
+      } else {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+      if (output == null) {
+        output = new ArrayDeque<>(4);
+      }
+      output.addLast(StandardCharsets.UTF_8.encode(CharBuffer.wrap(csq)));
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      return append(csq.subSequence(start, end));
+    }
+
+    @Override
+    public Appendable append(char c) {
+      return append(String.valueOf(c));
+    }
+  }
+}
@@ -0,0 +1,365 @@
+package freecell.server;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.CharBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import freecell.controller.FreecellController;
+import freecell.model.Cards;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+
+/**
+ * This class represents a server that hosts many games of freecell at the same time. It accepts
+ * TCP or Unix-domain connections and plays one game per connection with the text protocol of
+ * {@link FreecellController}, each game with its own model from the given builder. Every session
+ * runs on its own virtual thread when the runtime supports them, and on a pooled platform thread
+ * otherwise. Sessions that stay silent longer than the idle timeout are closed.
+ */
+public final class FreecellServer implements AutoCloseable {
+
+  private static final long ACCEPT_BACKOFF_MILLIS = 100;
+
+  private final SocketAddress address;
+  private final FreecellOperationsBuilder<Cards> builder;
+  private final boolean shuffle;
+  private final long idleTimeoutMillis;
+  private final Map<SocketChannel, Session> sessions;
+
+  private ServerSocketChannel server;
+  private ExecutorService executor;
+  private ScheduledExecutorService sweeper;
+  private volatile boolean running;
+
+  /**
+   * Constructs a FreecellServer.
+   *
+   * @param address           the TCP or Unix-domain address to listen on
+   * @param builder           the builder of the model of every session
+   * @param shuffle           shuffle the deck of every session if true
+   * @param idleTimeoutMillis how long a session may stay silent before it is closed, or 0 to
+   *                          never close silent sessions
+   * @throws IllegalArgumentException if the address or builder is null or the timeout is negative
+   */
+  public FreecellServer(SocketAddress address, FreecellOperationsBuilder<Cards> builder,
+                        boolean shuffle, long idleTimeoutMillis) throws IllegalArgumentException {
+    if (address == null || builder == null) {
+      throw new IllegalArgumentException("The address or builder passed is null.");
+    }
+    if (idleTimeoutMillis < 0) {
+      throw new IllegalArgumentException("The idle timeout cannot be negative.");
+    }
+    this.address = address;
+    this.builder = builder;
+    this.shuffle = shuffle;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.sessions = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Start listening and accepting sessions.
+   *
+   * @throws IOException           if the server cannot listen on its address
+   * @throws IllegalStateException if the server was already started
+   */
+  public synchronized void start() throws IOException, IllegalStateException {
+    if (server != null) {
+      throw new IllegalStateException("The server was already started.");
+    }
+    if (address instanceof UnixDomainSocketAddress) {
+      server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    } else {
+      server = ServerSocketChannel.open();
+    }
+    server.bind(address);
+    executor = newSessionExecutor();
+    running = true;
+    if (idleTimeoutMillis > 0) {
+      sweeper = Executors.newSingleThreadScheduledExecutor(daemon("freecell-idle-sweeper"));
+      long period = Math.max(idleTimeoutMillis / 4, 10);
+      sweeper.scheduleAtFixedRate(this::closeIdleSessions, period, period,
+              TimeUnit.MILLISECONDS);
+    }
+    Thread acceptor = daemon("freecell-acceptor").newThread(this::acceptSessions);
+    acceptor.start();
+  }
+
+  /**
+   * Returns the address the server listens on, which tells the port chosen when listening on
+   * port 0.
+   *
+   * @return the address the server listens on
+   * @throws IOException if the address cannot be read
+   */
+  public SocketAddress getLocalAddress() throws IOException {
+    return server.getLocalAddress();
+  }
+
+  /**
+   * Returns the number of sessions being played.
+   *
+   * @return the number of sessions being played
+   */
+  public int getSessionCount() {
+    return sessions.size();
+  }
+
+  /**
+   * Stop accepting sessions, give the running sessions the given time to finish and then close
+   * them.
+   *
+   * @param graceMillis how long to wait for the running sessions to finish
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized void shutdown(long graceMillis) throws InterruptedException {
+    if (!running) {
+      return;
+    }
+    running = false;
+    closeQuietly(server);
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+    }
+    executor.shutdown();
+    if (!executor.awaitTermination(graceMillis, TimeUnit.MILLISECONDS)) {
+      for (SocketChannel channel : sessions.keySet()) {
+        closeQuietly(channel);
+      }
+      executor.awaitTermination(graceMillis, TimeUnit.MILLISECONDS);
+    }
+    if (address instanceof UnixDomainSocketAddress) {
+      try {
+        Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+      } catch (IOException e) {
+        //the socket file is only left behind
+      }
+    }
+  }
+
+  /**
+   * Close every session at once and stop the server. If interrupted while waiting for the
+   * sessions to finish, the interrupt flag is restored and the sessions are closed without
+   * waiting for them.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      shutdown(0);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (SocketChannel channel : sessions.keySet()) {
+        closeQuietly(channel);
+      }
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Accept connections until the server is shut down and start a session for each. A connection
+   * that cannot be accepted, for example when the process runs out of file descriptors under
+   * load, only pauses the acceptor for a moment.
+   */
+  private void acceptSessions() {
+    while (running) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (IOException e) {
+        if (!running || !server.isOpen()) {
+          return;
+        }
+        try {
+          Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        continue;
+      }
+      Session session = new Session(channel);
+      sessions.put(channel, session);
+      try {
+        executor.execute(session);
+      } catch (RuntimeException e) {
+        sessions.remove(channel);
+        closeQuietly(channel);
+      }
+    }
+  }
+
+  /**
+   * Close the sessions that stayed silent longer than the idle timeout.
+   */
+  private void closeIdleSessions() {
+    long now = System.nanoTime();
+    long timeout = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    for (Session session : sessions.values()) {
+      if (now - session.lastActivity > timeout) {
+        closeQuietly(session.channel);
+      }
+    }
+  }
+
+  /**
+   * Returns an executor that runs every task on a new virtual thread, or a pool of daemon platform
+   * threads if the runtime has no virtual threads.
+   *
+   * @return the executor of the sessions
+   */
+  private static ExecutorService newSessionExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Executors.newCachedThreadPool(daemon("freecell-session"));
+    }
+  }
+
+  /**
+   * Returns a factory of daemon threads with the given name.
+   *
+   * @param name the name of the threads
+   * @return the factory of threads
+   */
+  private static ThreadFactory daemon(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Close a channel, ignoring errors.
+   *
+   * @param channel the channel to close
+   */
+  private static void closeQuietly(Channel channel) {
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      //the channel is already unusable
+    }
+  }
+
+  /**
+   * This class represents one connection playing one game. It reads and writes the connection
+   * through the controller and remembers when the player was last heard from.
+   */
+  private final class Session implements Runnable, Readable, Appendable {
+
+    private final SocketChannel channel;
+    private final Reader reader;
+    private final Writer writer;
+    private volatile long lastActivity;
+
+    /**
+     * Constructs a Session over an accepted connection.
+     *
+     * @param channel the accepted connection
+     */
+    private Session(SocketChannel channel) {
+      this.channel = channel;
+      this.reader = new InputStreamReader(Channels.newInputStream(channel),
+              StandardCharsets.UTF_8);
+      this.writer = new OutputStreamWriter(Channels.newOutputStream(channel),
+              StandardCharsets.UTF_8);
+      this.lastActivity = System.nanoTime();
+    }
+
+    @Override
+    public void run() {
+      try {
+        FreecellOperations<Cards> model = builder.build();
+        new FreecellController(this, this).playGame(model.getDeck(), model, shuffle);
+      } catch (RuntimeException e) {
+        //the player left, went silent or the connection failed
+      } finally {
+        sessions.remove(channel);
+        closeQuietly(channel);
+      }
+    }
+
+    @Override
+    public int read(CharBuffer cb) throws IOException {
+      int read = reader.read(cb);
+      lastActivity = System.nanoTime();
+      return read;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+      writer.append(csq);
+      writer.flush();
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+      writer.append(csq, start, end);
+      writer.flush();
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+      writer.append(c);
+      writer.flush();
+      return this;
+    }
+  }
+
+  /**
+   * Run a server from the command line. The arguments are the TCP port or the path of a
+   * Unix-domain socket, then optionally "multi" to allow multi-card moves and the idle timeout in
+   * seconds.
+   *
+   * @param args the command line arguments
+   * @throws Exception if the server cannot start
+   */
+  public static void main(String[] args) throws Exception {
+    SocketAddress address;
+    if (args.length > 0 && !args[0].matches("\\d+")) {
+      address = UnixDomainSocketAddress.of(args[0]);
+    } else {
+      address = new InetSocketAddress(args.length > 0 ? Integer.parseInt(args[0]) : 4000);
+    }
+    FreecellOperationsBuilder<Cards> builder = args.length > 1 && args[1].equals("multi")
+            ? FreecellMultiMoveModel.getBuilder() : FreecellModel.getBuilder();
+    long idle = args.length > 2 ? TimeUnit.SECONDS.toMillis(Long.parseLong(args[2])) : 600_000;
+    FreecellServer freecellServer = new FreecellServer(address, builder, true, idle);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        freecellServer.shutdown(5000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }));
+    freecellServer.start();
+    Thread.currentThread().join();
+  }
+}
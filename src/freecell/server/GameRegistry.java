@@ -0,0 +1,280 @@
+package freecell.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.Cards;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+
+/**
+ * This class represents the registry of the live games of a server, by session id. The games are
+ * kept in a concurrent map, so looking up or creating a game never takes a lock shared with other
+ * games. Every game is played under its own lock, so two calls for the same game run one after
+ * the other while calls for different games run in parallel. A game that is not touched for
+ * longer than the time to live is evicted, and a game left untouched for a shorter while can be
+ * hibernated into a few bytes until its next call.
+ */
+public final class GameRegistry implements AutoCloseable {
+
+  private final FreecellOperationsBuilder<Cards> builder;
+  private final long ttlNanos;
+  private final long hibernateNanos;
+  private final Map<Long, Entry> games;
+  private final AtomicLong nextId;
+  private final ScheduledExecutorService sweeper;
+
+  /**
+   * Constructs a GameRegistry that never hibernates games.
+   *
+   * @param builder       the builder of the model of every game
+   * @param ttlMillis     how long a game may stay untouched before it is evicted, or 0 to never
+   *                      evict games
+   * @param expectedGames how many games the registry is expected to hold, to size it up front
+   * @throws IllegalArgumentException if the builder is null or a number is negative
+   */
+  public GameRegistry(FreecellOperationsBuilder<Cards> builder, long ttlMillis,
+                      int expectedGames) throws IllegalArgumentException {
+    this(builder, ttlMillis, 0, expectedGames);
+  }
+
+  /**
+   * Constructs a GameRegistry. Only games whose model is an {@link AbstractFreecellModel} are
+   * hibernated, and their move listeners are removed and their threads stopped.
+   *
+   * @param builder              the builder of the model of every game
+   * @param ttlMillis            how long a game may stay untouched before it is evicted, or 0 to
+   *                             never evict games
+   * @param hibernateAfterMillis how long a game may stay untouched before it is hibernated, or 0
+   *                             to never hibernate games
+   * @param expectedGames        how many games the registry is expected to hold, to size it up
+   *                             front
+   * @throws IllegalArgumentException if the builder is null or a number is negative
+   */
+  public GameRegistry(FreecellOperationsBuilder<Cards> builder, long ttlMillis,
+                      long hibernateAfterMillis, int expectedGames)
+          throws IllegalArgumentException {
+    if (builder == null) {
+      throw new IllegalArgumentException("The builder passed is null.");
+    }
+    if (ttlMillis < 0 || hibernateAfterMillis < 0 || expectedGames < 0) {
+      throw new IllegalArgumentException("The time to live, hibernation delay and expected "
+              + "games cannot be negative.");
+    }
+    this.builder = builder;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.hibernateNanos = TimeUnit.MILLISECONDS.toNanos(hibernateAfterMillis);
+    this.games = new ConcurrentHashMap<>(expectedGames);
+    this.nextId = new AtomicLong();
+    long shortest = ttlMillis == 0 ? hibernateAfterMillis
+            : hibernateAfterMillis == 0 ? ttlMillis : Math.min(ttlMillis, hibernateAfterMillis);
+    if (shortest > 0) {
+      sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "freecell-registry-sweeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+      long period = Math.max(shortest / 4, 10);
+      sweeper.scheduleAtFixedRate(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    } else {
+      sweeper = null;
+    }
+  }
+
+  /**
+   * Start a new game with the given deck and register it.
+   *
+   * @param deck    the deck to be used, or null for the deck of the model
+   * @param shuffle shuffle the deck if true
+   * @return the session id of the new game
+   * @throws IllegalArgumentException if the deck is invalid
+   */
+  public long create(List<Cards> deck, boolean shuffle) throws IllegalArgumentException {
+    FreecellOperations<Cards> model = builder.build();
+    model.startGame(deck == null ? model.getDeck() : deck, shuffle);
+    long id = nextId.incrementAndGet();
+    games.put(id, new Entry(model));
+    return id;
+  }
+
+  /**
+   * Run the given action on a game, while no other action runs on the same game.
+   *
+   * @param id     the session id of the game
+   * @param action the action to run on the model of the game
+   * @param <T>    the type of the result of the action
+   * @return the result of the action
+   * @throws IllegalArgumentException if there is no such game, or it was evicted
+   */
+  public <T> T withGame(long id, Function<FreecellOperations<Cards>, T> action)
+          throws IllegalArgumentException {
+    Entry entry = games.get(id);
+    if (entry == null) {
+      throw new IllegalArgumentException("There is no such game.");
+    }
+    synchronized (entry) {
+      if (entry.hibernated != null) {
+        entry.model = AbstractFreecellModel.rehydrate(entry.hibernated);
+        entry.hibernated = null;
+      }
+      if (entry.model == null) {
+        throw new IllegalArgumentException("There is no such game.");
+      }
+      entry.lastAccess = System.nanoTime();
+      return action.apply(entry.model);
+    }
+  }
+
+  /**
+   * Returns true if a game with the given session id is registered.
+   *
+   * @param id the session id of the game
+   * @return true if the game is registered
+   */
+  public boolean contains(long id) {
+    return games.containsKey(id);
+  }
+
+  /**
+   * Remove a game from the registry and stop the threads of its move listeners.
+   *
+   * @param id the session id of the game
+   * @return true if the game was registered
+   */
+  public boolean remove(long id) {
+    Entry entry = games.remove(id);
+    if (entry == null) {
+      return false;
+    }
+    synchronized (entry) {
+      removeListeners(entry.model);
+      entry.model = null;
+      entry.hibernated = null;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of registered games.
+   *
+   * @return the number of registered games
+   */
+  public int size() {
+    return games.size();
+  }
+
+  /**
+   * Evict every game that was not touched for longer than the time to live and stop the threads
+   * of its move listeners. A game being played is never evicted.
+   *
+   * @return the number of evicted games
+   */
+  public int evictExpired() {
+    if (ttlNanos == 0) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    int evicted = 0;
+    for (Map.Entry<Long, Entry> game : games.entrySet()) {
+      Entry entry = game.getValue();
+      if (now - entry.lastAccess <= ttlNanos) {
+        continue;
+      }
+      synchronized (entry) {
+        if (now - entry.lastAccess > ttlNanos && games.remove(game.getKey(), entry)) {
+          removeListeners(entry.model);
+          entry.model = null;
+          entry.hibernated = null;
+          evicted = evicted + 1;
+        }
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * Hibernate every game that was not touched for longer than the hibernation delay. A game being
+   * played is never hibernated.
+   *
+   * @return the number of hibernated games
+   */
+  public int hibernateIdle() {
+    if (hibernateNanos == 0) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    int hibernated = 0;
+    for (Entry entry : games.values()) {
+      if (now - entry.lastAccess <= hibernateNanos
+              || !(entry.model instanceof AbstractFreecellModel)) {
+        continue;
+      }
+      synchronized (entry) {
+        if (now - entry.lastAccess > hibernateNanos
+                && entry.model instanceof AbstractFreecellModel) {
+          AbstractFreecellModel model = (AbstractFreecellModel) entry.model;
+          entry.hibernated = model.hibernate();
+          removeListeners(model);
+          entry.model = null;
+          hibernated = hibernated + 1;
+        }
+      }
+    }
+    return hibernated;
+  }
+
+  /**
+   * Remove the move listeners of a model that is dropped from the registry and stop their
+   * threads, which would otherwise keep the model reachable.
+   *
+   * @param model the dropped model
+   */
+  private static void removeListeners(FreecellOperations<Cards> model) {
+    if (model instanceof AbstractFreecellModel) {
+      ((AbstractFreecellModel) model).removeMoveListeners();
+    }
+  }
+
+  /**
+   * Evict the expired games and hibernate the idle ones.
+   */
+  private void sweep() {
+    evictExpired();
+    hibernateIdle();
+  }
+
+  @Override
+  public void close() {
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+    }
+  }
+
+  /**
+   * This class represents one registered game: its model, or its packed bytes while it is
+   * hibernated, and when it was last touched. It is also the lock of the game.
+   */
+  private static final class Entry {
+
+    private FreecellOperations<Cards> model;
+    private byte[] hibernated;
+    private volatile long lastAccess;
+
+    /**
+     * Constructs an Entry for a new game.
+     *
+     * @param model the model of the game
+     */
+    private Entry(FreecellOperations<Cards> model) {
+      this.model = model;
+      this.lastAccess = System.nanoTime();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package freecell.server;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class represents the stream of frames of one spectator. Frames are queued by the hub and
+ * read by the spectator on its own thread. The queue is bounded: when the spectator is too slow
+ * and the queue is full, the queued deltas are dropped and replaced by a single keyframe, so a slow
+ * spectator costs a bounded amount of memory and never holds back the others. The queue is guarded
+ * by the monitor of the feed, so the keyframe replaces the queued frames in one step that no read
+ * can see half done.
+ */
+public final class SpectatorFeed implements AutoCloseable {
+
+  private final SpectatorHub hub;
+  private final ArrayDeque<SpectatorFrame> frames;
+  private final int capacity;
+  private volatile long dropped;
+
+  /**
+   * Constructs a SpectatorFeed.
+   *
+   * @param hub      the hub this feed reads from
+   * @param capacity the maximum number of frames waiting to be read
+   */
+  SpectatorFeed(SpectatorHub hub, int capacity) {
+    this.hub = hub;
+    this.frames = new ArrayDeque<>(capacity);
+    this.capacity = capacity;
+  }
+
+  /**
+   * Queue a frame for this spectator.
+   *
+   * @param frame the frame to queue
+   * @return false if the queue is full and the frame was not queued
+   */
+  synchronized boolean offer(SpectatorFrame frame) {
+    if (frames.size() >= capacity) {
+      return false;
+    }
+    frames.add(frame);
+    notifyAll();
+    return true;
+  }
+
+  /**
+   * Drop every queued frame and queue the given keyframe instead.
+   *
+   * @param keyframe the keyframe that replaces the queued frames
+   */
+  synchronized void resync(SpectatorFrame keyframe) {
+    dropped = dropped + frames.size();
+    frames.clear();
+    frames.add(keyframe);
+    notifyAll();
+  }
+
+  /**
+   * Returns the next frame, or null if there is none.
+   *
+   * @return the next frame, or null if there is none
+   */
+  public synchronized SpectatorFrame poll() {
+    return frames.poll();
+  }
+
+  /**
+   * Returns the next frame, waiting up to the given time for one to arrive.
+   *
+   * @param timeout how long to wait
+   * @param unit    the unit of the timeout
+   * @return the next frame, or null if none arrived in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized SpectatorFrame poll(long timeout, TimeUnit unit)
+          throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (frames.isEmpty()) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return frames.poll();
+  }
+
+  /**
+   * Returns the number of frames dropped because this spectator was too slow.
+   *
+   * @return the number of dropped frames
+   */
+  public long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Stop receiving frames from the hub.
+   */
+  @Override
+  public void close() {
+    hub.unsubscribe(this);
+  }
+}
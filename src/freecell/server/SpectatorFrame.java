@@ -0,0 +1,89 @@
+package freecell.server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class represents one frame of a spectator stream. A delta frame holds the compact encoding
+ * of one applied move and a keyframe holds the full board in the format of
+ * {@link freecell.model.FreecellOperations#getGameState()}. Frames are immutable and the same
+ * frame object is handed to every spectator of a game.
+ */
+public final class SpectatorFrame {
+
+  /**
+   * Type for the kinds of frames in a spectator stream.
+   */
+  public enum Kind {
+    DELTA, KEYFRAME
+  }
+
+  private final Kind kind;
+  private final long sequence;
+  private final byte[] payload;
+
+  /**
+   * Constructs a SpectatorFrame.
+   *
+   * @param kind     the kind of this frame
+   * @param sequence the number of moves applied to the game when this frame was made
+   * @param payload  the encoded content of this frame
+   */
+  SpectatorFrame(Kind kind, long sequence, byte[] payload) {
+    this.kind = kind;
+    this.sequence = sequence;
+    this.payload = payload;
+  }
+
+  /**
+   * Returns the kind of this frame.
+   *
+   * @return the kind of this frame
+   */
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Returns the number of moves applied to the game when this frame was made.
+   *
+   * @return the number of moves applied to the game
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Returns a copy of the encoded content of this frame. A delta is {@link SpectatorHub#DELTA_SIZE}
+   * bytes: source pile type, source pile number, card index, destination pile type, destination
+   * pile number, number of cards moved, then the codes of the new top cards of the source and
+   * destination piles plus one, 0 meaning the pile is empty. A keyframe is the UTF-8 encoding of
+   * the game state.
+   *
+   * @return the encoded content of this frame
+   */
+  public byte[] getPayload() {
+    return payload.clone();
+  }
+
+  /**
+   * Returns the number of bytes in the encoded content of this frame.
+   *
+   * @return the number of bytes in the encoded content
+   */
+  public int getPayloadLength() {
+    return payload.length;
+  }
+
+  /**
+   * Returns the game state held by a keyframe.
+   *
+   * @return the game state held by this keyframe
+   * @throws IllegalStateException if this frame is not a keyframe
+   */
+  public String getState() throws IllegalStateException {
+    if (kind != Kind.KEYFRAME) {
+      throw new IllegalStateException("Only a keyframe holds the game state.");
+    }
+    return new String(payload, StandardCharsets.UTF_8);
+  }
+}
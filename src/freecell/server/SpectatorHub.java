@@ -0,0 +1,294 @@
+package freecell.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.BoardSnapshot;
+import freecell.model.Cards;
+import freecell.model.MoveEvent;
+import freecell.model.MoveListener;
+import freecell.model.PileType;
+
+import static freecell.model.AbstractFreecellModel.FOUNDATIONS;
+
+/**
+ * This class represents a hub that broadcasts a live game to many spectators. It listens to the
+ * moves of the game and keeps its own copy of the board, so it never reads the model from another
+ * thread. Every applied move is encoded once as a small delta frame and the same frame is queued
+ * for every spectator. Every few moves, when a spectator joins and when a spectator is too slow
+ * to keep its queue from overflowing, the hub sends a keyframe holding the full game state
+ * instead. When the hub itself falls behind the events of the game, it copies the board from the
+ * model and sends a keyframe to every spectator, the same way a single spectator recovers.
+ */
+public final class SpectatorHub implements MoveListener, AutoCloseable {
+
+  /**
+   * The number of bytes in the payload of a delta frame.
+   */
+  public static final int DELTA_SIZE = 8;
+
+  private static final String[] CARD_NAMES = new String[52];
+
+  static {
+    for (int i = 0; i < 52; i++) {
+      CARD_NAMES[i] = Cards.fromCode(i).toString();
+    }
+  }
+
+  private final AbstractFreecellModel model;
+  private final int keyframeInterval;
+  private final int feedCapacity;
+  private final List<SpectatorFeed> feeds;
+
+  private int opensNum;
+  private byte[][] piles;
+  private int[] lengths;
+
+  private long moves;
+  private long nextEvent;
+  private SpectatorFrame keyframe;
+
+  /**
+   * Constructs a SpectatorHub.
+   *
+   * @param model            the game to broadcast
+   * @param keyframeInterval the number of moves between two keyframes
+   * @param feedCapacity     the maximum number of frames waiting for one spectator
+   */
+  private SpectatorHub(AbstractFreecellModel model, int keyframeInterval, int feedCapacity) {
+    this.model = model;
+    this.keyframeInterval = keyframeInterval;
+    this.feedCapacity = feedCapacity;
+    this.feeds = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Start broadcasting a started game.
+   *
+   * @param model            the game to broadcast
+   * @param keyframeInterval the number of moves between two keyframes
+   * @param feedCapacity     the maximum number of frames waiting for one spectator
+   * @return the hub of this game
+   * @throws IllegalArgumentException if the model is null, the game is not started, or the
+   *                                  interval or capacity is not positive
+   */
+  public static SpectatorHub attach(AbstractFreecellModel model, int keyframeInterval,
+                                    int feedCapacity) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("The model cannot be null.");
+    }
+    if (keyframeInterval < 1 || feedCapacity < 1) {
+      throw new IllegalArgumentException("The keyframe interval and the capacity of a feed "
+              + "should be positive.");
+    }
+    if (!model.copyBoard().isStarted()) {
+      throw new IllegalArgumentException("The game has not started yet.");
+    }
+    SpectatorHub hub = new SpectatorHub(model, keyframeInterval, feedCapacity);
+    model.addMoveListener(hub);
+    hub.resync();
+    return hub;
+  }
+
+  /**
+   * Rebuild the copy of the board from the model and send a keyframe to every spectator. The
+   * board and the sequence number of the last event it covers are read together under the
+   * monitor of the model, so the events that follow apply to it exactly. The hub calls this on
+   * its own when it missed events.
+   */
+  public synchronized void resync() {
+    BoardSnapshot board;
+    synchronized (model) {
+      board = model.copyBoard();
+      nextEvent = model.getEventSequence() + 1;
+    }
+    copyBoard(board);
+    keyframe = null;
+    for (SpectatorFeed feed : feeds) {
+      feed.resync(keyframe());
+    }
+  }
+
+  /**
+   * Add a spectator. Its feed starts with a keyframe of the current board.
+   *
+   * @return the feed of the new spectator
+   */
+  public synchronized SpectatorFeed subscribe() {
+    SpectatorFeed feed = new SpectatorFeed(this, feedCapacity);
+    feed.offer(keyframe());
+    feeds.add(feed);
+    return feed;
+  }
+
+  /**
+   * Remove a spectator.
+   *
+   * @param feed the feed of the spectator
+   */
+  void unsubscribe(SpectatorFeed feed) {
+    feeds.remove(feed);
+  }
+
+  /**
+   * Returns the number of spectators.
+   *
+   * @return the number of spectators
+   */
+  public int getSpectatorCount() {
+    return feeds.size();
+  }
+
+  /**
+   * Stop listening to the game.
+   */
+  @Override
+  public void close() {
+    model.removeMoveListener(this);
+  }
+
+  @Override
+  public synchronized void onMoveEvent(MoveEvent event) {
+    long sequence = event.getSequence();
+    if (sequence < nextEvent) {
+      return;
+    }
+    if (sequence > nextEvent) {
+      //the board of the model already covers this event
+      resync();
+      return;
+    }
+    nextEvent = sequence + 1;
+
+    if (event.getType() == MoveEvent.Type.APPLIED) {
+      int source = pileIndex(event.getSource(), event.getPileNumber());
+      int destination = pileIndex(event.getDestination(), event.getDestPileNumber());
+      int count = event.getCardsMoved();
+      System.arraycopy(piles[source], lengths[source] - count, piles[destination],
+              lengths[destination], count);
+      lengths[source] = lengths[source] - count;
+      lengths[destination] = lengths[destination] + count;
+      moves = moves + 1;
+      keyframe = null;
+      if (moves % keyframeInterval == 0) {
+        broadcast(keyframe());
+      } else {
+        broadcast(new SpectatorFrame(SpectatorFrame.Kind.DELTA, moves, encodeDelta(event)));
+      }
+    } else if (event.getType() == MoveEvent.Type.GAME_OVER) {
+      broadcast(keyframe());
+    }
+  }
+
+  /**
+   * Queue a frame for every spectator, replacing the queue of the slow ones by a keyframe.
+   *
+   * @param frame the frame to queue
+   */
+  private void broadcast(SpectatorFrame frame) {
+    for (SpectatorFeed feed : feeds) {
+      if (!feed.offer(frame)) {
+        feed.resync(keyframe());
+      }
+    }
+  }
+
+  /**
+   * Returns the compact encoding of an applied move.
+   *
+   * @param event the event of the applied move
+   * @return the compact encoding of the move
+   */
+  private byte[] encodeDelta(MoveEvent event) {
+    byte[] delta = new byte[DELTA_SIZE];
+    delta[0] = (byte) event.getSource().ordinal();
+    delta[1] = (byte) event.getPileNumber();
+    delta[2] = (byte) event.getCardIndex();
+    delta[3] = (byte) event.getDestination().ordinal();
+    delta[4] = (byte) event.getDestPileNumber();
+    delta[5] = (byte) event.getCardsMoved();
+    delta[6] = (byte) (event.getSourceTop() + 1);
+    delta[7] = (byte) (event.getDestinationTop() + 1);
+    return delta;
+  }
+
+  /**
+   * Returns the keyframe of the current board, rendering it at most once per move.
+   *
+   * @return the keyframe of the current board
+   */
+  private SpectatorFrame keyframe() {
+    if (keyframe == null) {
+      keyframe = new SpectatorFrame(SpectatorFrame.Kind.KEYFRAME, moves,
+              renderState().getBytes(StandardCharsets.UTF_8));
+    }
+    return keyframe;
+  }
+
+  /**
+   * Returns the index of the given pile in the copy of the board, where foundation piles come
+   * first, then open piles and then cascade piles.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the index of the pile
+   */
+  private int pileIndex(PileType type, int pileNumber) {
+    if (type == PileType.FOUNDATION) {
+      return pileNumber;
+    } else if (type == PileType.OPEN) {
+      return FOUNDATIONS + pileNumber;
+    }
+    return FOUNDATIONS + opensNum + pileNumber;
+  }
+
+  /**
+   * Returns the copy of the board in the format of the game state.
+   *
+   * @return the copy of the board as a game state
+   */
+  private String renderState() {
+    StringBuilder sb = new StringBuilder(256);
+    for (int i = 0; i < piles.length; i++) {
+      if (i < FOUNDATIONS) {
+        sb.append('F').append(i + 1).append(':');
+      } else if (i < FOUNDATIONS + opensNum) {
+        sb.append('O').append(i - FOUNDATIONS + 1).append(':');
+      } else {
+        sb.append('C').append(i - FOUNDATIONS - opensNum + 1).append(':');
+      }
+      for (int j = 0; j < lengths[i]; j++) {
+        sb.append(' ').append(CARD_NAMES[piles[i][j]]);
+        if (j < lengths[i] - 1) {
+          sb.append(',');
+        }
+      }
+      sb.append('\n');
+    }
+    return sb.substring(0, sb.length() - 1);
+  }
+
+  /**
+   * Rebuild the copy of the board from a copy of the board of the model.
+   *
+   * @param board the copy of the board of the model
+   */
+  private void copyBoard(BoardSnapshot board) {
+    opensNum = board.getOpensNum();
+    int count = FOUNDATIONS + opensNum + board.getCascadesNum();
+    piles = new byte[count][52];
+    lengths = new int[count];
+    for (int i = 0; i < count; i++) {
+      PileType type = i < FOUNDATIONS ? PileType.FOUNDATION
+              : i < FOUNDATIONS + opensNum ? PileType.OPEN : PileType.CASCADE;
+      int number = i < FOUNDATIONS ? i
+              : i < FOUNDATIONS + opensNum ? i - FOUNDATIONS : i - FOUNDATIONS - opensNum;
+      lengths[i] = board.getPileSize(type, number);
+      for (int j = 0; j < lengths[i]; j++) {
+        piles[i][j] = (byte) board.getCard(type, number, j).toCode();
+      }
+    }
+  }
+}
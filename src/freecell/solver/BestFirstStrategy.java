@@ -0,0 +1,196 @@
+package freecell.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents a best-first search that always expands the open position with the
+ * lowest cost, the cost being a weighted sum of the moves played so far and the estimated
+ * distance to a win. A weight of 0 on the moves played gives a greedy search, and a weight of 1
+ * with a larger weight on the distance gives a weighted A*. Nodes live in a {@link NodeArena}
+ * and the open list is a heap of packed longs, so the search keeps no object per node.
+ */
+public final class BestFirstStrategy implements SolverStrategy {
+
+  private static final int CHECK_INTERVAL = 256;
+
+  private final String name;
+  private final int depthWeight;
+  private final int distanceWeight;
+  private final boolean supermoves;
+
+  /**
+   * Constructs a BestFirstStrategy.
+   *
+   * @param name           the name of the strategy
+   * @param depthWeight    the weight of the number of moves played so far
+   * @param distanceWeight the weight of the estimated distance to a win
+   * @param supermoves     true to use multi-card moves when the game allows them, false to only
+   *                       move one card at a time
+   * @throws IllegalArgumentException if the name is null or a weight is negative
+   */
+  public BestFirstStrategy(String name, int depthWeight, int distanceWeight, boolean supermoves)
+          throws IllegalArgumentException {
+    if (name == null || depthWeight < 0 || distanceWeight < 0) {
+      throw new IllegalArgumentException("The name cannot be null and the weights cannot be "
+              + "negative.");
+    }
+    this.name = name;
+    this.depthWeight = depthWeight;
+    this.distanceWeight = distanceWeight;
+    this.supermoves = supermoves;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public List<Move> solve(Position position, SearchContext context) {
+    boolean multiMove = supermoves && context.isMultiMove();
+    MemoryBudget budget = context.getBudget();
+    VisitedSet visited = context.newVisitedSet();
+    NodeArena arena = new NodeArena(position.getOpensNum(), position.getCascadesNum(), budget);
+    OpenQueue open = new OpenQueue(budget);
+    try {
+      visited.add(position.canonicalHash());
+      int root = arena.add(NodeArena.NONE, null, cost(0, position), position);
+      if (root < 0 || !open.push(arena.getCost(root), root)) {
+        return null;
+      }
+      long expanded = 0;
+      while (!open.isEmpty()) {
+        int node = open.pop();
+        Position current = arena.getPosition(node);
+        if (current.isSolved()) {
+          return arena.line(node);
+        }
+        expanded = expanded + 1;
+        if (expanded % CHECK_INTERVAL == 0 && context.isCancelled()) {
+          return null;
+        }
+        int depth = arena.getDepth(node) + 1;
+        for (Move move : current.moves(multiMove)) {
+          Position next = current.apply(move);
+          if (!visited.add(next.canonicalHash())) {
+            continue;
+          }
+          int child = visited.isFull() ? -1 : arena.add(node, move, cost(depth, next), next);
+          if (child < 0 || !open.push(arena.getCost(child), child)) {
+            return null;
+          }
+        }
+      }
+      return null;
+    } finally {
+      visited.clear();
+      arena.clear();
+      open.clear();
+    }
+  }
+
+  /**
+   * Returns the cost of a position reached after the given number of moves.
+   *
+   * @param depth    the number of moves played
+   * @param position the position
+   * @return the cost of the position
+   */
+  private int cost(int depth, Position position) {
+    return depthWeight * depth + distanceWeight * position.distance();
+  }
+
+  /**
+   * This class represents the open nodes of the search as a binary min-heap of longs, each the
+   * cost of a node in the high half and its index in the arena in the low half, so the queue
+   * holds no object per node either.
+   */
+  private static final class OpenQueue {
+
+    private final MemoryBudget budget;
+    private long[] heap;
+    private int size;
+
+    /**
+     * Constructs an empty OpenQueue.
+     *
+     * @param budget the memory budget of the queue
+     */
+    private OpenQueue(MemoryBudget budget) {
+      this.budget = budget;
+      this.heap = new long[0];
+    }
+
+    /**
+     * Add a node.
+     *
+     * @param cost the cost of the node
+     * @param node the index of the node
+     * @return false if the budget cannot pay for the queue to grow
+     */
+    private boolean push(int cost, int node) {
+      if (size == heap.length) {
+        int grown = Math.max(1024, heap.length * 2);
+        if (!budget.tryReserve(8L * (grown - heap.length))) {
+          return false;
+        }
+        heap = Arrays.copyOf(heap, grown);
+      }
+      long entry = (long) cost << 32 | node;
+      int at = size;
+      size = size + 1;
+      while (at > 0 && heap[(at - 1) / 2] > entry) {
+        heap[at] = heap[(at - 1) / 2];
+        at = (at - 1) / 2;
+      }
+      heap[at] = entry;
+      return true;
+    }
+
+    /**
+     * Remove the node with the lowest cost, the oldest first among equal costs.
+     *
+     * @return the index of the node
+     */
+    private int pop() {
+      long top = heap[0];
+      size = size - 1;
+      long last = heap[size];
+      int at = 0;
+      while (2 * at + 1 < size) {
+        int child = 2 * at + 1;
+        if (child + 1 < size && heap[child + 1] < heap[child]) {
+          child = child + 1;
+        }
+        if (heap[child] >= last) {
+          break;
+        }
+        heap[at] = heap[child];
+        at = child;
+      }
+      heap[at] = last;
+      return (int) top;
+    }
+
+    /**
+     * Returns true if there is no open node.
+     *
+     * @return true if the queue is empty
+     */
+    private boolean isEmpty() {
+      return size == 0;
+    }
+
+    /**
+     * Drop every node and give back the memory of the queue to the budget.
+     */
+    private void clear() {
+      budget.release(8L * heap.length);
+      heap = new long[0];
+      size = 0;
+    }
+  }
+}
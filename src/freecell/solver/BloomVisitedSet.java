@@ -0,0 +1,121 @@
+package freecell.solver;
+
+/**
+ * This class represents a probabilistic visited set: a blocked Bloom filter over position hashes.
+ * Every hash sets a few bits inside one block of 64 bytes, so an add or a lookup touches a single
+ * cache line. The set never forgets a position, but it answers that a new position was reached
+ * with a small probability, chosen when the set is built, which makes a search prune some
+ * positions it never saw. In exchange it takes about 10 bits per position at a rate of 1%,
+ * where an exact set takes at least 128. The filter is allocated from a {@link MemoryBudget} on the
+ * first add and never grows: it is full once it holds the number of positions it was sized for,
+ * after which the false positives grow past the rate chosen, or when the budget cannot pay for it,
+ * after which it answers that every position was reached.
+ */
+public final class BloomVisitedSet implements VisitedSet {
+
+  private static final int BLOCK_LONGS = 8;
+  private static final int BLOCK_BITS = BLOCK_LONGS * 64;
+  private static final int MAX_PROBES = 16;
+
+  private final MemoryBudget budget;
+  private final int blocks;
+  private final int probes;
+  private final long capacity;
+  private long[] bits;
+  private long size;
+  private boolean full;
+
+  /**
+   * Constructs an empty BloomVisitedSet of the given size.
+   *
+   * @param budget            the memory budget of the set
+   * @param bytes             the size of the filter, in bytes, rounded down to a block
+   * @param falsePositiveRate the probability of answering that a new position was reached, once
+   *                          the set holds as many positions as it was sized for
+   * @throws IllegalArgumentException if the budget is null, the size is less than a block or the
+   *                                  rate is not between 0 and 1
+   */
+  public BloomVisitedSet(MemoryBudget budget, long bytes, double falsePositiveRate)
+          throws IllegalArgumentException {
+    if (budget == null) {
+      throw new IllegalArgumentException("The budget passed is null.");
+    }
+    if (bytes < BLOCK_LONGS * 8 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("The filter must hold a block and the rate must be "
+              + "between 0 and 1.");
+    }
+    this.budget = budget;
+    this.blocks = (int) Math.min(bytes / (BLOCK_LONGS * 8), Integer.MAX_VALUE / BLOCK_LONGS);
+    double bitsPerPosition = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    this.probes = (int) Math.max(1, Math.min(MAX_PROBES,
+            Math.round(bitsPerPosition * Math.log(2))));
+    this.capacity = (long) (blocks * (double) BLOCK_BITS / bitsPerPosition);
+  }
+
+  @Override
+  public boolean add(long hash) {
+    if (bits == null) {
+      if (full || !budget.tryReserve(8L * BLOCK_LONGS * blocks)) {
+        full = true;
+        return false;
+      }
+      bits = new long[blocks * BLOCK_LONGS];
+    }
+    long mixed = Position.mix(hash);
+    int base = (int) (((mixed >>> 32) * blocks) >>> 32) * BLOCK_LONGS;
+    int first = (int) mixed;
+    int step = (int) (mixed >>> 23) | 1;
+    boolean added = false;
+    for (int i = 0; i < probes; i++) {
+      int bit = (first + i * step) & (BLOCK_BITS - 1);
+      int word = base + (bit >>> 6);
+      long mask = 1L << bit;
+      if ((bits[word] & mask) == 0) {
+        bits[word] |= mask;
+        added = true;
+      }
+    }
+    if (added) {
+      size = size + 1;
+    }
+    return added;
+  }
+
+  @Override
+  public boolean isFull() {
+    return full || size >= capacity;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    if (bits != null) {
+      budget.release(8L * bits.length);
+    }
+    bits = null;
+    size = 0;
+    full = false;
+  }
+
+  /**
+   * Returns the number of positions the filter was sized for.
+   *
+   * @return the number of positions the filter was sized for
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of bits set for every position.
+   *
+   * @return the number of bits set for every position
+   */
+  public int getProbes() {
+    return probes;
+  }
+}
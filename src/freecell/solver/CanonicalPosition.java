@@ -0,0 +1,91 @@
+package freecell.solver;
+
+import freecell.model.Move;
+
+/**
+ * This class represents the canonical form of a position, as returned by
+ * {@link Position#canonicalize()}, together with the permutation of piles that leads back to the
+ * original position. Moves found on the canonical form can be mapped back to be played on the
+ * original board, and the other way around.
+ */
+public final class CanonicalPosition {
+
+  private final Position position;
+  private final int[] toOriginal;
+  private final int[] fromOriginal;
+
+  /**
+   * Constructs a CanonicalPosition.
+   *
+   * @param position   the canonical position
+   * @param toOriginal for every pile of the canonical position, the index of the same pile in the
+   *                   original position
+   */
+  CanonicalPosition(Position position, int[] toOriginal) {
+    this.position = position;
+    this.toOriginal = toOriginal;
+    this.fromOriginal = new int[toOriginal.length];
+    for (int i = 0; i < toOriginal.length; i++) {
+      fromOriginal[toOriginal[i]] = i;
+    }
+  }
+
+  /**
+   * Returns the canonical position.
+   *
+   * @return the canonical position
+   */
+  public Position getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the canonical hash, the same as the one of the original position.
+   *
+   * @return the canonical hash
+   */
+  public long getHash() {
+    return position.canonicalHash();
+  }
+
+  /**
+   * Returns the given move of the canonical position as a move of the original position.
+   *
+   * @param move a move of the canonical position
+   * @return the same move on the original position
+   * @throws IllegalArgumentException if the move names a pile that does not exist
+   */
+  public Move toOriginal(Move move) throws IllegalArgumentException {
+    return map(move, toOriginal);
+  }
+
+  /**
+   * Returns the given move of the original position as a move of the canonical position.
+   *
+   * @param move a move of the original position
+   * @return the same move on the canonical position
+   * @throws IllegalArgumentException if the move names a pile that does not exist
+   */
+  public Move fromOriginal(Move move) throws IllegalArgumentException {
+    return map(move, fromOriginal);
+  }
+
+  /**
+   * Returns the given move with its piles renumbered through the given permutation.
+   *
+   * @param move        the move
+   * @param permutation the permutation of pile indexes
+   * @return the renumbered move
+   */
+  private Move map(Move move, int[] permutation) {
+    if (move == null) {
+      throw new IllegalArgumentException("The move passed is null.");
+    }
+    int opens = position.getOpensNum();
+    int source = permutation[position.index(move.getSource(), move.getPileNumber())];
+    int destination = permutation[position.index(move.getDestination(),
+            move.getDestPileNumber())];
+    return new Move(move.getSource(), Position.numberOf(source, opens), move.getCardIndex(),
+            move.getDestination(), Position.numberOf(destination, opens));
+  }
+}
@@ -0,0 +1,101 @@
+package freecell.solver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * This class represents the checkpoint file of a long-running job, a set of properties that is
+ * replaced as a whole. A new checkpoint is written and forced to a temporary file next to the old
+ * one and then renamed over it, so after a crash the file holds either the previous checkpoint or
+ * the new one, never a mix of both.
+ */
+final class Checkpoint {
+
+  private final Path path;
+
+  /**
+   * Constructs a Checkpoint stored at the given path.
+   *
+   * @param path the path of the checkpoint file
+   */
+  Checkpoint(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Returns true if a checkpoint was written.
+   *
+   * @return true if a checkpoint was written
+   */
+  boolean exists() {
+    return Files.exists(path);
+  }
+
+  /**
+   * Returns the properties of the last checkpoint, or empty properties if there is none.
+   *
+   * @return the properties of the last checkpoint
+   * @throws IOException if the checkpoint cannot be read
+   */
+  Properties load() throws IOException {
+    Properties properties = new Properties();
+    if (exists()) {
+      try (InputStream in = Files.newInputStream(path)) {
+        properties.load(in);
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Replace the checkpoint with the given properties.
+   *
+   * @param properties the properties of the new checkpoint
+   * @throws IOException if the checkpoint cannot be written
+   */
+  void save(Properties properties) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      OutputStream out = Channels.newOutputStream(channel);
+      properties.store(out, null);
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Delete the checkpoint.
+   *
+   * @throws IOException if the checkpoint cannot be deleted
+   */
+  void delete() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Returns the long value of a property.
+   *
+   * @param properties the properties
+   * @param key        the key of the property
+   * @return the value of the property
+   * @throws IOException if the property is missing or malformed
+   */
+  static long getLong(Properties properties, String key) throws IOException {
+    try {
+      return Long.parseLong(properties.getProperty(key));
+    } catch (NumberFormatException e) {
+      throw new IOException("The checkpoint property " + key + " is missing or malformed.");
+    }
+  }
+}
@@ -0,0 +1,297 @@
+package freecell.solver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+
+/**
+ * This class represents a batch job that classifies a range of numbered deals as solved,
+ * unsolvable or undecided. Every deal is first raced by a {@link PortfolioSolver}, and the deals
+ * it does not solve in time are handed to an optional {@link SpillingSearch} that can prove them
+ * unsolvable. The job is meant to run for hours on machines that can be taken away: every few
+ * deals it writes a checkpoint with the ranges of deals done and the counts so far, and a new
+ * classifier over the same directory starts from that checkpoint and skips the deals already done.
+ * The exhaustive search of a deal keeps its own checkpoint in the directory too, so a deal whose
+ * process dies halfway resumes from its last complete layer. A deal whose search runs out of time
+ * or memory is done as undecided and the files of its search are deleted.
+ */
+public final class DealClassifier {
+
+  private static final String CHECKPOINT = "classifier.properties";
+
+  private final PortfolioSolver solver;
+  private final SpillingSearch exhaustive;
+  private final boolean multiMove;
+  private final long timeoutMillis;
+  private final long memoryBytes;
+  private final Path directory;
+  private final int checkpointEvery;
+  private final Checkpoint checkpoint;
+
+  private final TreeMap<Integer, Integer> completed;
+  private long solved;
+  private long unsolvable;
+  private long undecided;
+  private long elapsedMillis;
+
+  /**
+   * Constructs a DealClassifier, resuming from the checkpoint in the given directory if there is
+   * one.
+   *
+   * @param solver          the solver raced on every deal
+   * @param exhaustive      the search of the deals the solver does not solve, or null to leave
+   *                        them undecided
+   * @param multiMove       true to play with multi-card moves
+   * @param timeoutMillis   how long the solver and the exhaustive search may each take for one
+   *                        deal
+   * @param memoryBytes     the memory budget of the exhaustive search
+   * @param directory       the directory of the checkpoints
+   * @param checkpointEvery after how many deals a checkpoint is written
+   * @throws IllegalArgumentException if the solver or directory is null, a limit is not positive
+   *                                  or the checkpoint was written with other rules
+   * @throws IllegalStateException    if the checkpoint cannot be read
+   */
+  public DealClassifier(PortfolioSolver solver, SpillingSearch exhaustive, boolean multiMove,
+                        long timeoutMillis, long memoryBytes, Path directory,
+                        int checkpointEvery)
+          throws IllegalArgumentException, IllegalStateException {
+    if (solver == null || directory == null) {
+      throw new IllegalArgumentException("The solver or directory passed is null.");
+    }
+    if (timeoutMillis <= 0 || memoryBytes <= 0 || checkpointEvery < 1) {
+      throw new IllegalArgumentException("The timeout, memory budget and checkpoint interval "
+              + "must be positive.");
+    }
+    this.solver = solver;
+    this.exhaustive = exhaustive;
+    this.multiMove = multiMove;
+    this.timeoutMillis = timeoutMillis;
+    this.memoryBytes = memoryBytes;
+    this.directory = directory;
+    this.checkpointEvery = checkpointEvery;
+    this.checkpoint = new Checkpoint(directory.resolve(CHECKPOINT));
+    this.completed = new TreeMap<>();
+    try {
+      Files.createDirectories(directory);
+      if (checkpoint.exists()) {
+        resume(checkpoint.load());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("The checkpoint cannot be read.");
+    }
+  }
+
+  /**
+   * Classify every deal of the given range that is not done yet. A checkpoint is written every
+   * few deals and when the range is done or the classification is interrupted.
+   *
+   * @param firstDeal the number of the first deal, starting at 1
+   * @param lastDeal  the number of the last deal, included
+   * @throws IllegalArgumentException if the range is empty or does not start from 1
+   * @throws IllegalStateException    if a checkpoint cannot be written
+   * @throws InterruptedException     if interrupted while solving a deal
+   */
+  public void classify(int firstDeal, int lastDeal)
+          throws IllegalArgumentException, IllegalStateException, InterruptedException {
+    if (firstDeal < 1 || lastDeal < firstDeal) {
+      throw new IllegalArgumentException("The range of deals is invalid.");
+    }
+    int sinceCheckpoint = 0;
+    try {
+      for (int deal = firstDeal; deal <= lastDeal; deal++) {
+        if (isCompleted(deal)) {
+          deal = completed.floorEntry(deal).getValue();
+          continue;
+        }
+        long start = System.nanoTime();
+        classify(deal);
+        elapsedMillis = elapsedMillis + (System.nanoTime() - start) / 1_000_000;
+        markCompleted(deal);
+        sinceCheckpoint = sinceCheckpoint + 1;
+        if (sinceCheckpoint == checkpointEvery) {
+          save();
+          sinceCheckpoint = 0;
+        }
+      }
+    } finally {
+      if (sinceCheckpoint > 0) {
+        save();
+      }
+    }
+  }
+
+  /**
+   * Returns true if the given deal was classified, in this run or before the checkpoint.
+   *
+   * @param deal the number of the deal
+   * @return true if the deal was classified
+   */
+  public boolean isCompleted(int deal) {
+    Map.Entry<Integer, Integer> range = completed.floorEntry(deal);
+    return range != null && range.getValue() >= deal;
+  }
+
+  /**
+   * Returns the ranges of deals classified, like 1-500,601-700.
+   *
+   * @return the ranges of deals classified
+   */
+  public String getCompletedRanges() {
+    StringBuilder ranges = new StringBuilder();
+    for (Map.Entry<Integer, Integer> range : completed.entrySet()) {
+      if (ranges.length() > 0) {
+        ranges.append(',');
+      }
+      ranges.append(range.getKey()).append('-').append(range.getValue());
+    }
+    return ranges.toString();
+  }
+
+  /**
+   * Returns the number of deals solved.
+   *
+   * @return the number of deals solved
+   */
+  public long getSolved() {
+    return solved;
+  }
+
+  /**
+   * Returns the number of deals proved unsolvable.
+   *
+   * @return the number of deals proved unsolvable
+   */
+  public long getUnsolvable() {
+    return unsolvable;
+  }
+
+  /**
+   * Returns the number of deals neither solved nor proved unsolvable in time.
+   *
+   * @return the number of deals left undecided
+   */
+  public long getUndecided() {
+    return undecided;
+  }
+
+  /**
+   * Returns the time spent classifying deals, in milliseconds, over every run.
+   *
+   * @return the time spent classifying deals
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * Classify one deal and count its class.
+   *
+   * @param deal the number of the deal
+   * @throws InterruptedException if interrupted while solving the deal
+   */
+  private void classify(int deal) throws InterruptedException {
+    AbstractFreecellModel model = multiMove ? new FreecellMultiMoveModel(8, 4)
+            : new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(deal), false);
+    Position position = Position.of(model.snapshot());
+    if (solver.solve(position, multiMove, timeoutMillis) != null) {
+      solved = solved + 1;
+      return;
+    }
+    if (exhaustive == null) {
+      undecided = undecided + 1;
+      return;
+    }
+    SearchContext context = new SearchContext(multiMove, new MemoryBudget(memoryBytes),
+            timeoutMillis);
+    Path searchDirectory = directory.resolve("deal-" + deal);
+    switch (exhaustive.search(position, context, searchDirectory).getOutcome()) {
+      case SOLVED:
+        solved = solved + 1;
+        break;
+      case UNSOLVABLE:
+        unsolvable = unsolvable + 1;
+        break;
+      default:
+        //the deal is done as undecided, so the files of its search are never resumed
+        SpillingSearch.deleteQuietly(searchDirectory);
+        undecided = undecided + 1;
+        break;
+    }
+  }
+
+  /**
+   * Add a deal to the ranges of deals classified, joining the ranges it touches.
+   *
+   * @param deal the number of the deal
+   */
+  private void markCompleted(int deal) {
+    int first = deal;
+    int last = deal;
+    Map.Entry<Integer, Integer> before = completed.floorEntry(deal - 1);
+    if (before != null && before.getValue() == deal - 1) {
+      first = before.getKey();
+    }
+    Integer after = completed.get(deal + 1);
+    if (after != null) {
+      last = after;
+      completed.remove(deal + 1);
+    }
+    completed.put(first, last);
+  }
+
+  /**
+   * Write a checkpoint of the ranges of deals classified and the counts so far.
+   *
+   * @throws IllegalStateException if the checkpoint cannot be written
+   */
+  private void save() throws IllegalStateException {
+    Properties properties = new Properties();
+    properties.setProperty("multiMove", String.valueOf(multiMove));
+    properties.setProperty("completed", getCompletedRanges());
+    properties.setProperty("solved", String.valueOf(solved));
+    properties.setProperty("unsolvable", String.valueOf(unsolvable));
+    properties.setProperty("undecided", String.valueOf(undecided));
+    properties.setProperty("elapsedMillis", String.valueOf(elapsedMillis));
+    try {
+      checkpoint.save(properties);
+    } catch (IOException e) {
+      throw new IllegalStateException("The checkpoint cannot be written.");
+    }
+  }
+
+  /**
+   * Read back the ranges of deals classified and the counts of a checkpoint.
+   *
+   * @param properties the properties of the checkpoint
+   * @throws IOException              if the checkpoint is malformed
+   * @throws IllegalArgumentException if the checkpoint was written with other rules
+   */
+  private void resume(Properties properties) throws IOException, IllegalArgumentException {
+    if (!String.valueOf(multiMove).equals(properties.getProperty("multiMove"))) {
+      throw new IllegalArgumentException("The checkpoint was written with other rules.");
+    }
+    String ranges = properties.getProperty("completed", "");
+    try {
+      for (String range : ranges.isEmpty() ? new String[0] : ranges.split(",")) {
+        int dash = range.indexOf('-');
+        completed.put(Integer.parseInt(range.substring(0, dash)),
+                Integer.parseInt(range.substring(dash + 1)));
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("The completed deals of the checkpoint are malformed.");
+    }
+    solved = Checkpoint.getLong(properties, "solved");
+    unsolvable = Checkpoint.getLong(properties, "unsolvable");
+    undecided = Checkpoint.getLong(properties, "undecided");
+    elapsedMillis = Checkpoint.getLong(properties, "elapsedMillis");
+  }
+}
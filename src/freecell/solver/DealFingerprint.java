@@ -0,0 +1,177 @@
+package freecell.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import freecell.model.Cards;
+
+/**
+ * This class represents the fingerprint of a deal that is the same for every deal reached by
+ * relabeling the suits without breaking the colours: swapping ♣ and ♠, swapping ♦ and ♥, or
+ * swapping the black pair with the red pair. Such deals play the same, because the rules only
+ * look at colours, values and whether two cards share a suit. The fingerprint is the smallest of
+ * the 8 relabeled deals, and it remembers which relabeling leads to it, so cards can be mapped
+ * between the deal and its canonical form.
+ */
+public final class DealFingerprint {
+
+  private static final int[][] RELABELINGS = relabelings();
+
+  private final byte[] canonical;
+  private final int[] toCanonical;
+  private final int[] fromCanonical;
+  private final long hash;
+
+  /**
+   * Constructs a DealFingerprint.
+   *
+   * @param canonical   the codes of the cards of the canonical deal, in dealing order
+   * @param toCanonical for every suit of the deal, its suit in the canonical deal
+   */
+  private DealFingerprint(byte[] canonical, int[] toCanonical) {
+    this.canonical = canonical;
+    this.toCanonical = toCanonical;
+    this.fromCanonical = new int[4];
+    for (int suit = 0; suit < 4; suit++) {
+      fromCanonical[toCanonical[suit]] = suit;
+    }
+    long h = 0xCBF29CE484222325L;
+    for (byte code : canonical) {
+      h = (h ^ code) * 0x100000001B3L;
+    }
+    this.hash = Position.mix(h);
+  }
+
+  /**
+   * Returns the fingerprint of the given deck, in dealing order.
+   *
+   * @param deck the 52 cards of the deal
+   * @return the fingerprint of the deal
+   * @throws IllegalArgumentException if the deck is null or does not have 52 cards
+   */
+  public static DealFingerprint of(List<Cards> deck) throws IllegalArgumentException {
+    if (deck == null || deck.size() != 52) {
+      throw new IllegalArgumentException("The deck must have 52 cards.");
+    }
+    byte[] codes = new byte[52];
+    for (int i = 0; i < 52; i++) {
+      codes[i] = (byte) deck.get(i).toCode();
+    }
+    byte[] best = null;
+    int[] bestRelabeling = null;
+    byte[] candidate = new byte[52];
+    for (int[] relabeling : RELABELINGS) {
+      for (int i = 0; i < 52; i++) {
+        candidate[i] = (byte) (relabeling[codes[i] / 13] * 13 + codes[i] % 13);
+      }
+      if (best == null || Arrays.compare(candidate, best) < 0) {
+        best = candidate.clone();
+        bestRelabeling = relabeling;
+      }
+    }
+    return new DealFingerprint(best, bestRelabeling);
+  }
+
+  /**
+   * Returns a 64-bit hash of the canonical deal, the same for every isomorphic deal.
+   *
+   * @return the hash of the canonical deal
+   */
+  public long getHash() {
+    return hash;
+  }
+
+  /**
+   * Returns true if the given fingerprint is of a deal isomorphic to this one.
+   *
+   * @param other the other fingerprint
+   * @return true if the deals are isomorphic
+   */
+  public boolean isIsomorphicTo(DealFingerprint other) {
+    return other != null && Arrays.equals(canonical, other.canonical);
+  }
+
+  /**
+   * Returns the given card of the deal relabeled into the canonical deal.
+   *
+   * @param card a card of the deal
+   * @return the same card in the canonical deal
+   */
+  public Cards toCanonical(Cards card) {
+    return relabel(card, toCanonical);
+  }
+
+  /**
+   * Returns the given card of the canonical deal relabeled into the deal.
+   *
+   * @param card a card of the canonical deal
+   * @return the same card in the deal
+   */
+  public Cards fromCanonical(Cards card) {
+    return relabel(card, fromCanonical);
+  }
+
+  /**
+   * Returns the given card of the deal of this fingerprint relabeled into the deal of the other
+   * fingerprint, which must be isomorphic.
+   *
+   * @param card  a card of this deal
+   * @param other the fingerprint of the other deal
+   * @return the same card in the other deal
+   * @throws IllegalArgumentException if the deals are not isomorphic
+   */
+  public Cards remap(Cards card, DealFingerprint other) throws IllegalArgumentException {
+    if (!isIsomorphicTo(other)) {
+      throw new IllegalArgumentException("The deals are not isomorphic.");
+    }
+    return other.fromCanonical(toCanonical(card));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof DealFingerprint && isIsomorphicTo((DealFingerprint) o);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(hash);
+  }
+
+  /**
+   * Returns the given card with its suit relabeled.
+   *
+   * @param card       the card
+   * @param relabeling the new suit of every suit
+   * @return the relabeled card
+   */
+  private static Cards relabel(Cards card, int[] relabeling) {
+    int code = card.toCode();
+    return Cards.fromCode(relabeling[code / 13] * 13 + code % 13);
+  }
+
+  /**
+   * Returns the 8 relabelings of the suits ♣, ♦, ♥, ♠ that keep black suits together and red
+   * suits together.
+   *
+   * @return the relabelings, the identity first
+   */
+  private static int[][] relabelings() {
+    int[][] relabelings = new int[8][];
+    int n = 0;
+    for (int swapColours = 0; swapColours < 2; swapColours++) {
+      for (int swapBlack = 0; swapBlack < 2; swapBlack++) {
+        for (int swapRed = 0; swapRed < 2; swapRed++) {
+          int[] black = swapColours == 0 ? new int[]{0, 3} : new int[]{1, 2};
+          int[] red = swapColours == 0 ? new int[]{1, 2} : new int[]{0, 3};
+          int[] relabeling = new int[4];
+          relabeling[0] = black[swapBlack];
+          relabeling[3] = black[1 - swapBlack];
+          relabeling[1] = red[swapRed];
+          relabeling[2] = red[1 - swapRed];
+          relabelings[n++] = relabeling;
+        }
+      }
+    }
+    return relabelings;
+  }
+}
@@ -0,0 +1,176 @@
+package freecell.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents a depth-first search that tries the moves of every position from the
+ * one leading closest to a win, and never enters a position twice. It keeps only the current line
+ * in memory besides the visited set, which makes it the leanest strategy on deep deals. Given a
+ * {@link TranspositionTable}, it remembers positions there instead, off the heap, and enters a
+ * position again only when it reaches it with fewer moves than before in the same search; the
+ * entries of earlier searches, or of other strategies sharing the table, are never trusted. The
+ * nodes of the current line and of the children still to try are paid from the memory budget of
+ * the search, {@link SearchNode#BYTES} each, and the search gives up when the budget runs out.
+ */
+public final class DepthFirstStrategy implements SolverStrategy {
+
+  private static final int CHECK_INTERVAL = 256;
+
+  private final String name;
+  private final int maxDepth;
+  private final boolean supermoves;
+  private final TranspositionTable table;
+
+  /**
+   * Constructs a DepthFirstStrategy.
+   *
+   * @param name       the name of the strategy
+   * @param maxDepth   the longest line searched
+   * @param supermoves true to use multi-card moves when the game allows them, false to only move
+   *                   one card at a time
+   * @throws IllegalArgumentException if the name is null or the depth is not positive
+   */
+  public DepthFirstStrategy(String name, int maxDepth, boolean supermoves)
+          throws IllegalArgumentException {
+    this(name, maxDepth, supermoves, null);
+  }
+
+  /**
+   * Constructs a DepthFirstStrategy that remembers positions in a transposition table.
+   *
+   * @param name       the name of the strategy
+   * @param maxDepth   the longest line searched, at most 65535
+   * @param supermoves true to use multi-card moves when the game allows them, false to only move
+   *                   one card at a time
+   * @param table      the transposition table, or null to use a visited set on the heap
+   * @throws IllegalArgumentException if the name is null or the depth is not positive
+   */
+  public DepthFirstStrategy(String name, int maxDepth, boolean supermoves,
+                            TranspositionTable table) throws IllegalArgumentException {
+    if (name == null || maxDepth < 1 || maxDepth > 0xFFFF) {
+      throw new IllegalArgumentException("The name cannot be null and the depth must be "
+              + "positive.");
+    }
+    this.name = name;
+    this.maxDepth = maxDepth;
+    this.supermoves = supermoves;
+    this.table = table;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public List<Move> solve(Position position, SearchContext context) {
+    boolean multiMove = supermoves && context.isMultiMove();
+    VisitedSet visited = table == null ? context.newVisitedSet() : null;
+    int age = table == null ? 0 : table.newSearch();
+    MemoryBudget budget = context.getBudget();
+    long reserved = 0;
+    try {
+      enter(visited, age, position.canonicalHash(), 0);
+      Deque<Frame> stack = new ArrayDeque<>();
+      Frame root = new Frame(new SearchNode(position, null, null), multiMove);
+      if (!budget.tryReserve(root.bytes)) {
+        return null;
+      }
+      reserved = root.bytes;
+      stack.push(root);
+      long expanded = 0;
+      while (!stack.isEmpty()) {
+        Frame frame = stack.peek();
+        if (frame.node.position.isSolved()) {
+          return frame.node.line();
+        }
+        if (frame.next == frame.children.size() || frame.node.depth >= maxDepth) {
+          stack.pop();
+          budget.release(frame.bytes);
+          reserved = reserved - frame.bytes;
+          continue;
+        }
+        SearchNode child = frame.children.get(frame.next++);
+        if (!enter(visited, age, child.position.canonicalHash(), child.depth)) {
+          continue;
+        }
+        if (visited != null && visited.isFull()) {
+          return null;
+        }
+        expanded = expanded + 1;
+        if (expanded % CHECK_INTERVAL == 0 && context.isCancelled()) {
+          return null;
+        }
+        Frame next = new Frame(child, multiMove);
+        if (!budget.tryReserve(next.bytes)) {
+          return null;
+        }
+        reserved = reserved + next.bytes;
+        stack.push(next);
+      }
+      return null;
+    } finally {
+      budget.release(reserved);
+      if (visited != null) {
+        visited.clear();
+      }
+    }
+  }
+
+  /**
+   * Record that a position is entered at the given depth.
+   *
+   * @param visited the visited set, or null to use the transposition table
+   * @param age     the age of this search in the transposition table
+   * @param hash    the canonical hash of the position
+   * @param depth   the number of moves that reached it
+   * @return false if the position was already entered, with no more moves when the transposition
+   *         table is used
+   */
+  private boolean enter(VisitedSet visited, int age, long hash, int depth) {
+    if (visited != null) {
+      return visited.add(hash);
+    }
+    long entry = table.probe(hash);
+    if (entry != TranspositionTable.MISS && TranspositionTable.age(entry) == age
+            && TranspositionTable.depth(entry) <= depth) {
+      return false;
+    }
+    table.store(hash, depth, 0, age);
+    return true;
+  }
+
+  /**
+   * This class represents a position on the current line and the children still to try, with
+   * the bytes they are counted for in the budget.
+   */
+  private static final class Frame {
+
+    private final SearchNode node;
+    private final List<SearchNode> children;
+    private final long bytes;
+    private int next;
+
+    /**
+     * Constructs a Frame, ordering the children from the closest to a win.
+     *
+     * @param node      the node
+     * @param multiMove true to use multi-card moves
+     */
+    private Frame(SearchNode node, boolean multiMove) {
+      this.node = node;
+      List<Move> moves = node.position.moves(multiMove);
+      this.children = new ArrayList<>(moves.size());
+      for (Move move : moves) {
+        children.add(new SearchNode(node.position.apply(move), node, move));
+      }
+      children.sort((a, b) -> Integer.compare(a.distance, b.distance));
+      this.bytes = (long) (children.size() + 1) * SearchNode.BYTES;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package freecell.solver;
+
+/**
+ * This class represents an exact visited set: an open-addressing table of hashes that doubles
+ * when it is half full, drawing its memory from a {@link MemoryBudget}. When the budget cannot pay
+ * for the next doubling, the set is full and answers that every new position was reached.
+ */
+public final class HashVisitedSet implements VisitedSet {
+
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  private final MemoryBudget budget;
+  private long[] table;
+  private int size;
+  private boolean full;
+
+  /**
+   * Constructs an empty HashVisitedSet.
+   *
+   * @param budget the memory budget of the set
+   * @throws IllegalArgumentException if the budget is null
+   */
+  public HashVisitedSet(MemoryBudget budget) throws IllegalArgumentException {
+    if (budget == null) {
+      throw new IllegalArgumentException("The budget passed is null.");
+    }
+    this.budget = budget;
+  }
+
+  @Override
+  public boolean add(long hash) {
+    if (hash == 0) {
+      hash = 1;
+    }
+    if (!full && (table == null || (size + 1) * 2 > table.length)) {
+      grow();
+    }
+    if (table == null || (size + 1) * 4 > table.length * 3) {
+      return false;
+    }
+    return insert(hash);
+  }
+
+  @Override
+  public boolean isFull() {
+    return full;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    if (table != null) {
+      budget.release(8L * table.length);
+    }
+    table = null;
+    size = 0;
+    full = false;
+  }
+
+  /**
+   * Insert a hash, never 0, if it is not in the table.
+   *
+   * @param hash the hash
+   * @return true if it was inserted
+   */
+  private boolean insert(long hash) {
+    int mask = table.length - 1;
+    int slot = (int) Position.mix(hash) & mask;
+    while (table[slot] != 0) {
+      if (table[slot] == hash) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = hash;
+    size = size + 1;
+    return true;
+  }
+
+  /**
+   * Double the table, or make the set full if the budget cannot pay for it. A full set still
+   * fills its table up to three slots in four, so lookups always end.
+   */
+  private void grow() {
+    int capacity = table == null ? INITIAL_CAPACITY : table.length * 2;
+    if (capacity < 0 || !budget.tryReserve(8L * capacity)) {
+      full = true;
+      return;
+    }
+    long[] old = table;
+    table = new long[capacity];
+    size = 0;
+    if (old != null) {
+      for (long hash : old) {
+        if (hash != 0) {
+          insert(hash);
+        }
+      }
+      budget.release(8L * old.length);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package freecell.solver;
+
+import java.util.Collections;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents the answer of {@link HintEngine#hint}: the best next move found within
+ * the time given, and the line of play it starts, which wins the game if {@link #isSolution()}.
+ */
+public final class Hint {
+
+  private final List<Move> line;
+  private final boolean solution;
+  private final long nodes;
+
+  /**
+   * Constructs a Hint.
+   *
+   * @param line     the moves of the best line found, the hint first
+   * @param solution true if the line wins the game
+   * @param nodes    the number of positions searched
+   */
+  Hint(List<Move> line, boolean solution, long nodes) {
+    this.line = Collections.unmodifiableList(line);
+    this.solution = solution;
+    this.nodes = nodes;
+  }
+
+  /**
+   * Returns the move to play next, or null if there is no move worth playing.
+   *
+   * @return the move to play next, or null
+   */
+  public Move getMove() {
+    return line.isEmpty() ? null : line.get(0);
+  }
+
+  /**
+   * Returns the moves of the best line found, starting with {@link #getMove()}.
+   *
+   * @return the moves of the best line found
+   */
+  public List<Move> getLine() {
+    return line;
+  }
+
+  /**
+   * Returns true if the line found wins the game.
+   *
+   * @return true if the line wins the game
+   */
+  public boolean isSolution() {
+    return solution;
+  }
+
+  /**
+   * Returns the number of positions searched.
+   *
+   * @return the number of positions searched
+   */
+  public long getNodes() {
+    return nodes;
+  }
+}
@@ -0,0 +1,229 @@
+package freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.BoardSnapshot;
+import freecell.model.Cards;
+import freecell.model.ConcurrentFreecellModel;
+import freecell.model.FreecellOperations;
+import freecell.model.Move;
+
+/**
+ * This class represents a hint engine that answers within a hard time budget. It searches a copy
+ * of the board, never the live model, with beam searches of growing width: a beam keeps only the
+ * most promising positions of every depth, so each search ends quickly, and every wider search
+ * that finishes in time can only improve the answer. The best line found so far is always ready,
+ * starting with the best single move, so the deadline can cut the search at any point.
+ */
+public final class HintEngine {
+
+  private static final int FIRST_WIDTH = 8;
+  private static final int MAX_WIDTH = 1 << 16;
+  private static final int MAX_DEPTH = 300;
+  private static final int CLOCK_CHECK = 64;
+
+  /**
+   * Returns the best next move for the given started game found within the budget. The board and
+   * the rules are read from a copy of the game, which is not changed: a
+   * {@link ConcurrentFreecellModel} is copied under its read lock and any other model under its
+   * monitor, so the game may keep moving on another thread. A game of another implementation only
+   * shows its game state, so it gets hints of single-card moves, which every freecell rule allows.
+   *
+   * @param game         a started game
+   * @param budgetMillis how long the search may take, in milliseconds
+   * @return the hint
+   * @throws IllegalArgumentException if the game is null or not started, does not follow the
+   *                                  freecell rules, or the budget is negative
+   */
+  public Hint hint(FreecellOperations<Cards> game, long budgetMillis)
+          throws IllegalArgumentException {
+    if (game == null) {
+      throw new IllegalArgumentException("The game passed is null.");
+    }
+    BoardSnapshot board;
+    if (game instanceof AbstractFreecellModel) {
+      board = ((AbstractFreecellModel) game).copyBoard();
+    } else if (game instanceof ConcurrentFreecellModel
+            && ((ConcurrentFreecellModel) game).exposesPiles()) {
+      board = ((ConcurrentFreecellModel) game).copyBoard();
+    } else {
+      return hint(Position.parse(game.getGameState()), false, budgetMillis);
+    }
+    return hint(Position.of(board), board.isMultiMove(), budgetMillis);
+  }
+
+  /**
+   * Returns the best next move from the given position found within the budget.
+   *
+   * @param position     the position
+   * @param multiMove    true to follow the rules of the multi-move model
+   * @param budgetMillis how long the search may take, in milliseconds
+   * @return the hint
+   * @throws IllegalArgumentException if the position is null or the budget is negative
+   */
+  public Hint hint(Position position, boolean multiMove, long budgetMillis)
+          throws IllegalArgumentException {
+    if (position == null) {
+      throw new IllegalArgumentException("The position passed is null.");
+    }
+    if (budgetMillis < 0) {
+      throw new IllegalArgumentException("The budget cannot be negative.");
+    }
+    long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+    Search search = new Search(multiMove, deadline);
+    if (position.isSolved()) {
+      return new Hint(Collections.emptyList(), true, 0);
+    }
+
+    //the best single move is the answer until a search does better
+    Node root = new Node(position, null, null, 0);
+    for (Move move : position.moves(multiMove)) {
+      search.offer(new Node(position.apply(move), root, move, 1));
+    }
+
+    for (int width = FIRST_WIDTH; width <= MAX_WIDTH && !search.solved; width = width * 4) {
+      if (!search.beam(root, width)) {
+        break;
+      }
+    }
+    return search.answer();
+  }
+
+  /**
+   * This class represents one position reached by the search and how it was reached.
+   */
+  private static final class Node {
+
+    private final Position position;
+    private final Node parent;
+    private final Move move;
+    private final int depth;
+    private final int distance;
+
+    /**
+     * Constructs a Node.
+     *
+     * @param position the position
+     * @param parent   the node it was reached from, or null for the root
+     * @param move     the move that reached it, or null for the root
+     * @param depth    the number of moves from the root
+     */
+    private Node(Position position, Node parent, Move move, int depth) {
+      this.position = position;
+      this.parent = parent;
+      this.move = move;
+      this.depth = depth;
+      this.distance = position.distance();
+    }
+  }
+
+  /**
+   * This class represents one hint request: its deadline and the best line found so far.
+   */
+  private static final class Search {
+
+    private final boolean multiMove;
+    private final long deadline;
+    private Node best;
+    private boolean solved;
+    private long nodes;
+
+    /**
+     * Constructs a Search.
+     *
+     * @param multiMove true to follow the rules of the multi-move model
+     * @param deadline  the value of {@link System#nanoTime()} when the search must stop
+     */
+    private Search(boolean multiMove, long deadline) {
+      this.multiMove = multiMove;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Keep the given node if it is better than the best so far: a win beats anything, then a
+     * smaller distance, then a shorter line.
+     *
+     * @param node the node
+     */
+    private void offer(Node node) {
+      nodes = nodes + 1;
+      if (solved) {
+        return;
+      }
+      if (node.position.isSolved()) {
+        best = node;
+        solved = true;
+      } else if (best == null || node.distance < best.distance
+              || node.distance == best.distance && node.depth < best.depth) {
+        best = node;
+      }
+    }
+
+    /**
+     * Run one beam search of the given width from the root. The children of a depth go through a
+     * heap that holds the best of them at most, so choosing the next layer never sorts more than
+     * the width of the beam.
+     *
+     * @param root  the root
+     * @param width how many positions are kept at every depth
+     * @return false if the deadline passed
+     */
+    private boolean beam(Node root, int width) {
+      Set<Long> seen = new HashSet<>();
+      seen.add(root.position.canonicalHash());
+      List<Node> layer = new ArrayList<>();
+      layer.add(root);
+      for (int depth = 1; depth <= MAX_DEPTH && !layer.isEmpty(); depth++) {
+        PriorityQueue<Node> next = new PriorityQueue<>(Math.min(width, 1 << 10),
+                (a, b) -> Integer.compare(b.distance, a.distance));
+        for (Node node : layer) {
+          for (Move move : node.position.moves(multiMove)) {
+            Position position = node.position.apply(move);
+            if (!seen.add(position.canonicalHash())) {
+              continue;
+            }
+            Node child = new Node(position, node, move, depth);
+            offer(child);
+            if (solved) {
+              return true;
+            }
+            if (next.size() < width) {
+              next.add(child);
+            } else if (child.distance < next.peek().distance) {
+              next.poll();
+              next.add(child);
+            }
+            if ((nodes % CLOCK_CHECK) == 0 && System.nanoTime() - deadline > 0) {
+              return false;
+            }
+          }
+        }
+        if (System.nanoTime() - deadline > 0) {
+          return false;
+        }
+        layer = new ArrayList<>(next);
+      }
+      return System.nanoTime() - deadline <= 0;
+    }
+
+    /**
+     * Returns the best line found so far as a hint.
+     *
+     * @return the hint
+     */
+    private Hint answer() {
+      List<Move> line = new ArrayList<>();
+      for (Node node = best; node != null && node.move != null; node = node.parent) {
+        line.add(node.move);
+      }
+      Collections.reverse(line);
+      return new Hint(line, solved, nodes);
+    }
+  }
+}
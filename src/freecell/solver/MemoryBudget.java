@@ -0,0 +1,73 @@
+package freecell.solver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents an amount of memory shared by searches running at the same time. A
+ * search reserves memory before it grows and releases it when it ends; once the budget is spent,
+ * reservations fail and the searches give up instead of exhausting the heap.
+ */
+public final class MemoryBudget {
+
+  private final long limit;
+  private final AtomicLong used;
+
+  /**
+   * Constructs a MemoryBudget.
+   *
+   * @param limitBytes the number of bytes that can be reserved at the same time
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public MemoryBudget(long limitBytes) throws IllegalArgumentException {
+    if (limitBytes <= 0) {
+      throw new IllegalArgumentException("The memory budget must be positive.");
+    }
+    this.limit = limitBytes;
+    this.used = new AtomicLong();
+  }
+
+  /**
+   * Reserve the given number of bytes if they are still available.
+   *
+   * @param bytes the number of bytes
+   * @return true if they were reserved
+   */
+  public boolean tryReserve(long bytes) {
+    while (true) {
+      long current = used.get();
+      if (current + bytes > limit) {
+        return false;
+      }
+      if (used.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Give back bytes reserved with {@link #tryReserve(long)}.
+   *
+   * @param bytes the number of bytes
+   */
+  public void release(long bytes) {
+    used.addAndGet(-bytes);
+  }
+
+  /**
+   * Returns the number of bytes reserved now.
+   *
+   * @return the number of bytes reserved
+   */
+  public long getUsed() {
+    return used.get();
+  }
+
+  /**
+   * Returns the number of bytes that can be reserved at the same time.
+   *
+   * @return the limit in bytes
+   */
+  public long getLimit() {
+    return limit;
+  }
+}
@@ -0,0 +1,225 @@
+package freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents the nodes of a search tree stored as parallel columns instead of one
+ * object per node: the parent index, the packed move, the depth, the cost, the canonical hash and
+ * the packed position of every node. A node is just an index, lines are read back by walking the
+ * parent indexes, and positions are unpacked only when a node is expanded. The columns double
+ * when they are full, paid from a {@link MemoryBudget}. The packed positions are kept in pages of
+ * a fixed number of nodes, so their column is never one array too large to index and only new
+ * pages are allocated once the first one is full.
+ */
+public final class NodeArena {
+
+  /**
+   * The parent index and move code of a root node.
+   */
+  public static final int NONE = -1;
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final int PAGE_SHIFT = 14;
+  private static final int PAGE_NODES = 1 << PAGE_SHIFT;
+
+  private final int opensNum;
+  private final int cascadesNum;
+  private final int stride;
+  private final MemoryBudget budget;
+
+  private int[] parents;
+  private int[] moves;
+  private int[] depths;
+  private int[] costs;
+  private long[] hashes;
+  private byte[][] pages;
+  private int size;
+  private int capacity;
+
+  /**
+   * Constructs an empty NodeArena for positions with the given numbers of piles.
+   *
+   * @param opensNum    the number of open piles
+   * @param cascadesNum the number of cascade piles
+   * @param budget      the memory budget of the arena
+   * @throws IllegalArgumentException if the budget is null
+   */
+  public NodeArena(int opensNum, int cascadesNum, MemoryBudget budget)
+          throws IllegalArgumentException {
+    if (budget == null) {
+      throw new IllegalArgumentException("The budget passed is null.");
+    }
+    this.opensNum = opensNum;
+    this.cascadesNum = cascadesNum;
+    this.stride = Position.packedSize(opensNum, cascadesNum);
+    this.budget = budget;
+  }
+
+  /**
+   * Add a node.
+   *
+   * @param parent   the index of the parent node, or {@link #NONE} for a root
+   * @param move     the move from the parent, or null for a root
+   * @param cost     the cost of the node for the search
+   * @param position the position of the node
+   * @return the index of the node, or -1 if the budget cannot pay for more nodes
+   */
+  public int add(int parent, Move move, int cost, Position position) {
+    if (size == capacity && !grow()) {
+      return -1;
+    }
+    int node = size;
+    parents[node] = parent;
+    moves[node] = move == null ? NONE : move.toCode();
+    depths[node] = parent == NONE ? 0 : depths[parent] + 1;
+    costs[node] = cost;
+    hashes[node] = position.canonicalHash();
+    position.writeTo(pages[node >>> PAGE_SHIFT], offset(node));
+    size = size + 1;
+    return node;
+  }
+
+  /**
+   * Returns the number of nodes.
+   *
+   * @return the number of nodes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the index of the parent of a node, or {@link #NONE} for a root.
+   *
+   * @param node the index of the node
+   * @return the index of the parent
+   */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  /**
+   * Returns the number of moves from the root to a node.
+   *
+   * @param node the index of the node
+   * @return the depth of the node
+   */
+  public int getDepth(int node) {
+    return depths[node];
+  }
+
+  /**
+   * Returns the cost of a node.
+   *
+   * @param node the index of the node
+   * @return the cost of the node
+   */
+  public int getCost(int node) {
+    return costs[node];
+  }
+
+  /**
+   * Returns the canonical hash of the position of a node.
+   *
+   * @param node the index of the node
+   * @return the canonical hash
+   */
+  public long getHash(int node) {
+    return hashes[node];
+  }
+
+  /**
+   * Returns the position of a node, unpacked.
+   *
+   * @param node the index of the node
+   * @return the position of the node
+   */
+  public Position getPosition(int node) {
+    return Position.readFrom(pages[node >>> PAGE_SHIFT], offset(node), opensNum, cascadesNum);
+  }
+
+  /**
+   * Returns where the packed position of a node starts in its page.
+   *
+   * @param node the index of the node
+   * @return the offset in the page
+   */
+  private int offset(int node) {
+    return (node & (PAGE_NODES - 1)) * stride;
+  }
+
+  /**
+   * Returns the moves from the root to a node.
+   *
+   * @param node the index of the node
+   * @return the moves from the root
+   */
+  public List<Move> line(int node) {
+    List<Move> line = new ArrayList<>(depths[node]);
+    for (int at = node; parents[at] != NONE; at = parents[at]) {
+      line.add(Move.fromCode(moves[at]));
+    }
+    Collections.reverse(line);
+    return line;
+  }
+
+  /**
+   * Drop every node and give back the memory of the arena to the budget.
+   */
+  public void clear() {
+    budget.release(bytes(capacity));
+    parents = null;
+    moves = null;
+    depths = null;
+    costs = null;
+    hashes = null;
+    pages = null;
+    size = 0;
+    capacity = 0;
+  }
+
+  /**
+   * Double the columns, adding pages of positions once the first page is full, if the budget can
+   * pay for it.
+   *
+   * @return true if the columns have room for one more node
+   */
+  private boolean grow() {
+    int grown = capacity == 0 ? INITIAL_CAPACITY : capacity * 2;
+    if (grown < 0 || !budget.tryReserve(bytes(grown) - bytes(capacity))) {
+      return false;
+    }
+    parents = parents == null ? new int[grown] : Arrays.copyOf(parents, grown);
+    moves = moves == null ? new int[grown] : Arrays.copyOf(moves, grown);
+    depths = depths == null ? new int[grown] : Arrays.copyOf(depths, grown);
+    costs = costs == null ? new int[grown] : Arrays.copyOf(costs, grown);
+    hashes = hashes == null ? new long[grown] : Arrays.copyOf(hashes, grown);
+    if (grown <= PAGE_NODES) {
+      pages = new byte[][]{pages == null ? new byte[grown * stride]
+              : Arrays.copyOf(pages[0], grown * stride)};
+    } else {
+      int filled = pages.length;
+      pages = Arrays.copyOf(pages, grown / PAGE_NODES);
+      for (int i = filled; i < pages.length; i++) {
+        pages[i] = new byte[PAGE_NODES * stride];
+      }
+    }
+    capacity = grown;
+    return true;
+  }
+
+  /**
+   * Returns the number of bytes of the columns for the given number of nodes.
+   *
+   * @param nodes the number of nodes
+   * @return the number of bytes
+   */
+  private long bytes(int nodes) {
+    return (long) nodes * (4 + 4 + 4 + 4 + 8 + stride);
+  }
+}
@@ -0,0 +1,168 @@
+package freecell.solver;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import freecell.model.Move;
+
+/**
+ * This class represents a solver that races several strategies on the same position. Every
+ * strategy runs on its own virtual thread when the runtime supports them, and on a daemon
+ * platform thread otherwise. The first solution found wins and the other strategies are cancelled
+ * through their shared {@link SearchContext}, whose memory budget they all draw from.
+ */
+public final class PortfolioSolver {
+
+  private final List<SolverStrategy> strategies;
+  private final long memoryBytes;
+  private final double falsePositiveRate;
+
+  /**
+   * Constructs a PortfolioSolver.
+   *
+   * @param strategies  the strategies to race
+   * @param memoryBytes the memory budget shared by the strategies of one solve
+   * @throws IllegalArgumentException if there are no strategies or the budget is not positive
+   */
+  public PortfolioSolver(List<SolverStrategy> strategies, long memoryBytes)
+          throws IllegalArgumentException {
+    this(strategies, memoryBytes, 0);
+  }
+
+  /**
+   * Constructs a PortfolioSolver whose strategies remember positions in Bloom filters, which
+   * lets them reach many more positions in the same memory but may make them miss a solution.
+   *
+   * @param strategies        the strategies to race
+   * @param memoryBytes       the memory budget shared by the strategies of one solve
+   * @param falsePositiveRate the false positive rate of the visited sets, or 0 for exact sets
+   * @throws IllegalArgumentException if there are no strategies, the budget is not positive or
+   *                                  the rate is not at least 0 and below 1
+   */
+  public PortfolioSolver(List<SolverStrategy> strategies, long memoryBytes,
+                         double falsePositiveRate) throws IllegalArgumentException {
+    if (strategies == null || strategies.isEmpty() || strategies.contains(null)) {
+      throw new IllegalArgumentException("There must be at least one strategy.");
+    }
+    if (memoryBytes <= 0) {
+      throw new IllegalArgumentException("The memory budget must be positive.");
+    }
+    if (!(falsePositiveRate >= 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("The false positive rate must be at least 0 and below "
+              + "1.");
+    }
+    this.strategies = new ArrayList<>(strategies);
+    this.memoryBytes = memoryBytes;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * Returns a PortfolioSolver racing a greedy search, a weighted A* and a depth-first search,
+   * each with and without multi-card moves. Without multi-card moves the solutions also play on
+   * the single-move model.
+   *
+   * @param memoryBytes the memory budget shared by the strategies of one solve
+   * @return the solver
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public static PortfolioSolver standard(long memoryBytes) throws IllegalArgumentException {
+    return standard(memoryBytes, 0);
+  }
+
+  /**
+   * Returns the standard PortfolioSolver with visited sets of the given false positive rate.
+   *
+   * @param memoryBytes       the memory budget shared by the strategies of one solve
+   * @param falsePositiveRate the false positive rate of the visited sets, or 0 for exact sets
+   * @return the solver
+   * @throws IllegalArgumentException if the budget is not positive or the rate is not at least 0
+   *                                  and below 1
+   */
+  public static PortfolioSolver standard(long memoryBytes, double falsePositiveRate)
+          throws IllegalArgumentException {
+    List<SolverStrategy> strategies = new ArrayList<>();
+    strategies.add(new BestFirstStrategy("greedy", 0, 1, true));
+    strategies.add(new BestFirstStrategy("weighted-a*", 1, 3, true));
+    strategies.add(new DepthFirstStrategy("depth-first", 400, true));
+    strategies.add(new BestFirstStrategy("greedy-atomic", 0, 1, false));
+    strategies.add(new BestFirstStrategy("weighted-a*-atomic", 1, 3, false));
+    strategies.add(new DepthFirstStrategy("depth-first-atomic", 400, false));
+    return new PortfolioSolver(strategies, memoryBytes, falsePositiveRate);
+  }
+
+  /**
+   * Race the strategies on the given position and return the first solution found.
+   *
+   * @param position      the position to solve
+   * @param multiMove     true if the game allows multi-card moves
+   * @param timeoutMillis how long to search, in milliseconds
+   * @return the first solution found, or null if no strategy found one in time
+   * @throws IllegalArgumentException if the position is null or the timeout is negative
+   * @throws InterruptedException     if interrupted while waiting
+   */
+  public Solution solve(Position position, boolean multiMove, long timeoutMillis)
+          throws IllegalArgumentException, InterruptedException {
+    if (position == null) {
+      throw new IllegalArgumentException("The position passed is null.");
+    }
+    SearchContext context = new SearchContext(multiMove, new MemoryBudget(memoryBytes),
+            timeoutMillis, falsePositiveRate);
+    ExecutorService executor = newStrategyExecutor();
+    try {
+      CompletionService<Solution> race = new ExecutorCompletionService<>(executor);
+      for (SolverStrategy strategy : strategies) {
+        race.submit(() -> {
+          List<Move> moves = strategy.solve(position, context);
+          return moves == null ? null : new Solution(moves, strategy.getName());
+        });
+      }
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      for (int i = 0; i < strategies.size(); i++) {
+        Future<Solution> done = race.poll(Math.max(0, deadline - System.nanoTime()),
+                TimeUnit.NANOSECONDS);
+        if (done == null) {
+          return null;
+        }
+        try {
+          Solution solution = done.get();
+          if (solution != null) {
+            return solution;
+          }
+        } catch (ExecutionException e) {
+          //this strategy failed, the others may still succeed
+        }
+      }
+      return null;
+    } finally {
+      context.cancel();
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Returns an executor that runs every task on a new virtual thread, or on a new daemon
+   * platform thread if the runtime has no virtual threads.
+   *
+   * @return the executor of the strategies
+   */
+  private static ExecutorService newStrategyExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "freecell-solver");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
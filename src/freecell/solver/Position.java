@@ -0,0 +1,587 @@
+package freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import freecell.model.BoardSnapshot;
+import freecell.model.Move;
+import freecell.model.PileType;
+import freecell.model.RuleTables;
+import freecell.model.RuleVariant;
+
+/**
+ * This class represents an immutable position of a game of freecell as seen by a solver: the codes
+ * of the cards of every pile, foundations first, then opens, then cascades, like
+ * {@link BoardSnapshot}. Within each type of pile the order of the piles does not matter for the
+ * rules, so two positions that only differ by such an order are equivalent: they have the same
+ * {@link #canonicalHash()} and the same {@link #canonicalize() canonical form}.
+ *
+ * <p>A position also knows the rules of both models, so a search can list the moves of a position
+ * and play them without a model. It only lists the moves worth searching: no card leaves a
+ * foundation, only aces go to an empty foundation, and among empty open or cascade piles only the
+ * first one is tried, since the others lead to equivalent positions.
+ */
+public final class Position {
+
+  private static final int EMPTY_KEY = 0xFF;
+
+  private final int opensNum;
+  private final int cascadesNum;
+  private final byte[][] piles;
+
+  private final long hash;
+
+  /**
+   * Constructs a Position. The pile arrays are never modified after this.
+   *
+   * @param opensNum    the number of open piles
+   * @param cascadesNum the number of cascade piles
+   * @param piles       the codes of the cards of every pile: foundations, opens, then cascades
+   */
+  Position(int opensNum, int cascadesNum, byte[][] piles) {
+    this.opensNum = opensNum;
+    this.cascadesNum = cascadesNum;
+    this.piles = piles;
+    long h = 0;
+    for (int i = 0; i < piles.length; i++) {
+      long group = i < 4 ? 0x9E3779B97F4A7C15L : i < 4 + opensNum ? 0xC2B2AE3D27D4EB4FL
+              : 0x165667B19E3779F9L;
+      h = h + mix(pileHash(piles[i]) ^ group);
+    }
+    this.hash = mix(h ^ ((long) opensNum << 32 | cascadesNum));
+  }
+
+  /**
+   * Returns the position of the board in the given snapshot.
+   *
+   * @param snapshot the snapshot of a started game
+   * @return the position of the board
+   * @throws IllegalArgumentException if the snapshot is null, the game had not started or it does
+   *                                  not follow the freecell rules
+   */
+  public static Position of(BoardSnapshot snapshot) throws IllegalArgumentException {
+    if (snapshot == null || !snapshot.isStarted()) {
+      throw new IllegalArgumentException("The snapshot must be of a started game.");
+    }
+    if (!snapshot.getVariant().isFreecell()) {
+      throw new IllegalArgumentException("The solver only follows the freecell rules.");
+    }
+    int opens = snapshot.getOpensNum();
+    int cascades = snapshot.getCascadesNum();
+    byte[][] piles = new byte[4 + opens + cascades][];
+    for (int i = 0; i < piles.length; i++) {
+      PileType type = typeOf(i, opens);
+      int number = numberOf(i, opens);
+      piles[i] = new byte[snapshot.getPileSize(type, number)];
+      for (int j = 0; j < piles[i].length; j++) {
+        piles[i][j] = (byte) snapshot.getCard(type, number, j).toCode();
+      }
+    }
+    return new Position(opens, cascades, piles);
+  }
+
+  /**
+   * Returns the position written in the given game state, formatted like
+   * {@link freecell.model.FreecellOperations#getGameState()}. This reads the board of any model
+   * without touching it.
+   *
+   * @param state the game state of a started game
+   * @return the position of the board
+   * @throws IllegalArgumentException if the state is malformed
+   */
+  public static Position parse(String state) throws IllegalArgumentException {
+    if (state == null || state.isEmpty()) {
+      throw new IllegalArgumentException("The state must be of a started game.");
+    }
+    String[] lines = state.split("\n");
+    int opens = 0;
+    for (String line : lines) {
+      if (line.startsWith("O")) {
+        opens = opens + 1;
+      }
+    }
+    if (lines.length < 4 + opens || opens == 0) {
+      throw new IllegalArgumentException("The state is malformed.");
+    }
+    byte[][] piles = new byte[lines.length][];
+    for (int i = 0; i < lines.length; i++) {
+      int colon = lines[i].indexOf(':');
+      if (colon < 0 || lines[i].charAt(0) != "FOC".charAt(i < 4 ? 0 : i < 4 + opens ? 1 : 2)) {
+        throw new IllegalArgumentException("The state is malformed.");
+      }
+      String cards = lines[i].substring(colon + 1).trim();
+      String[] names = cards.isEmpty() ? new String[0] : cards.split(",\\s*");
+      piles[i] = new byte[names.length];
+      for (int j = 0; j < names.length; j++) {
+        piles[i][j] = (byte) parseCard(names[j]);
+      }
+    }
+    return new Position(opens, lines.length - 4 - opens, piles);
+  }
+
+  /**
+   * Returns the code of the card written like {@link freecell.model.Cards#toString()}.
+   *
+   * @param name the card, like A♣ or 10♥
+   * @return the code of the card
+   * @throws IllegalArgumentException if the card is malformed
+   */
+  private static int parseCard(String name) throws IllegalArgumentException {
+    if (name.length() < 2) {
+      throw new IllegalArgumentException("The state is malformed.");
+    }
+    int suit = "♣♦♥♠".indexOf(name.charAt(name.length() - 1));
+    String value = name.substring(0, name.length() - 1);
+    int number = value.equals("10") ? 10 : value.length() == 1
+            ? "A23456789TJQK".indexOf(value.charAt(0)) + 1 : 0;
+    if (suit < 0 || number < 1) {
+      throw new IllegalArgumentException("The state is malformed.");
+    }
+    return suit * 13 + number - 1;
+  }
+
+  /**
+   * Returns the number of open piles.
+   *
+   * @return the number of open piles
+   */
+  public int getOpensNum() {
+    return opensNum;
+  }
+
+  /**
+   * Returns the number of cascade piles.
+   *
+   * @return the number of cascade piles
+   */
+  public int getCascadesNum() {
+    return cascadesNum;
+  }
+
+  /**
+   * Returns the number of cards in the given pile.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the number of cards in the pile
+   * @throws IllegalArgumentException if there is no such pile
+   */
+  public int getPileSize(PileType type, int pileNumber) throws IllegalArgumentException {
+    return piles[index(type, pileNumber)].length;
+  }
+
+  /**
+   * Returns the code of the card at the given index of the given pile, as returned by
+   * {@link freecell.model.Cards#toCode()}.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @param cardIndex  the index of the card, starting at 0 from the bottom of the pile
+   * @return the code of the card
+   * @throws IllegalArgumentException if there is no such pile or card
+   */
+  public int getCardCode(PileType type, int pileNumber, int cardIndex)
+          throws IllegalArgumentException {
+    byte[] pile = piles[index(type, pileNumber)];
+    if (cardIndex < 0 || cardIndex >= pile.length) {
+      throw new IllegalArgumentException("There is no such card.");
+    }
+    return pile[cardIndex];
+  }
+
+  /**
+   * Returns a hash of this position that does not depend on the order of the foundation piles,
+   * of the open piles or of the cascade piles. Every pile is hashed on its own and the hashes of
+   * the piles of one type are added when the position is built, so no sorting is needed.
+   *
+   * @return the canonical hash of this position
+   */
+  public long canonicalHash() {
+    return hash;
+  }
+
+  /**
+   * Returns the canonical form of this position: the piles of every type sorted by their bottom
+   * card, empty piles last, with the permutation that maps it back to this position. Equivalent
+   * positions have equal canonical forms.
+   *
+   * @return the canonical form of this position
+   */
+  public CanonicalPosition canonicalize() {
+    int[] order = new int[piles.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    sortGroup(order, 0, 4);
+    sortGroup(order, 4, 4 + opensNum);
+    sortGroup(order, 4 + opensNum, order.length);
+    byte[][] sorted = new byte[piles.length][];
+    for (int i = 0; i < order.length; i++) {
+      sorted[i] = piles[order[i]];
+    }
+    return new CanonicalPosition(new Position(opensNum, cascadesNum, sorted), order);
+  }
+
+  /**
+   * Returns true if every card is on the foundations, each foundation from its ace to its king.
+   *
+   * @return true if the position is won
+   */
+  public boolean isSolved() {
+    for (int i = 0; i < 4; i++) {
+      if (piles[i].length != 13 || piles[i][0] % 13 != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the moves worth searching from this position under the rules of the single-move or
+   * multi-move model. Every move returned is accepted by the matching model.
+   *
+   * @param multiMove true to follow the rules of the multi-move model
+   * @return the moves of this position
+   */
+  public List<Move> moves(boolean multiMove) {
+    List<Move> moves = new ArrayList<>();
+    int firstCascade = 4 + opensNum;
+    int freeOpen = -1;
+    int freeOpens = 0;
+    int emptyCascade = -1;
+    int emptyCascades = 0;
+    for (int i = 4; i < piles.length; i++) {
+      if (piles[i].length == 0) {
+        if (i < firstCascade) {
+          freeOpen = freeOpen < 0 ? i : freeOpen;
+          freeOpens = freeOpens + 1;
+        } else {
+          emptyCascade = emptyCascade < 0 ? i : emptyCascade;
+          emptyCascades = emptyCascades + 1;
+        }
+      }
+    }
+    int capacity = multiMove
+            ? RuleVariant.FREECELL_MULTI_MOVE.maxMovableCards(freeOpens, emptyCascades) : 1;
+
+    for (int from = 4; from < piles.length; from++) {
+      byte[] source = piles[from];
+      if (source.length == 0) {
+        continue;
+      }
+      int top = source.length - 1;
+      int card = source[top];
+
+      int foundation = foundationFor(card);
+      if (foundation >= 0) {
+        moves.add(move(from, top, foundation));
+      }
+      if (from >= firstCascade && freeOpen >= 0) {
+        moves.add(move(from, top, freeOpen));
+      }
+
+      int lowest = top;
+      if (multiMove) {
+        while (lowest > 0 && top - lowest + 1 < capacity && stacks(source[lowest],
+                source[lowest - 1])) {
+          lowest--;
+        }
+      }
+      for (int index = top; index >= lowest; index--) {
+        for (int to = firstCascade; to < piles.length; to++) {
+          if (to == from) {
+            continue;
+          }
+          byte[] destination = piles[to];
+          if (destination.length == 0) {
+            if (to == emptyCascade && !(from >= firstCascade && index == 0)) {
+              moves.add(move(from, index, to));
+            }
+          } else if (stacks(source[index], destination[destination.length - 1])) {
+            moves.add(move(from, index, to));
+          }
+        }
+      }
+    }
+    return moves;
+  }
+
+  /**
+   * Returns the position reached by playing the given move, which must be one of
+   * {@link #moves(boolean)}. Only the two piles the move touches are copied; the others are
+   * shared with this position.
+   *
+   * @param move the move to play
+   * @return the position after the move
+   */
+  public Position apply(Move move) {
+    int from = index(move.getSource(), move.getPileNumber());
+    int to = index(move.getDestination(), move.getDestPileNumber());
+    byte[] source = piles[from];
+    byte[] destination = piles[to];
+    int count = source.length - move.getCardIndex();
+    byte[][] next = piles.clone();
+    next[from] = Arrays.copyOf(source, move.getCardIndex());
+    next[to] = Arrays.copyOf(destination, destination.length + count);
+    System.arraycopy(source, move.getCardIndex(), next[to], destination.length, count);
+    return new Position(opensNum, cascadesNum, next);
+  }
+
+  /**
+   * Returns an estimate of how far this position is from being won, lower is closer: two points
+   * for every card not on a foundation, one point for every card covering the next card a
+   * foundation needs, and a point off for every free open or empty cascade pile.
+   *
+   * @return the estimate
+   */
+  public int distance() {
+    int[] next = new int[4];
+    int onFoundations = 0;
+    for (int i = 0; i < 4; i++) {
+      onFoundations = onFoundations + piles[i].length;
+      if (piles[i].length > 0) {
+        int top = piles[i][piles[i].length - 1];
+        next[top / 13] = Math.max(next[top / 13], top % 13 + 1);
+      }
+    }
+    int distance = 2 * (52 - onFoundations);
+    for (int i = 4; i < piles.length; i++) {
+      byte[] pile = piles[i];
+      if (pile.length == 0) {
+        distance = distance - 1;
+        continue;
+      }
+      for (int j = 0; j < pile.length; j++) {
+        if (pile[j] % 13 == next[pile[j] / 13]) {
+          distance = distance + pile.length - 1 - j;
+        }
+      }
+    }
+    return distance;
+  }
+
+  /**
+   * Returns the index of the foundation the given card can go to, or -1 if none.
+   *
+   * @param card the code of the card
+   * @return the index of the foundation, or -1
+   */
+  private int foundationFor(int card) {
+    for (int i = 0; i < 4; i++) {
+      byte[] foundation = piles[i];
+      if (foundation.length == 0) {
+        if (card % 13 == 0) {
+          return i;
+        }
+      } else if (RuleTables.nextOnFoundation(foundation[foundation.length - 1]) == card) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns true if the given card can be put on the other card of a cascade: one red and one
+   * black, with the card one value lower.
+   *
+   * @param card  the code of the card put on top
+   * @param under the code of the card below
+   * @return true if the card stacks on the other
+   */
+  static boolean stacks(int card, int under) {
+    return RuleVariant.FREECELL.canStack(card, under);
+  }
+
+  /**
+   * Returns the move of the card at the given index of a pile to another pile, both given by
+   * their index among all piles.
+   *
+   * @param from  the index of the source pile
+   * @param index the index of the card
+   * @param to    the index of the destination pile
+   * @return the move
+   */
+  private Move move(int from, int index, int to) {
+    return new Move(typeOf(from, opensNum), numberOf(from, opensNum), index,
+            typeOf(to, opensNum), numberOf(to, opensNum));
+  }
+
+  /**
+   * Returns the number of bytes {@link #writeTo} takes for a position with the given numbers of
+   * piles: one length per pile and one code per card.
+   *
+   * @param opensNum    the number of open piles
+   * @param cascadesNum the number of cascade piles
+   * @return the number of bytes of a packed position
+   */
+  static int packedSize(int opensNum, int cascadesNum) {
+    return 4 + opensNum + cascadesNum + 52;
+  }
+
+  /**
+   * Pack this position into the given array: the length of every pile, then the codes of the
+   * cards pile after pile.
+   *
+   * @param bytes  the array
+   * @param offset where to start writing
+   */
+  void writeTo(byte[] bytes, int offset) {
+    int at = offset + piles.length;
+    for (int i = 0; i < piles.length; i++) {
+      bytes[offset + i] = (byte) piles[i].length;
+      System.arraycopy(piles[i], 0, bytes, at, piles[i].length);
+      at = at + piles[i].length;
+    }
+  }
+
+  /**
+   * Returns the position packed by {@link #writeTo} at the given offset.
+   *
+   * @param bytes       the array
+   * @param offset      where the packed position starts
+   * @param opensNum    the number of open piles
+   * @param cascadesNum the number of cascade piles
+   * @return the position
+   */
+  static Position readFrom(byte[] bytes, int offset, int opensNum, int cascadesNum) {
+    byte[][] piles = new byte[4 + opensNum + cascadesNum][];
+    int at = offset + piles.length;
+    for (int i = 0; i < piles.length; i++) {
+      piles[i] = Arrays.copyOfRange(bytes, at, at + bytes[offset + i]);
+      at = at + piles[i].length;
+    }
+    return new Position(opensNum, cascadesNum, piles);
+  }
+
+  /**
+   * Returns the codes of the cards of every pile. The arrays must not be modified.
+   *
+   * @return the codes of the cards of every pile
+   */
+  byte[][] piles() {
+    return piles;
+  }
+
+  /**
+   * Returns the index of the given pile among all piles.
+   *
+   * @param type       the type of the pile
+   * @param pileNumber the pile number of the given type, starting at 0
+   * @return the index of the pile
+   * @throws IllegalArgumentException if there is no such pile
+   */
+  int index(PileType type, int pileNumber) throws IllegalArgumentException {
+    int count = type == PileType.FOUNDATION ? 4 : type == PileType.OPEN ? opensNum : cascadesNum;
+    if (type == null || pileNumber < 0 || pileNumber >= count) {
+      throw new IllegalArgumentException("There is no such pile.");
+    }
+    return (type == PileType.FOUNDATION ? 0 : type == PileType.OPEN ? 4 : 4 + opensNum)
+            + pileNumber;
+  }
+
+  /**
+   * Returns the type of the pile with the given index among all piles.
+   *
+   * @param index    the index of the pile
+   * @param opensNum the number of open piles
+   * @return the type of the pile
+   */
+  static PileType typeOf(int index, int opensNum) {
+    return index < 4 ? PileType.FOUNDATION : index < 4 + opensNum ? PileType.OPEN
+            : PileType.CASCADE;
+  }
+
+  /**
+   * Returns the pile number, within its type, of the pile with the given index among all piles.
+   *
+   * @param index    the index of the pile
+   * @param opensNum the number of open piles
+   * @return the pile number within its type
+   */
+  static int numberOf(int index, int opensNum) {
+    return index < 4 ? index : index < 4 + opensNum ? index - 4 : index - 4 - opensNum;
+  }
+
+  /**
+   * Sort a range of pile indexes by the bottom card of their piles, empty piles last. The ranges
+   * are a handful of piles, so an insertion sort is the cheapest.
+   *
+   * @param order the pile indexes
+   * @param from  the first index of the range
+   * @param to    the end of the range, exclusive
+   */
+  private void sortGroup(int[] order, int from, int to) {
+    for (int i = from + 1; i < to; i++) {
+      int pile = order[i];
+      int key = key(pile);
+      int j = i - 1;
+      while (j >= from && key(order[j]) > key) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = pile;
+    }
+  }
+
+  /**
+   * Returns the sort key of a pile: the code of its bottom card, or more than any code if it is
+   * empty. Bottom cards are unique, so non-empty piles never tie.
+   *
+   * @param pile the index of the pile
+   * @return the sort key of the pile
+   */
+  private int key(int pile) {
+    return piles[pile].length == 0 ? EMPTY_KEY : piles[pile][0];
+  }
+
+  /**
+   * Returns a hash of the cards of one pile, in order.
+   *
+   * @param pile the codes of the cards of the pile
+   * @return the hash of the pile
+   */
+  private static long pileHash(byte[] pile) {
+    long h = 0xCBF29CE484222325L;
+    for (byte code : pile) {
+      h = (h ^ code) * 0x100000001B3L;
+    }
+    return h ^ pile.length;
+  }
+
+  /**
+   * Returns the given value with its bits mixed, the finalizer of SplitMix64.
+   *
+   * @param z the value to mix
+   * @return the mixed value
+   */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns true if the given object is a position with the same piles in the same order.
+   *
+   * @param o the object to compare
+   * @return true if the positions are the same
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Position)) {
+      return false;
+    }
+    Position that = (Position) o;
+    return opensNum == that.opensNum && cascadesNum == that.cascadesNum
+            && Arrays.deepEquals(piles, that.piles);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.deepHashCode(piles);
+  }
+}
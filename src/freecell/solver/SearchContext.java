@@ -0,0 +1,103 @@
+package freecell.solver;
+
+/**
+ * This class represents what the searches of one solve share: the rules they follow, the memory
+ * budget they draw from, the deadline and a cancellation flag. Searches check
+ * {@link #isCancelled()} regularly and give up cooperatively once it is true. The context also
+ * chooses the kind of visited set of the searches: exact, or a {@link BloomVisitedSet} given a
+ * false positive rate, for searches that only need to find some solution fast.
+ */
+public final class SearchContext {
+
+  private final boolean multiMove;
+  private final MemoryBudget budget;
+  private final long deadline;
+  private final double falsePositiveRate;
+  private volatile boolean cancelled;
+
+  /**
+   * Constructs a SearchContext.
+   *
+   * @param multiMove     true if the game allows multi-card moves
+   * @param budget        the memory budget of the searches
+   * @param timeoutMillis how long the searches may run, in milliseconds
+   * @throws IllegalArgumentException if the budget is null or the timeout is negative
+   */
+  public SearchContext(boolean multiMove, MemoryBudget budget, long timeoutMillis)
+          throws IllegalArgumentException {
+    this(multiMove, budget, timeoutMillis, 0);
+  }
+
+  /**
+   * Constructs a SearchContext whose searches remember positions in Bloom filters when given a
+   * false positive rate. Each filter takes a sixteenth of the budget.
+   *
+   * @param multiMove         true if the game allows multi-card moves
+   * @param budget            the memory budget of the searches
+   * @param timeoutMillis     how long the searches may run, in milliseconds
+   * @param falsePositiveRate the false positive rate of the visited sets, or 0 for exact sets
+   * @throws IllegalArgumentException if the budget is null, the timeout is negative or the rate
+   *                                  is not below 1
+   */
+  public SearchContext(boolean multiMove, MemoryBudget budget, long timeoutMillis,
+                       double falsePositiveRate) throws IllegalArgumentException {
+    if (budget == null || timeoutMillis < 0) {
+      throw new IllegalArgumentException("The budget cannot be null and the timeout cannot be "
+              + "negative.");
+    }
+    if (!(falsePositiveRate >= 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("The false positive rate must be at least 0 and below "
+              + "1.");
+    }
+    this.multiMove = multiMove;
+    this.budget = budget;
+    this.deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * Returns true if the game allows multi-card moves.
+   *
+   * @return true if the game allows multi-card moves
+   */
+  public boolean isMultiMove() {
+    return multiMove;
+  }
+
+  /**
+   * Returns the memory budget of the searches.
+   *
+   * @return the memory budget
+   */
+  public MemoryBudget getBudget() {
+    return budget;
+  }
+
+  /**
+   * Returns a new, empty visited set for a search of this context, drawing from its budget.
+   *
+   * @return a new visited set
+   */
+  public VisitedSet newVisitedSet() {
+    if (falsePositiveRate == 0) {
+      return new HashVisitedSet(budget);
+    }
+    return new BloomVisitedSet(budget, Math.max(64, budget.getLimit() / 16), falsePositiveRate);
+  }
+
+  /**
+   * Ask every search of this context to stop.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Returns true if the searches must stop, because they were cancelled or the deadline passed.
+   *
+   * @return true if the searches must stop
+   */
+  public boolean isCancelled() {
+    return cancelled || System.nanoTime() - deadline > 0;
+  }
+}
@@ -0,0 +1,54 @@
+package freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents one position reached by a search, with the move and the node it was
+ * reached from, so the line leading to it can be read back.
+ */
+final class SearchNode {
+
+  /**
+   * The number of bytes a node and its position are counted for in a memory budget.
+   */
+  static final int BYTES = 192;
+
+  final Position position;
+  final SearchNode parent;
+  final Move move;
+  final int depth;
+  final int distance;
+
+  /**
+   * Constructs a SearchNode.
+   *
+   * @param position the position
+   * @param parent   the node it was reached from, or null for the root
+   * @param move     the move that reached it, or null for the root
+   */
+  SearchNode(Position position, SearchNode parent, Move move) {
+    this.position = position;
+    this.parent = parent;
+    this.move = move;
+    this.depth = parent == null ? 0 : parent.depth + 1;
+    this.distance = position.distance();
+  }
+
+  /**
+   * Returns the moves from the root to this node.
+   *
+   * @return the moves from the root
+   */
+  List<Move> line() {
+    List<Move> line = new ArrayList<>(depth);
+    for (SearchNode node = this; node.move != null; node = node.parent) {
+      line.add(node.move);
+    }
+    Collections.reverse(line);
+    return line;
+  }
+}
@@ -0,0 +1,87 @@
+package freecell.solver;
+
+import java.util.Collections;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents the result of an exhaustive search: whether the position was solved,
+ * proved unsolvable or left undecided, with the solution and how much was searched.
+ */
+public final class SearchResult {
+
+  /**
+   * Type for the outcome of an exhaustive search.
+   */
+  public enum Outcome {
+    /**
+     * A solution was found.
+     */
+    SOLVED,
+    /**
+     * Every position reachable was searched and none is won.
+     */
+    UNSOLVABLE,
+    /**
+     * The search was cancelled or ran out of time before deciding.
+     */
+    STOPPED
+  }
+
+  private final Outcome outcome;
+  private final List<Move> moves;
+  private final long positions;
+  private final int depth;
+
+  /**
+   * Constructs a SearchResult.
+   *
+   * @param outcome   the outcome of the search
+   * @param moves     the solution, or null if none was found
+   * @param positions the number of distinct positions reached
+   * @param depth     the number of layers searched
+   */
+  SearchResult(Outcome outcome, List<Move> moves, long positions, int depth) {
+    this.outcome = outcome;
+    this.moves = moves == null ? null : Collections.unmodifiableList(moves);
+    this.positions = positions;
+    this.depth = depth;
+  }
+
+  /**
+   * Returns the outcome of the search.
+   *
+   * @return the outcome of the search
+   */
+  public Outcome getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * Returns the solution, or null if none was found.
+   *
+   * @return the solution, or null
+   */
+  public List<Move> getMoves() {
+    return moves;
+  }
+
+  /**
+   * Returns the number of distinct positions reached.
+   *
+   * @return the number of positions reached
+   */
+  public long getPositions() {
+    return positions;
+  }
+
+  /**
+   * Returns the number of layers searched, the length of the longest line explored.
+   *
+   * @return the number of layers searched
+   */
+  public int getDepth() {
+    return depth;
+  }
+}
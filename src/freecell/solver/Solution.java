@@ -0,0 +1,45 @@
+package freecell.solver;
+
+import java.util.Collections;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents a solution found by a {@link PortfolioSolver}: the moves that win the
+ * position and the strategy that found them first.
+ */
+public final class Solution {
+
+  private final List<Move> moves;
+  private final String strategy;
+
+  /**
+   * Constructs a Solution.
+   *
+   * @param moves    the moves that win the position
+   * @param strategy the name of the strategy that found them
+   */
+  Solution(List<Move> moves, String strategy) {
+    this.moves = Collections.unmodifiableList(moves);
+    this.strategy = strategy;
+  }
+
+  /**
+   * Returns the moves that win the position.
+   *
+   * @return the moves that win the position
+   */
+  public List<Move> getMoves() {
+    return moves;
+  }
+
+  /**
+   * Returns the name of the strategy that found the solution.
+   *
+   * @return the name of the strategy
+   */
+  public String getStrategy() {
+    return strategy;
+  }
+}
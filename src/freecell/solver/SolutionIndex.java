@@ -0,0 +1,121 @@
+package freecell.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import freecell.model.Cards;
+import freecell.model.Move;
+
+/**
+ * This class represents an in-memory index of solutions by deal, where a solution stored for one
+ * deal is found for every deal that is isomorphic to it by {@link DealFingerprint}. A move names
+ * piles and card indexes rather than cards, and isomorphic deals put cards of the same colour and
+ * value at the same places, so a stored solution plays on any isomorphic deal with the same
+ * numbers of piles exactly as it is. Solutions are kept packed, one int per move.
+ */
+public final class SolutionIndex {
+
+  private final Map<Key, int[]> solutions;
+
+  /**
+   * Constructs an empty SolutionIndex.
+   */
+  public SolutionIndex() {
+    this.solutions = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Store the solution of a deal.
+   *
+   * @param deck     the 52 cards of the deal, in dealing order
+   * @param cascades the number of cascade piles
+   * @param opens    the number of open piles
+   * @param solution the moves that win the deal
+   * @throws IllegalArgumentException if the deck is not 52 cards or the solution is null
+   */
+  public void put(List<Cards> deck, int cascades, int opens, List<Move> solution)
+          throws IllegalArgumentException {
+    if (solution == null || solution.contains(null)) {
+      throw new IllegalArgumentException("The solution cannot be null.");
+    }
+    int[] codes = new int[solution.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = solution.get(i).toCode();
+    }
+    solutions.put(new Key(DealFingerprint.of(deck), cascades, opens), codes);
+  }
+
+  /**
+   * Returns the solution stored for the given deal or for any deal isomorphic to it, or null if
+   * there is none.
+   *
+   * @param deck     the 52 cards of the deal, in dealing order
+   * @param cascades the number of cascade piles
+   * @param opens    the number of open piles
+   * @return the moves that win the deal, or null
+   * @throws IllegalArgumentException if the deck is not 52 cards
+   */
+  public List<Move> get(List<Cards> deck, int cascades, int opens)
+          throws IllegalArgumentException {
+    int[] codes = solutions.get(new Key(DealFingerprint.of(deck), cascades, opens));
+    if (codes == null) {
+      return null;
+    }
+    List<Move> solution = new ArrayList<>(codes.length);
+    for (int code : codes) {
+      solution.add(Move.fromCode(code));
+    }
+    return solution;
+  }
+
+  /**
+   * Returns the number of stored solutions.
+   *
+   * @return the number of stored solutions
+   */
+  public int size() {
+    return solutions.size();
+  }
+
+  /**
+   * This class represents the key of a solution: the fingerprint of the deal and the numbers of
+   * piles it is played with.
+   */
+  private static final class Key {
+
+    private final DealFingerprint fingerprint;
+    private final int cascades;
+    private final int opens;
+
+    /**
+     * Constructs a Key.
+     *
+     * @param fingerprint the fingerprint of the deal
+     * @param cascades    the number of cascade piles
+     * @param opens       the number of open piles
+     */
+    private Key(DealFingerprint fingerprint, int cascades, int opens) {
+      this.fingerprint = fingerprint;
+      this.cascades = cascades;
+      this.opens = opens;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return cascades == that.cascades && opens == that.opens
+              && fingerprint.equals(that.fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fingerprint, cascades, opens);
+    }
+  }
+}
@@ -0,0 +1,413 @@
+package freecell.solver;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This class represents a solution store on disk, mapping the canonical hash of a position to the
+ * moves that win it. It is made of two files:
+ * <ul>
+ * <li>an index, memory-mapped, which is an open-addressing hash table of 16-byte slots holding a
+ * key and the offset of its solution, and</li>
+ * <li>a data file, only ever appended to, holding every solution as its key, its number of moves
+ * and the packed moves.</li>
+ * </ul>
+ * Writes are serialized, while reads take no lock: a slot's offset is written before its key is
+ * published with a release store, and readers load keys with acquire loads. Solutions are written
+ * before the slot that points to them, and a solution is only returned if its record in the data
+ * file is complete and carries the expected key, so a crash never exposes a torn solution. When
+ * the index is half full it is rebuilt twice as large in a new file that atomically replaces the
+ * old one.
+ *
+ * <p>Solutions are stored for the canonical form of a position, so they are found for every
+ * position that only differs by the order of its piles, and the rule set is part of the key, so
+ * solutions of single-move and multi-move games never mix.
+ */
+public final class SolutionStore implements AutoCloseable {
+
+  private static final long MAGIC = 0x46434C534F4C5631L;
+  private static final int HEADER = 64;
+  private static final int SLOT = 16;
+  private static final int RECORD_HEADER = 12;
+  private static final long MULTI_MOVE_SALT = 0x6A09E667F3BCC909L;
+
+  private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+          ByteOrder.LITTLE_ENDIAN);
+
+  private final Path indexPath;
+  private final FileChannel data;
+  private volatile Table table;
+  private long dataSize;
+  private int count;
+
+  /**
+   * Open the store in the given files, creating them if needed.
+   *
+   * @param indexPath       the path of the index file
+   * @param dataPath        the path of the data file
+   * @param initialCapacity the number of slots of a new index, rounded up to a power of two
+   * @throws IOException              if the files cannot be opened
+   * @throws IllegalArgumentException if a path is null, the capacity is not positive or the
+   *                                  index is not a solution store
+   */
+  public SolutionStore(Path indexPath, Path dataPath, int initialCapacity)
+          throws IOException, IllegalArgumentException {
+    if (indexPath == null || dataPath == null) {
+      throw new IllegalArgumentException("The paths cannot be null.");
+    }
+    if (initialCapacity < 1 || initialCapacity > 1 << 26) {
+      throw new IllegalArgumentException("The capacity must be between 1 and 2^26.");
+    }
+    this.indexPath = indexPath;
+    this.data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    this.dataSize = data.size();
+    if (Files.exists(indexPath) && Files.size(indexPath) > 0) {
+      this.table = Table.open(indexPath);
+    } else {
+      this.table = Table.create(indexPath, Integer.highestOneBit(
+              Math.max(2, initialCapacity) * 2 - 1));
+    }
+    for (int i = 0; i < table.capacity; i++) {
+      if (table.key(i) != 0) {
+        count = count + 1;
+      }
+    }
+  }
+
+  /**
+   * Store the solution of a position, unless one is already stored for it.
+   *
+   * @param position  the position
+   * @param multiMove true if the position is played with multi-card moves
+   * @param solution  the moves that win the position
+   * @return true if the solution was stored
+   * @throws IOException              if the files cannot be written
+   * @throws IllegalArgumentException if the position or solution is null
+   */
+  public boolean put(Position position, boolean multiMove, List<Move> solution)
+          throws IOException, IllegalArgumentException {
+    if (position == null || solution == null || solution.contains(null)) {
+      throw new IllegalArgumentException("The position and solution cannot be null.");
+    }
+    CanonicalPosition canonical = position.canonicalize();
+    int[] codes = new int[solution.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = canonical.fromOriginal(solution.get(i)).toCode();
+    }
+    return put(key(position, multiMove), codes);
+  }
+
+  /**
+   * Returns the solution stored for a position, or null if there is none.
+   *
+   * @param position  the position
+   * @param multiMove true if the position is played with multi-card moves
+   * @return the moves that win the position, or null
+   * @throws IOException              if the files cannot be read
+   * @throws IllegalArgumentException if the position is null
+   */
+  public List<Move> get(Position position, boolean multiMove)
+          throws IOException, IllegalArgumentException {
+    if (position == null) {
+      throw new IllegalArgumentException("The position cannot be null.");
+    }
+    int[] codes = get(key(position, multiMove));
+    if (codes == null) {
+      return null;
+    }
+    CanonicalPosition canonical = position.canonicalize();
+    List<Move> solution = new ArrayList<>(codes.length);
+    for (int code : codes) {
+      solution.add(canonical.toOriginal(Move.fromCode(code)));
+    }
+    return solution;
+  }
+
+  /**
+   * Store packed moves under the given key, unless the key is already stored.
+   *
+   * @param key   the key, never 0
+   * @param codes the packed moves
+   * @return true if the moves were stored
+   * @throws IOException              if the files cannot be written
+   * @throws IllegalArgumentException if the key is 0 or the moves are null
+   */
+  public synchronized boolean put(long key, int[] codes)
+          throws IOException, IllegalArgumentException {
+    if (key == 0 || codes == null) {
+      throw new IllegalArgumentException("The key cannot be 0 and the moves cannot be null.");
+    }
+    Table t = table;
+    int slot = t.find(key);
+    if (t.key(slot) == key) {
+      return false;
+    }
+    if ((count + 1) * 2 > t.capacity) {
+      t = grow(t);
+      slot = t.find(key);
+    }
+
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + 4 * codes.length)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    record.putLong(key).putInt(codes.length);
+    for (int code : codes) {
+      record.putInt(code);
+    }
+    record.flip();
+    long offset = dataSize;
+    while (record.hasRemaining()) {
+      data.write(record, offset + record.position());
+    }
+    dataSize = offset + record.limit();
+
+    t.publish(slot, key, offset);
+    count = count + 1;
+    return true;
+  }
+
+  /**
+   * Returns the packed moves stored under the given key, or null if there are none. This never
+   * takes a lock.
+   *
+   * @param key the key
+   * @return the packed moves, or null
+   * @throws IOException if the data file cannot be read
+   */
+  public int[] get(long key) throws IOException {
+    Table t = table;
+    int slot = t.find(key);
+    if (key == 0 || t.key(slot) != key) {
+      return null;
+    }
+    long offset = t.offset(slot);
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+    if (!readFully(header, offset) || header.getLong(0) != key) {
+      return null;
+    }
+    int length = header.getInt(8);
+    if (length < 0 || length > (1 << 24)) {
+      return null;
+    }
+    ByteBuffer body = ByteBuffer.allocate(4 * length).order(ByteOrder.LITTLE_ENDIAN);
+    if (!readFully(body, offset + RECORD_HEADER)) {
+      return null;
+    }
+    int[] codes = new int[length];
+    body.flip();
+    body.asIntBuffer().get(codes);
+    return codes;
+  }
+
+  /**
+   * Returns the number of stored solutions.
+   *
+   * @return the number of stored solutions
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * Write every stored solution and the index to the disk.
+   *
+   * @throws IOException if the files cannot be written
+   */
+  public synchronized void flush() throws IOException {
+    data.force(false);
+    table.buffer.force();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    flush();
+    data.close();
+  }
+
+  /**
+   * Returns the key of a position under the given rule set: its canonical hash, salted for
+   * multi-card moves, and never 0.
+   *
+   * @param position  the position
+   * @param multiMove true if the position is played with multi-card moves
+   * @return the key of the position
+   */
+  public static long key(Position position, boolean multiMove) {
+    long key = position.canonicalHash();
+    if (multiMove) {
+      key = Position.mix(key ^ MULTI_MOVE_SALT);
+    }
+    return key == 0 ? 1 : key;
+  }
+
+  /**
+   * Rebuild the index twice as large in a new file and atomically replace the old one with it.
+   *
+   * @param old the current index
+   * @return the new index
+   * @throws IOException if the new index cannot be written
+   */
+  private Table grow(Table old) throws IOException {
+    if (old.capacity >= 1 << 26) {
+      throw new IllegalStateException("The solution store is full.");
+    }
+    data.force(false);
+    Path temporary = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    Table grown = Table.create(temporary, old.capacity * 2);
+    for (int i = 0; i < old.capacity; i++) {
+      long key = old.key(i);
+      if (key != 0) {
+        grown.publish(grown.find(key), key, old.offset(i));
+      }
+    }
+    grown.buffer.force();
+    Files.move(temporary, indexPath, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    table = grown;
+    return grown;
+  }
+
+  /**
+   * Read bytes of the data file at the given offset until the buffer is full.
+   *
+   * @param buffer the buffer to fill
+   * @param offset the offset in the data file
+   * @return false if the data file ends first
+   * @throws IOException if the data file cannot be read
+   */
+  private boolean readFully(ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (data.read(buffer, offset + buffer.position()) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * This class represents one mapping of the index file.
+   */
+  private static final class Table {
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    /**
+     * Constructs a Table.
+     *
+     * @param buffer   the mapped index file
+     * @param capacity the number of slots, a power of two
+     */
+    private Table(MappedByteBuffer buffer, int capacity) {
+      this.buffer = buffer;
+      this.capacity = capacity;
+    }
+
+    /**
+     * Create a new empty index file with the given number of slots and map it.
+     *
+     * @param path     the path of the index file
+     * @param capacity the number of slots, a power of two
+     * @return the mapped index
+     * @throws IOException if the file cannot be written
+     */
+    private static Table create(Path path, int capacity) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER + (long) SLOT * capacity);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, capacity);
+        return new Table(buffer, capacity);
+      }
+    }
+
+    /**
+     * Map an existing index file.
+     *
+     * @param path the path of the index file
+     * @return the mapped index
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    private static Table open(Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                channel.size());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int capacity = channel.size() >= HEADER ? buffer.getInt(8) : 0;
+        if (buffer.getLong(0) != MAGIC || Integer.bitCount(capacity) != 1
+                || channel.size() != HEADER + (long) SLOT * capacity) {
+          throw new IllegalArgumentException("The index is not a solution store.");
+        }
+        return new Table(buffer, capacity);
+      }
+    }
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where it would go.
+     *
+     * @param key the key
+     * @return the slot
+     */
+    private int find(long key) {
+      int mask = capacity - 1;
+      int slot = (int) Position.mix(key) & mask;
+      while (true) {
+        long current = key(slot);
+        if (current == 0 || current == key) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    /**
+     * Returns the key of a slot, 0 if it is empty, with an acquire load.
+     *
+     * @param slot the slot
+     * @return the key of the slot
+     */
+    private long key(int slot) {
+      return (long) LONGS.getAcquire(buffer, HEADER + SLOT * slot);
+    }
+
+    /**
+     * Returns the offset of the solution of a slot.
+     *
+     * @param slot the slot
+     * @return the offset of the solution in the data file
+     */
+    private long offset(int slot) {
+      return buffer.getLong(HEADER + SLOT * slot + 8);
+    }
+
+    /**
+     * Fill a slot: the offset first, then the key with a release store, so a reader that sees
+     * the key also sees the offset.
+     *
+     * @param slot   the slot
+     * @param key    the key
+     * @param offset the offset of the solution in the data file
+     */
+    private void publish(int slot, long key, long offset) {
+      buffer.putLong(HEADER + SLOT * slot + 8, offset);
+      LONGS.setRelease(buffer, HEADER + SLOT * slot, key);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package freecell.solver;
+
+import java.util.List;
+
+import freecell.model.Move;
+
+/**
+ * This is the interface of a search strategy that looks for a solution of a position.
+ */
+public interface SolverStrategy {
+
+  /**
+   * Returns the name of the strategy.
+   *
+   * @return the name of the strategy
+   */
+  String getName();
+
+  /**
+   * Search for the moves that win the given position. The search stops without a solution when
+   * the context is cancelled or its memory budget is spent, and gives back the memory it reserved
+   * before returning.
+   *
+   * @param position the position to solve
+   * @param context  the rules, budget and cancellation of the search
+   * @return the moves that win the position, or null if none were found
+   */
+  List<Move> solve(Position position, SearchContext context);
+}
@@ -0,0 +1,879 @@
+package freecell.solver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import freecell.model.Move;
+
+/**
+ * This class represents an exhaustive breadth-first search whose frontier and visited set live on
+ * disk, so it can prove a deal unsolvable with a bounded heap. Every layer of the search is a file
+ * of records sorted by canonical hash and then by canonical position, each record holding the
+ * hash, the index of its parent in the layer before, the move from the parent and the packed
+ * canonical position. Expanding a layer fills a fixed buffer of children that is sorted and
+ * spilled to a memory-mapped run file whenever it is full; the runs are then merged, at most
+ * {@value #MERGE_FAN_IN} at a time, and the last merge drops duplicates and every position already
+ * in the sorted file of visited positions, which it rewrites with the new layer. Positions are
+ * compared whole whenever their hashes are equal, so two positions sharing a hash are both kept
+ * and an unsolvable result is exact. A solution is read back by following the parent indexes and
+ * replaying the moves from the root. Given a directory of its own, the search writes a checkpoint
+ * after every layer, once the files it names are on the disk, and resumes from it when run again;
+ * it starts over if one of these files does not hold the number of records the checkpoint says.
+ */
+public final class SpillingSearch implements SolverStrategy {
+
+  private static final int RECORD_HEADER = 20;
+  private static final long WINDOW = 64L << 20;
+  private static final int CHECK_INTERVAL = 256;
+  private static final int MERGE_FAN_IN = 64;
+  private static final String FORMAT = "2";
+  private static final String CHECKPOINT = "checkpoint.properties";
+
+  private final String name;
+  private final Path workDirectory;
+  private final int bufferRecords;
+  private final boolean supermoves;
+
+  /**
+   * Constructs a SpillingSearch.
+   *
+   * @param name          the name of the strategy
+   * @param workDirectory the directory where the search files are written
+   * @param bufferRecords how many children are sorted in memory before they are spilled to disk
+   * @param supermoves    true to use multi-card moves when the game allows them, false to only
+   *                      move one card at a time
+   * @throws IllegalArgumentException if the name or directory is null or the buffer is empty
+   */
+  public SpillingSearch(String name, Path workDirectory, int bufferRecords, boolean supermoves)
+          throws IllegalArgumentException {
+    if (name == null || workDirectory == null || bufferRecords < 1) {
+      throw new IllegalArgumentException("The name and directory cannot be null and the buffer "
+              + "cannot be empty.");
+    }
+    this.name = name;
+    this.workDirectory = workDirectory;
+    this.bufferRecords = bufferRecords;
+    this.supermoves = supermoves;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public List<Move> solve(Position position, SearchContext context) {
+    SearchResult result = search(position, context);
+    return result.getOutcome() == SearchResult.Outcome.SOLVED ? result.getMoves() : null;
+  }
+
+  /**
+   * Search every position reachable from the given one, until a solution is found, no new
+   * position is left or the context is cancelled. The files of the search are written to a
+   * temporary directory that is deleted at the end.
+   *
+   * @param position the position to search from
+   * @param context  the rules, budget and cancellation of the search
+   * @return the result of the search
+   * @throws IllegalArgumentException if the buffer is too large for the positions
+   * @throws IllegalStateException    if the search files cannot be written or read
+   */
+  public SearchResult search(Position position, SearchContext context)
+          throws IllegalArgumentException, IllegalStateException {
+    return search(position, context, null);
+  }
+
+  /**
+   * Search every position reachable from the given one like {@link #search(Position,
+   * SearchContext)}, keeping the files of the search in the given directory with a checkpoint
+   * written after every layer. A search that is stopped, or whose process dies, resumes from the
+   * last complete layer when it is run again on the same position and directory. The directory
+   * belongs to the search and is deleted once the search is decided.
+   *
+   * @param position            the position to search from
+   * @param context             the rules, budget and cancellation of the search
+   * @param checkpointDirectory the directory of the files and checkpoint of the search, or null
+   *                            to use a temporary directory
+   * @return the result of the search
+   * @throws IllegalArgumentException if the buffer is too large for the positions or the
+   *                                  checkpoint in the directory belongs to another position or
+   *                                  was written by another version of the search
+   * @throws IllegalStateException    if the search files cannot be written or read
+   */
+  public SearchResult search(Position position, SearchContext context, Path checkpointDirectory)
+          throws IllegalArgumentException, IllegalStateException {
+    int recordSize = RECORD_HEADER + Position.packedSize(position.getOpensNum(),
+            position.getCascadesNum());
+    if ((long) bufferRecords * recordSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The buffer is too large.");
+    }
+    if (position.isSolved()) {
+      return new SearchResult(SearchResult.Outcome.SOLVED, new ArrayList<>(), 1, 0);
+    }
+    long reserved = (long) bufferRecords * (recordSize + 12);
+    if (!context.getBudget().tryReserve(reserved)) {
+      return new SearchResult(SearchResult.Outcome.STOPPED, null, 0, 0);
+    }
+    Path directory = null;
+    boolean decided = false;
+    try {
+      directory = checkpointDirectory == null
+              ? Files.createTempDirectory(workDirectory, "freecell-search")
+              : Files.createDirectories(checkpointDirectory);
+      SearchResult result = new Layers(position, context, directory, recordSize,
+              checkpointDirectory != null).run();
+      decided = result.getOutcome() != SearchResult.Outcome.STOPPED;
+      return result;
+    } catch (IOException e) {
+      throw new IllegalStateException("The search files cannot be written or read.");
+    } finally {
+      context.getBudget().release(reserved);
+      if (directory != null && (checkpointDirectory == null || decided)) {
+        deleteQuietly(directory);
+      }
+    }
+  }
+
+  /**
+   * Delete a directory and the files in it, ignoring errors. It also discards the checkpoint of a
+   * stopped search that will not be resumed.
+   *
+   * @param directory the directory
+   */
+  static void deleteQuietly(Path directory) {
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(file -> {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          //the file is only left behind
+        }
+      });
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      //the directory is only left behind
+    }
+  }
+
+  /**
+   * This class represents one run of the search and its files.
+   */
+  private final class Layers {
+
+    private final Position root;
+    private final SearchContext context;
+    private final Path directory;
+    private final int recordSize;
+    private final int packedSize;
+    private final boolean multiMove;
+    private final List<Path> layers;
+    private final List<Long> counts;
+    private final Checkpoint checkpoint;
+    private final byte[] packedRoot;
+
+    private final byte[] buffer;
+    private final ByteBuffer bufferView;
+    private final long[] keys;
+    private final int[] order;
+    private int buffered;
+    private final List<Path> runs;
+    private int files;
+
+    /**
+     * Constructs the run of a search.
+     *
+     * @param root       the position to search from
+     * @param context    the rules, budget and cancellation of the search
+     * @param directory  the directory of the search files
+     * @param recordSize the size of a record
+     * @param resumable  true to write a checkpoint after every layer
+     */
+    private Layers(Position root, SearchContext context, Path directory, int recordSize,
+                   boolean resumable) {
+      this.root = root;
+      this.context = context;
+      this.directory = directory;
+      this.recordSize = recordSize;
+      this.packedSize = recordSize - RECORD_HEADER;
+      this.multiMove = supermoves && context.isMultiMove();
+      this.layers = new ArrayList<>();
+      this.counts = new ArrayList<>();
+      this.checkpoint = resumable ? new Checkpoint(directory.resolve(CHECKPOINT)) : null;
+      this.packedRoot = new byte[packedSize];
+      root.writeTo(packedRoot, 0);
+      this.buffer = new byte[bufferRecords * recordSize];
+      this.bufferView = ByteBuffer.wrap(buffer);
+      this.keys = new long[bufferRecords];
+      this.order = new int[bufferRecords];
+      this.runs = new ArrayList<>();
+    }
+
+    /**
+     * Search layer after layer.
+     *
+     * @return the result of the search
+     * @throws IOException if the search files cannot be written or read
+     */
+    private SearchResult run() throws IOException {
+      Path layer = null;
+      Path visited = null;
+      long positions = 0;
+      if (checkpoint != null && checkpoint.exists()) {
+        Properties properties = checkpoint.load();
+        if (!HexFormat.of().formatHex(packedRoot).equals(properties.getProperty("root"))) {
+          throw new IllegalArgumentException("The checkpoint belongs to another position.");
+        }
+        if (!FORMAT.equals(properties.getProperty("format"))) {
+          throw new IllegalArgumentException("The checkpoint was written by another version.");
+        }
+        for (String name : properties.getProperty("layers", "").split(",")) {
+          layers.add(directory.resolve(name));
+        }
+        visited = directory.resolve(properties.getProperty("visited", ""));
+        positions = Checkpoint.getLong(properties, "positions");
+        files = (int) Checkpoint.getLong(properties, "files");
+        if (isComplete(visited, positions, properties.getProperty("counts", ""))) {
+          layer = layers.get(layers.size() - 1);
+        } else {
+          layers.clear();
+          counts.clear();
+          visited = null;
+          files = 0;
+        }
+        deleteUnreferenced(visited);
+      }
+      if (layer == null) {
+        layer = newFile("layer");
+        visited = newFile("visited");
+        try (DataOutputStream out = output(layer); DataOutputStream seen = output(visited)) {
+          byte[] record = new byte[recordSize];
+          ByteBuffer.wrap(record).putLong(0, root.canonicalHash()).putLong(8, 0)
+                  .putInt(16, NodeArena.NONE);
+          root.canonicalize().getPosition().writeTo(record, RECORD_HEADER);
+          out.write(record);
+          seen.writeLong(root.canonicalHash());
+          seen.write(record, RECORD_HEADER, packedSize);
+        }
+        layers.add(layer);
+        counts.add(1L);
+        positions = 1;
+        saveCheckpoint(visited, positions);
+      }
+
+      long expanded = 0;
+      while (true) {
+        if (context.isCancelled()) {
+          return new SearchResult(SearchResult.Outcome.STOPPED, null, positions,
+                  layers.size() - 1);
+        }
+        try (RecordReader reader = new RecordReader(layer, recordSize)) {
+          while (reader.next()) {
+            Position position = Position.readFrom(reader.record, RECORD_HEADER,
+                    root.getOpensNum(), root.getCascadesNum());
+            for (Move move : position.moves(multiMove)) {
+              Position child = position.apply(move);
+              if (child.isSolved()) {
+                List<Move> line = trace(reader.index, layers.size() - 1);
+                line.add(move);
+                return new SearchResult(SearchResult.Outcome.SOLVED, replay(line), positions + 1,
+                        layers.size());
+              }
+              add(child, reader.index, move);
+            }
+            expanded = expanded + 1;
+            if (expanded % CHECK_INTERVAL == 0 && context.isCancelled()) {
+              return new SearchResult(SearchResult.Outcome.STOPPED, null, positions,
+                      layers.size() - 1);
+            }
+          }
+        }
+        spill();
+        reduceRuns();
+        Path next = newFile("layer");
+        Path nextVisited = newFile("visited");
+        long added = merge(visited, next, nextVisited);
+        if (added == 0) {
+          return new SearchResult(SearchResult.Outcome.UNSOLVABLE, null, positions,
+                  layers.size() - 1);
+        }
+        positions = positions + added;
+        layers.add(next);
+        counts.add(added);
+        saveCheckpoint(nextVisited, positions);
+        for (Path run : runs) {
+          Files.deleteIfExists(run);
+        }
+        runs.clear();
+        Files.deleteIfExists(visited);
+        visited = nextVisited;
+        layer = next;
+      }
+    }
+
+    /**
+     * Returns true if the layers and visited file named by a checkpoint hold as many records as
+     * the checkpoint says, so that none of them was cut short by a crash before it reached the
+     * disk.
+     *
+     * @param visited   the sorted file of visited positions
+     * @param positions the number of records of the visited file
+     * @param sizes     the number of records of every layer, separated by commas
+     * @return true if every file is complete
+     * @throws IOException if the size of a file cannot be read
+     */
+    private boolean isComplete(Path visited, long positions, String sizes) throws IOException {
+      String[] records = sizes.split(",");
+      if (records.length != layers.size() || !hasRecords(visited, positions, 8 + packedSize)) {
+        return false;
+      }
+      try {
+        for (int i = 0; i < records.length; i++) {
+          counts.add(Long.parseLong(records[i]));
+          if (!hasRecords(layers.get(i), counts.get(i), recordSize)) {
+            return false;
+          }
+        }
+      } catch (NumberFormatException e) {
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Returns true if a file exists and holds exactly the given number of records.
+     *
+     * @param file  the file
+     * @param count the number of records
+     * @param size  the size of a record
+     * @return true if the file holds the records
+     * @throws IOException if the size of the file cannot be read
+     */
+    private boolean hasRecords(Path file, long count, int size) throws IOException {
+      return Files.isRegularFile(file) && Files.size(file) == count * size;
+    }
+
+    /**
+     * Write a checkpoint naming the layers and visited file written so far, with the number of
+     * records of every layer, if the search is resumable. The last layer and the visited file are
+     * forced to the disk first, so the checkpoint never names a file that a crash can cut short.
+     *
+     * @param visited   the sorted file of visited positions
+     * @param positions the number of positions searched
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void saveCheckpoint(Path visited, long positions) throws IOException {
+      if (checkpoint == null) {
+        return;
+      }
+      force(layers.get(layers.size() - 1));
+      force(visited);
+      StringBuilder names = new StringBuilder();
+      StringBuilder sizes = new StringBuilder();
+      for (int i = 0; i < layers.size(); i++) {
+        names.append(i == 0 ? "" : ",").append(layers.get(i).getFileName());
+        sizes.append(i == 0 ? "" : ",").append(counts.get(i));
+      }
+      Properties properties = new Properties();
+      properties.setProperty("root", HexFormat.of().formatHex(packedRoot));
+      properties.setProperty("format", FORMAT);
+      properties.setProperty("layers", names.toString());
+      properties.setProperty("counts", sizes.toString());
+      properties.setProperty("visited", visited.getFileName().toString());
+      properties.setProperty("positions", String.valueOf(positions));
+      properties.setProperty("depth", String.valueOf(layers.size() - 1));
+      properties.setProperty("files", String.valueOf(files));
+      checkpoint.save(properties);
+    }
+
+    /**
+     * Write the content of a file through to the disk.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be forced
+     */
+    private void force(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+    }
+
+    /**
+     * Delete the files left by a layer that was being searched when the checkpoint was written,
+     * keeping the layers, the visited file and the checkpoint.
+     *
+     * @param visited the sorted file of visited positions, or null if none is kept
+     * @throws IOException if the directory cannot be listed
+     */
+    private void deleteUnreferenced(Path visited) throws IOException {
+      List<Path> kept = new ArrayList<>(layers);
+      kept.add(visited);
+      try (Stream<Path> entries = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) entries::iterator) {
+          if (!kept.contains(file) && !file.getFileName().toString().startsWith(CHECKPOINT)) {
+            Files.deleteIfExists(file);
+          }
+        }
+      }
+    }
+
+    /**
+     * Add a child to the buffer, spilling the buffer first if it is full.
+     *
+     * @param child  the child position
+     * @param parent the index of its parent in the layer being expanded
+     * @param move   the move from the parent
+     * @throws IOException if the buffer cannot be spilled
+     */
+    private void add(Position child, long parent, Move move) throws IOException {
+      if (buffered == bufferRecords) {
+        spill();
+      }
+      int at = buffered * recordSize;
+      long hash = child.canonicalHash();
+      bufferView.putLong(at, hash).putLong(at + 8, parent).putInt(at + 16, move.toCode());
+      child.canonicalize().getPosition().writeTo(buffer, at + RECORD_HEADER);
+      keys[buffered] = hash;
+      order[buffered] = buffered;
+      buffered = buffered + 1;
+    }
+
+    /**
+     * Sort the buffer by hash and position and write it, without duplicates, to a new
+     * memory-mapped run file.
+     *
+     * @throws IOException if the run cannot be written
+     */
+    private void spill() throws IOException {
+      if (buffered == 0) {
+        return;
+      }
+      sort(0, buffered - 1);
+      int unique = 1;
+      for (int i = 1; i < buffered; i++) {
+        if (compare(order[i], order[i - 1]) != 0) {
+          unique = unique + 1;
+        }
+      }
+      Path run = newFile("run");
+      try (FileChannel channel = FileChannel.open(run, StandardOpenOption.CREATE,
+              StandardOpenOption.READ, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                (long) unique * recordSize);
+        for (int i = 0; i < buffered; i++) {
+          if (i == 0 || compare(order[i], order[i - 1]) != 0) {
+            mapped.put(buffer, order[i] * recordSize, recordSize);
+          }
+        }
+      }
+      runs.add(run);
+      buffered = 0;
+    }
+
+    /**
+     * Sort the buffered records between two indexes, included, by hash and position.
+     *
+     * @param low  the first index
+     * @param high the last index
+     */
+    private void sort(int low, int high) {
+      while (high - low > 16) {
+        int pivot = order[(low + high) >>> 1];
+        int i = low;
+        int j = high;
+        while (i <= j) {
+          while (compare(order[i], pivot) < 0) {
+            i++;
+          }
+          while (compare(order[j], pivot) > 0) {
+            j--;
+          }
+          if (i <= j) {
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+            i++;
+            j--;
+          }
+        }
+        if (j - low < high - i) {
+          sort(low, j);
+          low = i;
+        } else {
+          sort(i, high);
+          high = j;
+        }
+      }
+      for (int i = low + 1; i <= high; i++) {
+        int record = order[i];
+        int j = i - 1;
+        while (j >= low && compare(order[j], record) > 0) {
+          order[j + 1] = order[j];
+          j--;
+        }
+        order[j + 1] = record;
+      }
+    }
+
+    /**
+     * Compare two buffered records by hash and, for equal hashes, by packed position.
+     *
+     * @param first  the index of the first record
+     * @param second the index of the second record
+     * @return a negative number, zero or a positive number as the first record is before, the
+     *         same as or after the second
+     */
+    private int compare(int first, int second) {
+      int result = Long.compare(keys[first], keys[second]);
+      if (result != 0) {
+        return result;
+      }
+      return comparePositions(buffer, first * recordSize + RECORD_HEADER, buffer,
+              second * recordSize + RECORD_HEADER, packedSize);
+    }
+
+    /**
+     * Merge the runs in passes of at most {@value #MERGE_FAN_IN} runs into fewer, larger runs until
+     * no more than {@value #MERGE_FAN_IN} are left, so that the last merge never opens more files
+     * than that.
+     *
+     * @throws IOException if a run cannot be written or read
+     */
+    private void reduceRuns() throws IOException {
+      while (runs.size() > MERGE_FAN_IN) {
+        List<Path> merged = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += MERGE_FAN_IN) {
+          List<Path> group = runs.subList(from, Math.min(from + MERGE_FAN_IN, runs.size()));
+          if (group.size() == 1) {
+            merged.add(group.get(0));
+            continue;
+          }
+          Path run = newFile("run");
+          try (DataOutputStream out = output(run)) {
+            merge(group, out, null, null);
+          }
+          for (Path done : group) {
+            Files.deleteIfExists(done);
+          }
+          merged.add(run);
+        }
+        runs.clear();
+        runs.addAll(merged);
+      }
+    }
+
+    /**
+     * Merge the runs into the next layer, keeping the first record of every position that is not
+     * in the visited file, and write the visited positions with the new ones to a new visited
+     * file.
+     *
+     * @param visited     the sorted file of visited positions
+     * @param next        the file of the next layer
+     * @param nextVisited the new sorted file of visited positions
+     * @return the number of records of the next layer
+     * @throws IOException if a file cannot be written or read
+     */
+    private long merge(Path visited, Path next, Path nextVisited) throws IOException {
+      try (DataOutputStream out = output(next); DataOutputStream seen = output(nextVisited);
+           RecordReader old = new RecordReader(visited, 8 + packedSize)) {
+        old.next();
+        long added = merge(runs, out, old, seen);
+        while (old.hasRecord()) {
+          seen.write(old.record);
+          old.next();
+        }
+        return added;
+      }
+    }
+
+    /**
+     * Merge the given runs into one sorted stream of records without duplicates. If a visited
+     * file is given, positions found in it are dropped too, and the visited positions before and
+     * including every kept record are written to the new visited file; the visited reader is left
+     * on its first record after the last kept one.
+     *
+     * @param inputs the runs to merge
+     * @param out    where the kept records are written
+     * @param old    the reader of the visited file, already on its first record, or null
+     * @param seen   the new visited file, or null if there is no visited file
+     * @return the number of records written
+     * @throws IOException if a file cannot be written or read
+     */
+    private long merge(List<Path> inputs, DataOutputStream out, RecordReader old,
+                       DataOutputStream seen) throws IOException {
+      PriorityQueue<RecordReader> heads = new PriorityQueue<>(
+              (first, second) -> compareRecords(first.record, RECORD_HEADER, second.record,
+                      RECORD_HEADER, packedSize));
+      long added = 0;
+      try {
+        for (Path run : inputs) {
+          RecordReader reader = new RecordReader(run, recordSize);
+          if (reader.next()) {
+            heads.add(reader);
+          } else {
+            reader.close();
+          }
+        }
+        byte[] last = null;
+        while (!heads.isEmpty()) {
+          RecordReader head = heads.poll();
+          boolean repeated = last != null && compareRecords(head.record, RECORD_HEADER, last,
+                  RECORD_HEADER, packedSize) == 0;
+          if (!repeated) {
+            boolean known = false;
+            if (old != null) {
+              while (old.hasRecord() && compareVisited(old, head) < 0) {
+                seen.write(old.record);
+                old.next();
+              }
+              known = old.hasRecord() && compareVisited(old, head) == 0;
+            }
+            if (!known) {
+              out.write(head.record);
+              if (seen != null) {
+                seen.writeLong(head.hash());
+                seen.write(head.record, RECORD_HEADER, packedSize);
+              }
+              added = added + 1;
+            }
+            last = head.record.clone();
+          }
+          if (head.next()) {
+            heads.add(head);
+          } else {
+            head.close();
+          }
+        }
+      } finally {
+        for (RecordReader reader : heads) {
+          reader.close();
+        }
+      }
+      return added;
+    }
+
+    /**
+     * Compare the current record of the visited file with the current record of a run.
+     *
+     * @param old  the reader of the visited file
+     * @param head the reader of the run
+     * @return a negative number, zero or a positive number as the visited position is before, the
+     *         same as or after the position of the run
+     */
+    private int compareVisited(RecordReader old, RecordReader head) {
+      return compareRecords(old.record, 8, head.record, RECORD_HEADER, packedSize);
+    }
+
+    /**
+     * Returns the moves from the root to the record at the given index of the given layer, each
+     * move played on the canonical position of its parent.
+     *
+     * @param index the index of the record in its layer
+     * @param layer the index of its layer
+     * @return the moves from the root
+     * @throws IOException if a layer cannot be read
+     */
+    private List<Move> trace(long index, int layer) throws IOException {
+      List<Move> line = new ArrayList<>();
+      ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+      for (int at = layer; at > 0; at--) {
+        try (FileChannel channel = FileChannel.open(layers.get(at), StandardOpenOption.READ)) {
+          header.clear();
+          while (header.hasRemaining()) {
+            channel.read(header, index * recordSize + header.position());
+          }
+        }
+        line.add(Move.fromCode(header.getInt(16)));
+        index = header.getLong(8);
+      }
+      Collections.reverse(line);
+      return line;
+    }
+
+    /**
+     * Returns the given moves, each played on the canonical position of its parent, as moves of
+     * the actual positions reached from the root.
+     *
+     * @param line the moves from the root on canonical positions
+     * @return the same moves on the positions played from the root
+     */
+    private List<Move> replay(List<Move> line) {
+      List<Move> moves = new ArrayList<>();
+      Position position = root;
+      for (Move move : line) {
+        Move original = position.canonicalize().toOriginal(move);
+        moves.add(original);
+        position = position.apply(original);
+      }
+      return moves;
+    }
+
+    /**
+     * Returns the path of a new search file.
+     *
+     * @param kind what the file holds
+     * @return the path of the file
+     */
+    private Path newFile(String kind) {
+      files = files + 1;
+      return directory.resolve(kind + "-" + files);
+    }
+
+    /**
+     * Returns a buffered stream writing a new file.
+     *
+     * @param path the path of the file
+     * @return the stream
+     * @throws IOException if the file cannot be created
+     */
+    private DataOutputStream output(Path path) throws IOException {
+      return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path),
+              1 << 16));
+    }
+  }
+
+  /**
+   * Compare two records, each starting with its hash, by hash and, for equal hashes, by packed
+   * position.
+   *
+   * @param first        the first record
+   * @param firstPacked  where the packed position of the first record starts
+   * @param second       the second record
+   * @param secondPacked where the packed position of the second record starts
+   * @param packedSize   the size of a packed position
+   * @return a negative number, zero or a positive number as the first record is before, the same
+   *         as or after the second
+   */
+  private static int compareRecords(byte[] first, int firstPacked, byte[] second,
+                                    int secondPacked, int packedSize) {
+    int result = Long.compare(hashOf(first), hashOf(second));
+    if (result != 0) {
+      return result;
+    }
+    return comparePositions(first, firstPacked, second, secondPacked, packedSize);
+  }
+
+  /**
+   * Compare two packed positions byte by byte.
+   *
+   * @param first        the array of the first position
+   * @param firstOffset  where the first position starts
+   * @param second       the array of the second position
+   * @param secondOffset where the second position starts
+   * @param packedSize   the size of a packed position
+   * @return a negative number, zero or a positive number as the first position is before, the
+   *         same as or after the second
+   */
+  private static int comparePositions(byte[] first, int firstOffset, byte[] second,
+                                      int secondOffset, int packedSize) {
+    return Arrays.compare(first, firstOffset, firstOffset + packedSize, second, secondOffset,
+            secondOffset + packedSize);
+  }
+
+  /**
+   * Returns the hash written in the first 8 bytes of a record.
+   *
+   * @param record the record
+   * @return its hash
+   */
+  private static long hashOf(byte[] record) {
+    long hash = 0;
+    for (int i = 0; i < 8; i++) {
+      hash = (hash << 8) | (record[i] & 0xFF);
+    }
+    return hash;
+  }
+
+  /**
+   * This class represents a sequential reader of a file of fixed-size records, mapped into memory
+   * one window at a time. The first 8 bytes of a record are its hash.
+   */
+  private static final class RecordReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final long count;
+    private final long windowRecords;
+    private final byte[] record;
+    private final ByteBuffer recordView;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long index;
+
+    /**
+     * Constructs a RecordReader before the first record of a file.
+     *
+     * @param path       the path of the file
+     * @param recordSize the size of a record
+     * @throws IOException if the file cannot be opened
+     */
+    private RecordReader(Path path, int recordSize) throws IOException {
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+      this.recordSize = recordSize;
+      this.count = channel.size() / recordSize;
+      this.windowRecords = Math.max(1, WINDOW / recordSize);
+      this.record = new byte[recordSize];
+      this.recordView = ByteBuffer.wrap(record);
+      this.index = -1;
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return false if there is no next record
+     * @throws IOException if the file cannot be read
+     */
+    private boolean next() throws IOException {
+      index = index + 1;
+      if (index >= count) {
+        return false;
+      }
+      if (window == null || index >= windowStart + windowRecords) {
+        windowStart = index;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, index * recordSize,
+                Math.min(windowRecords, count - index) * recordSize);
+      }
+      window.get((int) ((index - windowStart) * recordSize), record);
+      return true;
+    }
+
+    /**
+     * Returns true if the reader is on a record, false before the first or after the last.
+     *
+     * @return true if the reader is on a record
+     */
+    private boolean hasRecord() {
+      return index >= 0 && index < count;
+    }
+
+    /**
+     * Returns the hash of the current record.
+     *
+     * @return the hash of the current record
+     */
+    private long hash() {
+      return recordView.getLong(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
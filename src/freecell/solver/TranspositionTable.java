@@ -0,0 +1,213 @@
+package freecell.solver;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This class represents a transposition table of position hashes kept off the Java heap, in
+ * direct buffers, so it can be sized in gigabytes without the garbage collector ever scanning it.
+ * The table is split into segments of at most 256 MB, each aligned on a cache line and made of
+ * 64-byte buckets of four 16-byte entries, so a probe touches a single cache line. An entry keeps
+ * the depth at which its position was reached, a value for the search and the age of the search
+ * that stored it; when a bucket is full, entries of older searches are replaced first, then the
+ * deepest ones, which prune the smallest subtrees. A search reads the entries of other searches
+ * as misses, see {@link #age(long)}, so a table can be reused and shared by searches of different
+ * rules without one pruning the positions of another. The age wraps around after 256 searches,
+ * and the table is then cleared so that an old entry is never taken for one of the new search.
+ *
+ * <p>The table can be shared by searches running at the same time without locks: the key of an
+ * entry is stored xored with its data, so an entry torn by two concurrent writers no longer
+ * matches its hash and reads as a miss.
+ */
+public final class TranspositionTable {
+
+  /**
+   * What {@link #probe(long)} returns for a position that is not in the table.
+   */
+  public static final long MISS = -1L;
+
+  private static final int BUCKET = 64;
+  private static final int ENTRY = 16;
+  private static final int WAYS = BUCKET / ENTRY;
+  private static final int SEGMENT_SHIFT = 28;
+  private static final long OCCUPIED = 1L << 62;
+
+  private final ByteBuffer[] segments;
+  private final int bucketsPerSegmentShift;
+  private final long bucketMask;
+  private volatile int age;
+
+  /**
+   * Constructs a TranspositionTable of at most the given size, rounded down to a power of two
+   * buckets.
+   *
+   * @param bytes the size of the table in bytes, at least one bucket
+   * @throws IllegalArgumentException if the size is smaller than one bucket
+   */
+  public TranspositionTable(long bytes) throws IllegalArgumentException {
+    if (bytes < BUCKET) {
+      throw new IllegalArgumentException("The table must hold at least one bucket.");
+    }
+    long buckets = Long.highestOneBit(bytes / BUCKET);
+    long segmentBytes = Math.min(buckets * BUCKET, 1L << SEGMENT_SHIFT);
+    this.bucketsPerSegmentShift = Long.numberOfTrailingZeros(segmentBytes / BUCKET);
+    this.bucketMask = buckets - 1;
+    this.segments = new ByteBuffer[(int) (buckets * BUCKET / segmentBytes)];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = ByteBuffer.allocateDirect((int) segmentBytes + BUCKET).alignedSlice(BUCKET)
+              .order(ByteOrder.nativeOrder());
+    }
+  }
+
+  /**
+   * Start a new search: entries stored from now on are younger than all the others.
+   *
+   * @return the age of the new search, to compare with {@link #age(long)} and pass to
+   *         {@link #store(long, int, int, int)}
+   */
+  public synchronized int newSearch() {
+    int next = (age + 1) & 0xFF;
+    if (next == 0) {
+      clear();
+    }
+    age = next;
+    return next;
+  }
+
+  /**
+   * Returns the entry of the given position, or {@link #MISS}. Use {@link #depth(long)},
+   * {@link #value(long)} and {@link #age(long)} to read it.
+   *
+   * @param hash the hash of the position
+   * @return the entry, or {@link #MISS}
+   */
+  public long probe(long hash) {
+    ByteBuffer segment = segment(hash);
+    int bucket = bucketOffset(hash);
+    for (int way = 0; way < WAYS; way++) {
+      int at = bucket + way * ENTRY;
+      long data = segment.getLong(at + 8);
+      if (data != 0 && (segment.getLong(at) ^ data) == hash) {
+        return data & ~OCCUPIED;
+      }
+    }
+    return MISS;
+  }
+
+  /**
+   * Store the given depth and value for a position in the latest search, replacing its previous
+   * entry or, if its bucket is full, the entry of the oldest search, then the deepest.
+   *
+   * @param hash  the hash of the position
+   * @param depth the depth of the position, between 0 and 65535
+   * @param value the value of the position for the search
+   */
+  public void store(long hash, int depth, int value) {
+    store(hash, depth, value, age);
+  }
+
+  /**
+   * Store the given depth and value for a position in the search of the given age, replacing its
+   * previous entry or, if its bucket is full, the entry of the oldest search, then the deepest.
+   * Searches sharing the table at the same time each store with their own age.
+   *
+   * @param hash       the hash of the position
+   * @param depth      the depth of the position, between 0 and 65535
+   * @param value      the value of the position for the search
+   * @param currentAge the age of the search, as returned by {@link #newSearch()}
+   */
+  public void store(long hash, int depth, int value, int currentAge) {
+    ByteBuffer segment = segment(hash);
+    int bucket = bucketOffset(hash);
+    long data = OCCUPIED | ((long) value & 0xFFFFFFFFL) << 24 | (long) currentAge << 16
+            | (depth & 0xFFFF);
+    int victim = -1;
+    int victimScore = Integer.MAX_VALUE;
+    for (int way = 0; way < WAYS; way++) {
+      int at = bucket + way * ENTRY;
+      long old = segment.getLong(at + 8);
+      if (old == 0 || (segment.getLong(at) ^ old) == hash) {
+        victim = at;
+        break;
+      }
+      int oldAge = age(old);
+      int score = (0xFFFF - depth(old)) - 0x10000 * ((currentAge - oldAge) & 0xFF);
+      if (score < victimScore) {
+        victimScore = score;
+        victim = at;
+      }
+    }
+    segment.putLong(victim + 8, data);
+    segment.putLong(victim, hash ^ data);
+  }
+
+  /**
+   * Returns the depth kept in an entry.
+   *
+   * @param entry an entry returned by {@link #probe(long)}
+   * @return the depth
+   */
+  public static int depth(long entry) {
+    return (int) (entry & 0xFFFF);
+  }
+
+  /**
+   * Returns the age of the search that stored an entry.
+   *
+   * @param entry an entry returned by {@link #probe(long)}
+   * @return the age of the search
+   */
+  public static int age(long entry) {
+    return (int) (entry >>> 16) & 0xFF;
+  }
+
+  /**
+   * Returns the value kept in an entry.
+   *
+   * @param entry an entry returned by {@link #probe(long)}
+   * @return the value
+   */
+  public static int value(long entry) {
+    return (int) (entry >>> 24);
+  }
+
+  /**
+   * Returns the number of entries the table can hold.
+   *
+   * @return the number of entries
+   */
+  public long getCapacity() {
+    return (bucketMask + 1) * WAYS;
+  }
+
+  /**
+   * Remove every entry.
+   */
+  public synchronized void clear() {
+    for (ByteBuffer segment : segments) {
+      for (int at = 0; at < segment.capacity(); at += 8) {
+        segment.putLong(at, 0);
+      }
+    }
+  }
+
+  /**
+   * Returns the segment holding the bucket of a hash.
+   *
+   * @param hash the hash
+   * @return the segment
+   */
+  private ByteBuffer segment(long hash) {
+    return segments[(int) ((hash & bucketMask) >>> bucketsPerSegmentShift)];
+  }
+
+  /**
+   * Returns the offset of the bucket of a hash in its segment.
+   *
+   * @param hash the hash
+   * @return the offset of the bucket
+   */
+  private int bucketOffset(long hash) {
+    return (int) (hash & bucketMask & ((1L << bucketsPerSegmentShift) - 1)) * BUCKET;
+  }
+}
@@ -0,0 +1,35 @@
+package freecell.solver;
+
+/**
+ * This is the interface of the set of positions a search has already reached, by canonical hash.
+ */
+public interface VisitedSet {
+
+  /**
+   * Add a position to the set.
+   *
+   * @param hash the canonical hash of the position
+   * @return true if the position was not in the set, false if it was or may have been
+   */
+  boolean add(long hash);
+
+  /**
+   * Returns true if the set could not grow within its memory budget, after which it may answer
+   * that new positions were already reached.
+   *
+   * @return true if the set is full
+   */
+  boolean isFull();
+
+  /**
+   * Returns the number of positions added.
+   *
+   * @return the number of positions added
+   */
+  long size();
+
+  /**
+   * Empty the set and give back its memory to the budget.
+   */
+  void clear();
+}
@@ -0,0 +1,56 @@
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import freecell.controller.AsyncFreecellController;
+import freecell.controller.CommandResult;
+import freecell.controller.FreecellController;
+import freecell.model.Cards;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellOperations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the AsyncFreecellController against the blocking controller.
+ */
+public class AsyncFreecellControllerTest {
+
+  @Test
+  public void testSameOutputAsController() {
+    StringBuilder expected = new StringBuilder();
+    FreecellOperations<Cards> blocking = FreecellModel.getBuilder().build();
+    new FreecellController(new StringReader("C1 7 O1 C2 X 7 O1 C9 1 F1 q"), expected)
+            .playGame(DealGenerator.deal(3), blocking, false);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    AsyncFreecellController controller = new AsyncFreecellController(executor);
+    FreecellOperations<Cards> model = FreecellModel.getBuilder().build();
+    CompletableFuture<CommandResult> start = controller.start(DealGenerator.deal(3), model,
+            false);
+    CompletableFuture<CommandResult> first = controller.submit("C1 7 O1");
+    CompletableFuture<CommandResult> second = controller.submit("C2 X");
+    CompletableFuture<CommandResult> third = controller.submit("7 O1 C9 1 F1");
+    CompletableFuture<CommandResult> last = controller.submit("q");
+    CompletableFuture<CommandResult> late = controller.submit("C1 1 F1");
+
+    String output = start.join().getOutput() + first.join().getOutput()
+            + second.join().getOutput() + third.join().getOutput() + last.join().getOutput();
+    assertEquals(expected.toString(), output);
+    assertTrue(last.join().isQuit());
+    try {
+      late.join();
+      fail("The above line should have thrown an exception");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,91 @@
+import org.junit.Test;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.Move;
+import freecell.solver.BloomVisitedSet;
+import freecell.solver.MemoryBudget;
+import freecell.solver.PortfolioSolver;
+import freecell.solver.Position;
+import freecell.solver.Solution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the BloomVisitedSet.
+ */
+public class BloomVisitedSetTest {
+
+  @Test
+  public void testNeverForgetsAndKeepsItsRate() {
+    MemoryBudget budget = new MemoryBudget(1 << 20);
+    BloomVisitedSet set = new BloomVisitedSet(budget, 1 << 16, 0.01);
+    assertEquals(7, set.getProbes());
+    int positions = (int) set.getCapacity();
+    assertTrue(positions > 50000);
+    int added = 0;
+    for (long i = 1; i <= positions; i++) {
+      if (set.add(i * 0x9E3779B97F4A7C15L)) {
+        added++;
+      }
+    }
+    assertTrue(added > positions * 0.98);
+    for (long i = 1; i <= positions; i++) {
+      assertFalse(set.add(i * 0x9E3779B97F4A7C15L));
+    }
+    int falsePositives = 0;
+    for (long i = 1; i <= 2000; i++) {
+      if (!set.add(-i * 0xC2B2AE3D27D4EB4FL)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 2000 * 0.03);
+    assertTrue(set.isFull());
+    assertEquals(1 << 16, budget.getUsed());
+    set.clear();
+    assertEquals(0, budget.getUsed());
+    assertEquals(0, set.size());
+  }
+
+  @Test
+  public void testFullWithoutBudget() {
+    BloomVisitedSet set = new BloomVisitedSet(new MemoryBudget(1024), 1 << 16, 0.01);
+    assertFalse(set.add(42));
+    assertTrue(set.isFull());
+  }
+
+  @Test
+  public void testInvalidConstruction() {
+    try {
+      new BloomVisitedSet(new MemoryBudget(1024), 1024, 1);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+    try {
+      new BloomVisitedSet(new MemoryBudget(1024), 8, 0.01);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+
+  @Test
+  public void testPortfolioSolvesWithBloomFilters() throws InterruptedException {
+    PortfolioSolver solver = PortfolioSolver.standard(64L << 20, 0.01);
+    AbstractFreecellModel model = new FreecellMultiMoveModel(8, 4);
+    model.startGame(DealGenerator.deal(1), false);
+    Solution solution = solver.solve(Position.of(model.snapshot()), true, 10000);
+    assertNotNull(solution);
+    for (Move move : solution.getMoves()) {
+      model.move(move.getSource(), move.getPileNumber(), move.getCardIndex(),
+              move.getDestination(), move.getDestPileNumber());
+    }
+    assertTrue(model.isGameOver());
+  }
+}
@@ -0,0 +1,52 @@
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import freecell.controller.CommandToken;
+import freecell.controller.CommandTokenizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the CommandTokenizer and the CommandToken it fills.
+ */
+public class CommandTokenTest {
+
+  @Test
+  public void testTokensAndNumbers() {
+    CommandTokenizer tokenizer = new CommandTokenizer(
+            new StringReader("  C12\t+7\n-3 O2147483647 F2147483648 C 0q"));
+    CommandToken token = new CommandToken();
+
+    assertTrue(tokenizer.next(token));
+    assertEquals(3, token.length());
+    assertEquals('C', token.first());
+    assertEquals(12, token.pileNumber());
+    assertEquals(-1, token.number());
+
+    assertTrue(tokenizer.next(token));
+    assertEquals(7, token.number());
+
+    assertTrue(tokenizer.next(token));
+    assertEquals(-1, token.number());
+
+    assertTrue(tokenizer.next(token));
+    assertEquals(Integer.MAX_VALUE, token.pileNumber());
+
+    assertTrue(tokenizer.next(token));
+    assertEquals(-1, token.pileNumber());
+
+    assertTrue(tokenizer.next(token));
+    assertEquals(1, token.length());
+    assertFalse(token.isQuit());
+
+    assertTrue(tokenizer.next(token));
+    assertTrue(token.isQuit());
+    assertEquals(-1, token.number());
+
+    assertFalse(tokenizer.next(token));
+    assertTrue(token.isEmpty());
+  }
+}
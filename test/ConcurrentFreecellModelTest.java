@@ -0,0 +1,86 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import freecell.model.Cards;
+import freecell.model.ConcurrentFreecellModel;
+import freecell.model.FreecellModel;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the ConcurrentFreecellModel.
+ */
+public class ConcurrentFreecellModelTest {
+
+  @Test
+  public void testReadsFollowMoves() {
+    ConcurrentFreecellModel model = new ConcurrentFreecellModel(FreecellModel.getBuilder()
+            .build());
+    try {
+      model.getPile(PileType.CASCADE, 0);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalStateException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+    model.startGame(model.getDeck(), false);
+    String before = model.getGameState();
+    assertSame(before, model.getGameState());
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    assertTrue(model.getGameState().contains("O1: 10♠"));
+    List<Cards> open = model.getPile(PileType.OPEN, 0);
+    assertEquals(1, open.size());
+    assertEquals("10♠", open.get(0).toString());
+    assertEquals(6, model.getPile(PileType.CASCADE, 0).size());
+    assertFalse(model.isGameOver());
+  }
+
+  @Test
+  public void testReadersNeverSeeTornState() throws InterruptedException {
+    ConcurrentFreecellModel model = new ConcurrentFreecellModel(FreecellModel.getBuilder()
+            .build());
+    model.startGame(model.getDeck(), false);
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    String first = model.getGameState();
+    model.move(PileType.OPEN, 0, 0, PileType.OPEN, 1);
+    String second = model.getGameState();
+    model.move(PileType.OPEN, 1, 0, PileType.OPEN, 0);
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicReference<String> torn = new AtomicReference<>();
+    Thread[] readers = new Thread[4];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        while (running.get()) {
+          String state = model.getGameState();
+          if (!state.equals(first) && !state.equals(second)) {
+            torn.set(state);
+          }
+          int size = model.getPile(PileType.OPEN, 0).size()
+                  + model.getPile(PileType.CASCADE, 0).size();
+          if (size != 6 && size != 7) {
+            torn.set("O1 and C1 have " + size + " cards");
+          }
+        }
+      });
+      readers[i].start();
+    }
+    for (int i = 0; i < 20000; i++) {
+      model.move(PileType.OPEN, 0, 0, PileType.OPEN, 1);
+      model.move(PileType.OPEN, 1, 0, PileType.OPEN, 0);
+    }
+    running.set(false);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertNull(torn.get());
+  }
+}
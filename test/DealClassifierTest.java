@@ -0,0 +1,153 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import freecell.model.Move;
+import freecell.solver.BestFirstStrategy;
+import freecell.solver.DealClassifier;
+import freecell.solver.PortfolioSolver;
+import freecell.solver.Position;
+import freecell.solver.SearchContext;
+import freecell.solver.SolverStrategy;
+import freecell.solver.SpillingSearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the DealClassifier and its checkpoints.
+ */
+public class DealClassifierTest {
+
+  private final List<Path> directories = new ArrayList<>();
+
+  /**
+   * Returns a new temporary directory that is deleted after the test.
+   */
+  private Path newDirectory(String prefix) throws IOException {
+    Path directory = Files.createTempDirectory(prefix);
+    directories.add(directory);
+    return directory;
+  }
+
+  @After
+  public void deleteDirectories() throws IOException {
+    for (Path directory : directories) {
+      if (!Files.exists(directory)) {
+        continue;
+      }
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a solver counting the positions it is asked to solve.
+   */
+  private static PortfolioSolver countingSolver(AtomicInteger calls) {
+    SolverStrategy greedy = new BestFirstStrategy("greedy", 0, 1, true);
+    List<SolverStrategy> strategies = new ArrayList<>();
+    strategies.add(new SolverStrategy() {
+      @Override
+      public String getName() {
+        return "counting";
+      }
+
+      @Override
+      public List<Move> solve(Position position, SearchContext context) {
+        calls.incrementAndGet();
+        return greedy.solve(position, context);
+      }
+    });
+    return new PortfolioSolver(strategies, 256L << 20);
+  }
+
+  @Test
+  public void testResumesWithoutRedoingDeals() throws Exception {
+    Path directory = newDirectory("classifier");
+    AtomicInteger calls = new AtomicInteger();
+    DealClassifier first = new DealClassifier(countingSolver(calls), null, true, 10000,
+            1 << 20, directory, 2);
+    first.classify(1, 3);
+    first.classify(6, 6);
+    assertEquals(4, calls.get());
+    assertEquals(4, first.getSolved());
+    assertEquals("1-3,6-6", first.getCompletedRanges());
+
+    calls.set(0);
+    DealClassifier resumed = new DealClassifier(countingSolver(calls), null, true, 10000,
+            1 << 20, directory, 2);
+    assertEquals("1-3,6-6", resumed.getCompletedRanges());
+    assertEquals(4, resumed.getSolved());
+    assertTrue(resumed.isCompleted(2));
+    assertFalse(resumed.isCompleted(4));
+    resumed.classify(1, 7);
+    assertEquals(3, calls.get());
+    assertEquals(7, resumed.getSolved());
+    assertEquals(0, resumed.getUndecided());
+    assertEquals("1-7", resumed.getCompletedRanges());
+  }
+
+  @Test
+  public void testUndecidedDealLeavesNoFiles() throws Exception {
+    Path directory = newDirectory("classifier");
+    List<SolverStrategy> strategies = new ArrayList<>();
+    strategies.add(new SolverStrategy() {
+      @Override
+      public String getName() {
+        return "never";
+      }
+
+      @Override
+      public List<Move> solve(Position position, SearchContext context) {
+        return null;
+      }
+    });
+    DealClassifier classifier = new DealClassifier(new PortfolioSolver(strategies, 1 << 20),
+            new SpillingSearch("exhaustive", directory, 1 << 12, true), true, 300, 64L << 20,
+            directory, 1);
+    classifier.classify(1, 1);
+    assertEquals(1, classifier.getUndecided());
+    assertTrue(classifier.isCompleted(1));
+    assertFalse(Files.exists(directory.resolve("deal-1")));
+  }
+
+  @Test
+  public void testRejectsCheckpointOfOtherRules() throws Exception {
+    Path directory = newDirectory("classifier");
+    new DealClassifier(countingSolver(new AtomicInteger()), null, true, 10000, 1 << 20,
+            directory, 1).classify(1, 1);
+    try {
+      new DealClassifier(countingSolver(new AtomicInteger()), null, false, 10000, 1 << 20,
+              directory, 1);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+
+  @Test
+  public void testInvalidRange() throws Exception {
+    DealClassifier classifier = new DealClassifier(countingSolver(new AtomicInteger()), null,
+            true, 10000, 1 << 20, newDirectory("classifier"), 1);
+    try {
+      classifier.classify(5, 4);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+}
@@ -0,0 +1,67 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import freecell.model.Cards;
+import freecell.model.DealGenerator;
+import freecell.model.Move;
+import freecell.model.PileType;
+import freecell.solver.DealFingerprint;
+import freecell.solver.SolutionIndex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests DealFingerprint and SolutionIndex.
+ */
+public class DealFingerprintTest {
+
+  /**
+   * Returns the deal with its suits relabeled: ♣ becomes ♦, ♦ becomes ♠, ♥ becomes ♣ and ♠
+   * becomes ♥, which keeps colours together.
+   */
+  private static List<Cards> relabel(List<Cards> deal) {
+    String[] to = {"♦", "♠", "♣", "♥"};
+    List<Cards> relabeled = new ArrayList<>();
+    for (Cards card : deal) {
+      int code = card.toCode();
+      relabeled.add(new Cards(code % 13 + 1, to[code / 13]));
+    }
+    return relabeled;
+  }
+
+  @Test
+  public void testIsomorphicDeals() {
+    List<Cards> deal = DealGenerator.deal(617);
+    List<Cards> relabeled = relabel(deal);
+    DealFingerprint first = DealFingerprint.of(deal);
+    DealFingerprint second = DealFingerprint.of(relabeled);
+    assertTrue(first.isIsomorphicTo(second));
+    assertEquals(first.getHash(), second.getHash());
+    for (int i = 0; i < 52; i++) {
+      assertEquals(relabeled.get(i), first.remap(deal.get(i), second));
+    }
+
+    List<Cards> swapped = new ArrayList<>(deal);
+    Collections.swap(swapped, 0, 1);
+    assertFalse(first.isIsomorphicTo(DealFingerprint.of(swapped)));
+    assertFalse(first.isIsomorphicTo(DealFingerprint.of(DealGenerator.deal(618))));
+  }
+
+  @Test
+  public void testSolutionFoundForIsomorphicDeal() {
+    SolutionIndex index = new SolutionIndex();
+    List<Cards> deal = DealGenerator.deal(617);
+    List<Move> solution = new ArrayList<>();
+    solution.add(new Move(PileType.CASCADE, 0, 6, PileType.OPEN, 0));
+    index.put(deal, 8, 4, solution);
+    assertEquals(solution, index.get(relabel(deal), 8, 4));
+    assertNull(index.get(relabel(deal), 8, 3));
+    assertNull(index.get(DealGenerator.deal(618), 8, 4));
+  }
+}
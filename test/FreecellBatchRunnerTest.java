@@ -0,0 +1,94 @@
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import freecell.controller.FreecellBatchRunner;
+import freecell.controller.FreecellController;
+import freecell.model.Cards;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellOperations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the FreecellBatchRunner with small scripts.
+ */
+public class FreecellBatchRunnerTest {
+
+  @Test
+  public void testTranscriptMatchesController() {
+    StringBuilder expected = new StringBuilder();
+    FreecellOperations<Cards> model = FreecellModel.getBuilder().build();
+    new FreecellController(new StringReader("C1 7 O1 C2 7 O1 C9 1 F1 q"), expected)
+            .playGame(DealGenerator.deal(1), model, false);
+
+    StringBuilder out = new StringBuilder();
+    FreecellBatchRunner runner = new FreecellBatchRunner(out,
+            FreecellBatchRunner.Output.TRANSCRIPT);
+    runner.run(new StringReader("# one game\ngame first\ndeal 1\nmoves C1 7 O1\n"
+            + "moves C2 7 O1 C9 1 F1 q\nend\n"));
+    assertEquals("Game first:\n" + expected + "\nPlayed 1 games, 0 won.\n", out.toString());
+  }
+
+  @Test
+  public void testSummaryAndFinalState() {
+    StringBuilder out = new StringBuilder();
+    FreecellBatchRunner runner = new FreecellBatchRunner(out,
+            FreecellBatchRunner.Output.SUMMARY);
+    runner.run(new StringReader("game a\nvariant multi\ncascades 4\nopens 1\n"
+            + "moves C4 13 F1 C4 13 O1\n"
+            + "game b\ndeck 2♣ A♣ 3♣ 4♣ 5♣ 6♣ 7♣ 8♣ 9♣ 10♣ J♣ Q♣ K♣ AD 2D 3D 4D 5D 6D 7D 8D 9D "
+            + "TD JD QD KD AH 2H 3H 4H 5H 6H 7H 8H 9H TH JH QH KH AS 2S 3S 4S 5S 6S 7S 8S 9S "
+            + "TS JS QS KS\nmoves Q\n"));
+    assertEquals("Game a: unfinished, 1 moves applied, 1 rejected\n"
+            + "Game b: quit, 0 moves applied, 0 rejected\n", out.toString().substring(0,
+            out.toString().indexOf("Played")));
+    assertEquals(2, runner.getGamesPlayed());
+  }
+
+  @Test
+  public void testLongTranscriptIsFlushedDuringTheGame() {
+    int[] largest = new int[1];
+    StringBuilder out = new StringBuilder();
+    Appendable sink = new Appendable() {
+      @Override
+      public Appendable append(CharSequence csq) {
+        largest[0] = Math.max(largest[0], csq.length());
+        out.append(csq);
+        return this;
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) {
+        return append(csq.subSequence(start, end));
+      }
+
+      @Override
+      public Appendable append(char c) {
+        return append(String.valueOf(c));
+      }
+    };
+    StringBuilder moves = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      moves.append("C1 1 F1 ");
+    }
+    new FreecellBatchRunner(sink, FreecellBatchRunner.Output.TRANSCRIPT)
+            .run(new StringReader("game long\ndeal 1\nmoves " + moves + "\n"));
+    assertTrue(out.length() > 4 * 64 * 1024);
+    assertTrue(largest[0] < 64 * 1024 + 4096);
+  }
+
+  @Test
+  public void testMalformedScript() {
+    try {
+      new FreecellBatchRunner(new StringBuilder(), FreecellBatchRunner.Output.SUMMARY)
+              .run(new StringReader("game a\ndeal 0\n"));
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+}
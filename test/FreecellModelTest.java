@@ -13,10 +13,12 @@ import java.util.List;
 
 
 import freecell.model.AbstractFreecellModel;
+import freecell.model.BoardSnapshot;
 import freecell.model.Cards;
 import freecell.model.FreecellModel;
 import freecell.model.FreecellOperations;
 import freecell.model.FreecellOperationsBuilder;
+import freecell.model.Move;
 import freecell.model.PileType;
 
 /**
@@ -582,4 +584,104 @@ public class FreecellModelTest {
     assertTrue(model.isGameOver());
   }
 
+  @Test
+  public void testMoveAll() {
+    FreecellOperations<Cards> model = FreecellModel.getBuilder().build();
+    model.startGame(deckForTest, false);
+    FreecellOperations<Cards> expected = FreecellModel.getBuilder().build();
+    expected.startGame(deckForTest, false);
+    expected.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    expected.move(PileType.CASCADE, 0, 5, PileType.OPEN, 1);
+    expected.move(PileType.CASCADE, 4, 5, PileType.FOUNDATION, 0);
+
+    List<Move> moves = new ArrayList<>();
+    moves.add(new Move(PileType.CASCADE, 0, 6, PileType.OPEN, 0));
+    moves.add(new Move(PileType.CASCADE, 0, 5, PileType.OPEN, 1));
+    moves.add(new Move(PileType.CASCADE, 4, 5, PileType.FOUNDATION, 0));
+    model.moveAll(moves);
+    assertEquals(expected.getGameState(), model.getGameState());
+  }
+
+  @Test
+  public void testMoveAllRollsBack() {
+    FreecellOperations<Cards> model = FreecellModel.getBuilder().build();
+    model.startGame(deckForTest, false);
+    String before = model.getGameState();
+
+    List<Move> moves = new ArrayList<>();
+    moves.add(new Move(PileType.CASCADE, 0, 6, PileType.OPEN, 0));
+    moves.add(new Move(PileType.CASCADE, 0, 5, PileType.FOUNDATION, 0));
+    moves.add(new Move(PileType.CASCADE, 0, 4, PileType.OPEN, 0));
+    try {
+      model.moveAll(moves);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Move 3 (C1 5 O1) is not possible: This open pile already exists a card.",
+              e.getMessage());
+    }
+    assertEquals(before, model.getGameState());
+  }
+
+  @Test
+  public void testMoveCode() {
+    Move move = new Move(PileType.FOUNDATION, 3, 12, PileType.CASCADE, 7);
+    assertEquals(move, Move.fromCode(move.toCode()));
+    assertEquals("F4 13 C8", move.toString());
+  }
+
+  @Test
+  public void testHibernate() {
+    FreecellOperations<Cards> model = FreecellModel.getBuilder().build();
+    model.startGame(deckForTest, false);
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    byte[] bytes = ((AbstractFreecellModel) model).hibernate();
+    assertEquals(72, bytes.length);
+
+    FreecellOperations<Cards> rehydrated = AbstractFreecellModel.rehydrate(bytes);
+    assertTrue(rehydrated instanceof FreecellModel);
+    assertEquals(model.getGameState(), rehydrated.getGameState());
+    model.move(PileType.CASCADE, 0, 5, PileType.OPEN, 1);
+    rehydrated.move(PileType.CASCADE, 0, 5, PileType.OPEN, 1);
+    assertEquals(model.getGameState(), rehydrated.getGameState());
+  }
+
+  @Test
+  public void testRehydrateInvalid() {
+    try {
+      AbstractFreecellModel.rehydrate(new byte[]{0, 2, 4, 8, 1});
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+
+  @Test
+  public void testSnapshotAndRestore() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(deckForTest, false);
+    String start = model.getGameState();
+    BoardSnapshot first = model.snapshot();
+    assertEquals(start, first.getGameState());
+
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    BoardSnapshot second = model.snapshot();
+    assertEquals(model.getGameState(), second.getGameState());
+    assertFalse(second.isPileUnchanged(first, PileType.CASCADE, 0));
+    assertFalse(second.isPileUnchanged(first, PileType.OPEN, 0));
+    assertTrue(second.isPileUnchanged(first, PileType.CASCADE, 1));
+    assertEquals("10♠", second.getCard(PileType.OPEN, 0, 0).toString());
+    assertEquals(7, first.getPileSize(PileType.CASCADE, 0));
+
+    model.restore(first);
+    assertEquals(start, model.getGameState());
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 1);
+    assertEquals(model.getGameState(), model.snapshot().getGameState());
+    try {
+      new FreecellModel(9, 4).restore(first);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+
 }
\ No newline at end of file
@@ -4,13 +4,17 @@ import org.junit.Test;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import freecell.model.AbstractFreecellModel;
+import freecell.model.BoardSnapshot;
 import freecell.model.Cards;
+import freecell.model.DealGenerator;
 import freecell.model.FreecellMultiMoveModel;
 import freecell.model.FreecellOperations;
 import freecell.model.FreecellOperationsBuilder;
 import freecell.model.PileType;
+import freecell.model.RuleVariant;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -575,4 +579,78 @@ public class FreecellMultiMoveModelTest {
     field3.set(model, cascadesPile);
     assertTrue(model.isGameOver());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testMaxMovableCards() {
+    FreecellMultiMoveModel model = new FreecellMultiMoveModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    assertEquals(5, model.getMaxMovableCards());
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    model.move(PileType.CASCADE, 0, 5, PileType.OPEN, 1);
+    assertEquals(3, model.getMaxMovableCards());
+
+    model = new FreecellMultiMoveModel(53, 4);
+    model.startGame(model.getDeck(), false);
+    assertEquals(10, model.getMaxMovableCards());
+    model.move(PileType.CASCADE, 0, 0, PileType.OPEN, 0);
+    assertEquals(16, model.getMaxMovableCards());
+    model.move(PileType.OPEN, 0, 0, PileType.CASCADE, 52);
+    assertEquals(10, model.getMaxMovableCards());
+  }
+
+  @Test
+  public void testMovableRunsFollowMoves() {
+    Random random = new Random(3);
+    FreecellMultiMoveModel model = new FreecellMultiMoveModel(8, 4);
+    model.startGame(DealGenerator.deal(5), false);
+    PileType[] types = {PileType.CASCADE, PileType.CASCADE, PileType.OPEN};
+    for (int i = 0; i < 2000; i++) {
+      PileType source = types[random.nextInt(types.length)];
+      PileType destination = types[random.nextInt(types.length)];
+      int pileNumber = random.nextInt(source == PileType.CASCADE ? 8 : 4);
+      BoardSnapshot snapshot = model.snapshot();
+      int cardIndex = Math.max(0, snapshot.getPileSize(source, pileNumber) - 1
+              - random.nextInt(3));
+      try {
+        model.move(source, pileNumber, cardIndex, destination,
+                random.nextInt(destination == PileType.CASCADE ? 8 : 4));
+      } catch (IllegalArgumentException e) {
+        //only legal moves change the board
+      }
+      snapshot = model.snapshot();
+      int freeOpens = 0;
+      int emptyCascades = 0;
+      for (int j = 0; j < 4; j++) {
+        freeOpens = freeOpens + (snapshot.getPileSize(PileType.OPEN, j) == 0 ? 1 : 0);
+      }
+      for (int j = 0; j < 8; j++) {
+        emptyCascades = emptyCascades
+                + (snapshot.getPileSize(PileType.CASCADE, j) == 0 ? 1 : 0);
+      }
+      int max = (freeOpens + 1) << emptyCascades;
+      assertEquals(max, model.getMaxMovableCards());
+      for (int j = 0; j < 8; j++) {
+        assertEquals(Math.min(max, RuleVariant.FREECELL.buildRun(
+                snapshot.getPile(PileType.CASCADE, j))), model.getMovableRun(j));
+      }
+    }
+  }
+
+  @Test
+  public void testMovableRunInvalid() {
+    FreecellMultiMoveModel model = new FreecellMultiMoveModel(8, 4);
+    try {
+      model.getMovableRun(0);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalStateException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+    model.startGame(model.getDeck(), false);
+    try {
+      model.getMovableRun(8);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+}
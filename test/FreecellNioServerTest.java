@@ -0,0 +1,75 @@
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import freecell.controller.FreecellController;
+import freecell.model.Cards;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.server.FreecellNioServer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the FreecellNioServer against the output of the FreecellController.
+ */
+public class FreecellNioServerTest {
+
+  /**
+   * Returns what the controller writes for the given input.
+   */
+  private String controllerOutput(String input) {
+    StringBuilder out = new StringBuilder();
+    FreecellOperations<Cards> model = FreecellMultiMoveModel.getBuilder().build();
+    new FreecellController(new StringReader(input), out).playGame(model.getDeck(), model, false);
+    return out.toString();
+  }
+
+  /**
+   * Returns what the server sends for the given input, sent in small pieces.
+   */
+  private String serverOutput(InetSocketAddress address, String input) throws Exception {
+    try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+      OutputStream out = socket.getOutputStream();
+      byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+      for (int i = 0; i < bytes.length; i += 3) {
+        out.write(bytes, i, Math.min(3, bytes.length - i));
+        out.flush();
+        Thread.sleep(1);
+      }
+      socket.shutdownOutput();
+      InputStream in = socket.getInputStream();
+      ByteArrayOutputStream received = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        received.write(buffer, 0, read);
+      }
+      return new String(received.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void testSameOutputAsController() throws Exception {
+    FreecellNioServer server = new FreecellNioServer(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            FreecellMultiMoveModel.getBuilder(), false, 0);
+    server.start();
+    InetSocketAddress address = (InetSocketAddress) server.getLocalAddress();
+
+    String[] inputs = {"q", "C1 7 O1 C2 7 O2 X1 C1 é C0 F1 6 C12 2147483648 6 C3\n Q",
+        "C 1\t\tC1 -1 0 6\nF C1 O9 O  Q"};
+    for (String input : inputs) {
+      assertEquals(controllerOutput(input), serverOutput(address, input));
+    }
+    server.shutdown(1000);
+    assertEquals(0, server.getSessionCount());
+  }
+}
@@ -0,0 +1,81 @@
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import freecell.model.Cards;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellOperations;
+import freecell.model.PileType;
+import freecell.server.FreecellServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the FreecellServer with real connections.
+ */
+public class FreecellServerTest {
+
+  /**
+   * Returns everything the server sends until it closes the connection.
+   */
+  private String readAll(Socket socket) throws Exception {
+    InputStream in = socket.getInputStream();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      bytes.write(buffer, 0, read);
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testSessionsArePlayedIndependently() throws Exception {
+    FreecellServer server = new FreecellServer(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            FreecellModel.getBuilder(), false, 0);
+    server.start();
+    InetSocketAddress address = (InetSocketAddress) server.getLocalAddress();
+    FreecellOperations<Cards> model = FreecellModel.getBuilder().build();
+    model.startGame(model.getDeck(), false);
+
+    try (Socket first = new Socket(address.getAddress(), address.getPort());
+         Socket second = new Socket(address.getAddress(), address.getPort())) {
+      OutputStream out = second.getOutputStream();
+      out.write("q\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      assertEquals(model.getGameState() + "\nGame quit prematurely.", readAll(second));
+
+      first.getOutputStream().write("C1 7 O1 Q\n".getBytes(StandardCharsets.UTF_8));
+      model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      String output = readAll(first);
+      assertTrue(output.endsWith(model.getGameState() + "\nGame quit prematurely."));
+    }
+    server.shutdown(1000);
+  }
+
+  @Test
+  public void testIdleSessionIsClosed() throws Exception {
+    FreecellServer server = new FreecellServer(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            FreecellModel.getBuilder(), false, 100);
+    server.start();
+    InetSocketAddress address = (InetSocketAddress) server.getLocalAddress();
+    try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+      readAll(socket);
+    }
+    long deadline = System.currentTimeMillis() + 5000;
+    while (server.getSessionCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, server.getSessionCount());
+    server.shutdown(1000);
+  }
+}
@@ -0,0 +1,156 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.Cards;
+import freecell.model.FreecellModel;
+import freecell.model.PileType;
+import freecell.server.GameRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the GameRegistry.
+ */
+public class GameRegistryTest {
+
+  @Test
+  public void testGamesAreSeparate() {
+    try (GameRegistry registry = new GameRegistry(FreecellModel.getBuilder(), 0, 16)) {
+      long first = registry.create(null, false);
+      long second = registry.create(null, false);
+      registry.withGame(first, model -> {
+        model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+        return null;
+      });
+      String firstState = registry.withGame(first, model -> model.getGameState());
+      String secondState = registry.withGame(second, model -> model.getGameState());
+      assertTrue(firstState.contains("O1: 10♠"));
+      assertTrue(secondState.contains("O1:\n"));
+      assertEquals(2, registry.size());
+      assertTrue(registry.remove(first));
+      assertFalse(registry.contains(first));
+    }
+  }
+
+  @Test
+  public void testSerializedPerGame() throws Exception {
+    try (GameRegistry registry = new GameRegistry(FreecellModel.getBuilder(), 0, 16)) {
+      long id = registry.create(null, false);
+      int[] counter = new int[1];
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 10000; j++) {
+            registry.withGame(id, model -> counter[0]++);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+      assertEquals(80000, counter[0]);
+    }
+  }
+
+  @Test
+  public void testEviction() throws InterruptedException {
+    try (GameRegistry registry = new GameRegistry(FreecellModel.getBuilder(), 20, 16)) {
+      long id = registry.create(null, false);
+      long start = System.nanoTime();
+      while (registry.contains(id) && System.nanoTime() - start < 5_000_000_000L) {
+        Thread.sleep(10);
+      }
+      assertFalse(registry.contains(id));
+      try {
+        registry.withGame(id, model -> model.getGameState());
+        fail("The above line should have thrown an exception");
+      } catch (IllegalArgumentException e) {
+        assertEquals("There is no such game.", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testHibernation() throws InterruptedException {
+    try (GameRegistry registry = new GameRegistry(FreecellModel.getBuilder(), 0, 10, 16)) {
+      long id = registry.create(null, false);
+      registry.withGame(id, model -> {
+        model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+        return null;
+      });
+      String state = registry.withGame(id, model -> model.getGameState());
+      Thread.sleep(50);
+      registry.hibernateIdle();
+      assertEquals(state, registry.withGame(id, model -> model.getGameState()));
+      registry.withGame(id, model -> {
+        model.move(PileType.CASCADE, 0, 5, PileType.OPEN, 1);
+        return null;
+      });
+      assertTrue(registry.withGame(id, model -> model.getGameState()).contains("O2: 2♠"));
+    }
+  }
+
+  @Test
+  public void testHibernationStopsListeners() throws InterruptedException {
+    try (GameRegistry registry = new GameRegistry(FreecellModel.getBuilder(), 0, 10, 16)) {
+      long id = registry.create(null, false);
+      Thread listener = listenerThread(registry, id);
+      Thread.sleep(50);
+      registry.hibernateIdle();
+      listener.join(5000);
+      assertFalse(listener.isAlive());
+    }
+  }
+
+  @Test
+  public void testEvictionAndRemovalStopListeners() throws InterruptedException {
+    try (GameRegistry registry = new GameRegistry(FreecellModel.getBuilder(), 200, 16)) {
+      long id = registry.create(null, false);
+      Thread listener = listenerThread(registry, id);
+      Thread.sleep(300);
+      registry.evictExpired();
+      listener.join(5000);
+      assertFalse(listener.isAlive());
+    }
+    try (GameRegistry registry = new GameRegistry(FreecellModel.getBuilder(), 0, 16)) {
+      long id = registry.create(null, false);
+      Thread listener = listenerThread(registry, id);
+      assertTrue(registry.remove(id));
+      listener.join(5000);
+      assertFalse(listener.isAlive());
+    }
+  }
+
+  /**
+   * Register a move listener on a game, make a move and return the thread the listener runs on.
+   */
+  private static Thread listenerThread(GameRegistry registry, long id)
+          throws InterruptedException {
+    AtomicReference<Thread> thread = new AtomicReference<>();
+    CountDownLatch called = new CountDownLatch(1);
+    registry.withGame(id, model -> {
+      ((AbstractFreecellModel) model).addMoveListener(event -> {
+        thread.set(Thread.currentThread());
+        called.countDown();
+      });
+      model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      return null;
+    });
+    assertTrue(called.await(5, TimeUnit.SECONDS));
+    return thread.get();
+  }
+}
@@ -0,0 +1,99 @@
+import org.junit.Test;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.ConcurrentFreecellModel;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.Move;
+import freecell.model.PileType;
+import freecell.solver.Hint;
+import freecell.solver.HintEngine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the HintEngine.
+ */
+public class HintEngineTest {
+
+  /**
+   * Play every move of the line on the model, which must accept them.
+   */
+  private static void play(AbstractFreecellModel model, Hint hint) {
+    for (Move move : hint.getLine()) {
+      model.move(move.getSource(), move.getPileNumber(), move.getCardIndex(),
+              move.getDestination(), move.getDestPileNumber());
+    }
+  }
+
+  @Test
+  public void testHintLeavesModelAlone() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(1), false);
+    String state = model.getGameState();
+    Hint hint = new HintEngine().hint(model, 20);
+    assertNotNull(hint.getMove());
+    assertEquals(state, model.getGameState());
+    play(model, hint);
+  }
+
+  @Test
+  public void testHintsSolveGames() {
+    AbstractFreecellModel single = new FreecellModel(8, 4);
+    single.startGame(DealGenerator.deal(1), false);
+    Hint hint = new HintEngine().hint(single, 5000);
+    assertTrue(hint.isSolution());
+    play(single, hint);
+    assertTrue(single.isGameOver());
+
+    AbstractFreecellModel multi = new FreecellMultiMoveModel(8, 4);
+    multi.startGame(DealGenerator.deal(2), false);
+    hint = new HintEngine().hint(multi, 5000);
+    assertTrue(hint.isSolution());
+    play(multi, hint);
+    assertTrue(multi.isGameOver());
+  }
+
+  @Test
+  public void testHintFollowsWrappedRules() {
+    AbstractFreecellModel multi = new FreecellMultiMoveModel(8, 4);
+    multi.startGame(DealGenerator.deal(2), false);
+    ConcurrentFreecellModel shared = new ConcurrentFreecellModel(multi);
+    Hint hint = new HintEngine().hint(shared, 5000);
+    assertTrue(hint.isSolution());
+    boolean multiCard = false;
+    for (Move move : hint.getLine()) {
+      if (move.getSource() == PileType.CASCADE) {
+        int size = shared.getPile(PileType.CASCADE, move.getPileNumber()).size();
+        multiCard = multiCard || move.getCardIndex() < size - 1;
+      }
+      shared.move(move.getSource(), move.getPileNumber(), move.getCardIndex(),
+              move.getDestination(), move.getDestPileNumber());
+    }
+    assertTrue(multiCard);
+    assertTrue(shared.isGameOver());
+  }
+
+  @Test
+  public void testBudgetIsKept() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(3), false);
+    new HintEngine().hint(model, 20);
+    for (long budget : new long[]{0, 20}) {
+      long start = System.nanoTime();
+      Hint hint = new HintEngine().hint(model, budget);
+      assertTrue(System.nanoTime() - start < (budget + 40) * 1_000_000L);
+      assertNotNull(hint.getMove());
+    }
+    try {
+      new HintEngine().hint(model, -1);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+}
@@ -0,0 +1,92 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import freecell.model.Cards;
+import freecell.model.FreecellModel;
+import freecell.model.MoveEvent;
+import freecell.model.MoveListener;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the move events published by the models to their listeners.
+ */
+public class MoveListenerTest {
+
+  /**
+   * A listener that copies the events it receives and counts them down.
+   */
+  private static class RecordingListener implements MoveListener {
+    private final List<String> events = new ArrayList<>();
+    private final CountDownLatch latch;
+
+    private RecordingListener(int expected) {
+      this.latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onMoveEvent(MoveEvent event) {
+      synchronized (events) {
+        events.add(event.getSequence() + " " + event.getType() + " " + event.getCardsMoved()
+                + " " + event.getSourceTop() + " " + event.getDestinationTop());
+      }
+      latch.countDown();
+    }
+  }
+
+  @Test
+  public void testAppliedAndRejectedEvents() throws InterruptedException {
+    FreecellModel model = new FreecellModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    RecordingListener listener = new RecordingListener(2);
+    model.addMoveListener(listener);
+
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    try {
+      model.move(PileType.CASCADE, 1, 6, PileType.OPEN, 0);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+
+    assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+    model.removeMoveListener(listener);
+    int top = new Cards(2, "♠").toCode();
+    int moved = new Cards(10, "♠").toCode();
+    assertEquals("0 APPLIED 1 " + top + " " + moved, listener.events.get(0));
+    assertEquals("1 REJECTED 0 -1 -1", listener.events.get(1));
+  }
+
+  @Test
+  public void testParkedListenerWakesUp() throws InterruptedException {
+    FreecellModel model = new FreecellModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    RecordingListener listener = new RecordingListener(2);
+    model.addMoveListener(listener);
+
+    Thread.sleep(200);
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    Thread.sleep(200);
+    model.move(PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+
+    assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+    model.removeMoveListener(listener);
+    assertEquals(2, listener.events.size());
+  }
+
+  @Test
+  public void testCardCodes() {
+    for (int i = 0; i < 52; i++) {
+      assertEquals(i, Cards.fromCode(i).toCode());
+    }
+    assertEquals(0, new Cards(1, "♣").toCode());
+    assertEquals(51, new Cards(13, "♠").toCode());
+  }
+}
@@ -0,0 +1,89 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.Move;
+import freecell.solver.MemoryBudget;
+import freecell.solver.NodeArena;
+import freecell.solver.Position;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the NodeArena.
+ */
+public class NodeArenaTest {
+
+  @Test
+  public void testLinesAndPositions() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(5), false);
+    Position position = Position.of(model.snapshot());
+    MemoryBudget budget = new MemoryBudget(1 << 20);
+    NodeArena arena = new NodeArena(4, 8, budget);
+
+    int node = arena.add(NodeArena.NONE, null, 0, position);
+    for (int i = 0; i < 3000; i++) {
+      Move move = position.moves(false).get(0);
+      position = position.apply(move);
+      node = arena.add(node, move, i, position);
+    }
+    assertEquals(3001, arena.size());
+    assertEquals(3000, arena.getDepth(node));
+    assertEquals(position, arena.getPosition(node));
+    assertEquals(position.canonicalHash(), arena.getHash(node));
+
+    List<Move> line = arena.line(node);
+    assertEquals(3000, line.size());
+    Position replayed = arena.getPosition(0);
+    for (Move move : line) {
+      replayed = replayed.apply(move);
+    }
+    assertEquals(position, replayed);
+
+    arena.clear();
+    assertEquals(0, budget.getUsed());
+  }
+
+  @Test
+  public void testPositionsAcrossPages() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(5), false);
+    Position root = Position.of(model.snapshot());
+    List<Move> moves = root.moves(false);
+    MemoryBudget budget = new MemoryBudget(1 << 24);
+    NodeArena arena = new NodeArena(4, 8, budget);
+    assertEquals(0, arena.add(NodeArena.NONE, null, 0, root));
+    for (int i = 1; i < 40_000; i++) {
+      Move move = moves.get(i % moves.size());
+      assertEquals(i, arena.add(0, move, i, root.apply(move)));
+    }
+    for (int node : new int[]{1, 16_383, 16_384, 16_385, 32_768, 39_999}) {
+      Position position = root.apply(moves.get(node % moves.size()));
+      assertEquals(position, arena.getPosition(node));
+      assertEquals(position.canonicalHash(), arena.getHash(node));
+      assertEquals(node, arena.getCost(node));
+    }
+    assertEquals(root, arena.getPosition(0));
+    assertEquals(1, arena.line(39_999).size());
+
+    arena.clear();
+    assertEquals(0, budget.getUsed());
+  }
+
+  @Test
+  public void testBudgetLimitsArena() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(5), false);
+    Position position = Position.of(model.snapshot());
+    NodeArena arena = new NodeArena(4, 8, new MemoryBudget(100_000));
+    int added = 0;
+    while (arena.add(NodeArena.NONE, null, 0, position) >= 0) {
+      added = added + 1;
+    }
+    assertEquals(1024, added);
+  }
+}
@@ -0,0 +1,103 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.Move;
+import freecell.solver.BestFirstStrategy;
+import freecell.solver.MemoryBudget;
+import freecell.solver.PortfolioSolver;
+import freecell.solver.Position;
+import freecell.solver.SearchContext;
+import freecell.solver.Solution;
+import freecell.solver.SolverStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the PortfolioSolver and its strategies.
+ */
+public class PortfolioSolverTest {
+
+  /**
+   * Play every move of the solution on the model, which must accept them and be won.
+   */
+  private static void play(AbstractFreecellModel model, Solution solution) {
+    for (Move move : solution.getMoves()) {
+      model.move(move.getSource(), move.getPileNumber(), move.getCardIndex(),
+              move.getDestination(), move.getDestPileNumber());
+    }
+    assertTrue(model.isGameOver());
+  }
+
+  @Test
+  public void testStandardPortfolioSolves() throws InterruptedException {
+    PortfolioSolver solver = PortfolioSolver.standard(256L << 20);
+    for (int deal = 1; deal <= 4; deal++) {
+      AbstractFreecellModel single = new FreecellModel(8, 4);
+      single.startGame(DealGenerator.deal(deal), false);
+      Solution solution = solver.solve(Position.of(single.snapshot()), false, 10000);
+      assertNotNull(solution);
+      play(single, solution);
+
+      AbstractFreecellModel multi = new FreecellMultiMoveModel(8, 4);
+      multi.startGame(DealGenerator.deal(deal), false);
+      solution = solver.solve(Position.of(multi.snapshot()), true, 10000);
+      assertNotNull(solution);
+      play(multi, solution);
+    }
+  }
+
+  @Test
+  public void testLosersAreCancelled() throws InterruptedException {
+    CountDownLatch cancelled = new CountDownLatch(1);
+    SolverStrategy stubborn = new SolverStrategy() {
+      @Override
+      public String getName() {
+        return "stubborn";
+      }
+
+      @Override
+      public List<Move> solve(Position position, SearchContext context) {
+        while (!context.isCancelled()) {
+          Thread.onSpinWait();
+        }
+        cancelled.countDown();
+        return null;
+      }
+    };
+    List<SolverStrategy> strategies = new ArrayList<>();
+    strategies.add(stubborn);
+    strategies.add(new BestFirstStrategy("greedy", 0, 1, false));
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(1), false);
+    Solution solution = new PortfolioSolver(strategies, 64L << 20)
+            .solve(Position.of(model.snapshot()), false, 60000);
+    assertEquals("greedy", solution.getStrategy());
+    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testBudgetStopsSearch() throws InterruptedException {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(1), false);
+    List<SolverStrategy> strategies = new ArrayList<>();
+    strategies.add(new BestFirstStrategy("breadth", 1, 0, false));
+    assertNull(new PortfolioSolver(strategies, 1024).solve(Position.of(model.snapshot()), false,
+            60000));
+    MemoryBudget budget = new MemoryBudget(100);
+    assertTrue(budget.tryReserve(60));
+    assertTrue(!budget.tryReserve(60));
+    budget.release(60);
+    assertEquals(0, budget.getUsed());
+  }
+}
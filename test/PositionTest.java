@@ -0,0 +1,71 @@
+import org.junit.Test;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.FreecellModel;
+import freecell.model.Move;
+import freecell.model.PileType;
+import freecell.solver.CanonicalPosition;
+import freecell.solver.Position;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests Position and its canonical form.
+ */
+public class PositionTest {
+
+  @Test
+  public void testPermutedPositionsAreEquivalent() {
+    AbstractFreecellModel first = new FreecellModel(8, 4);
+    first.startGame(first.getDeck(), false);
+    first.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    first.move(PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+    AbstractFreecellModel second = new FreecellModel(8, 4);
+    second.startGame(second.getDeck(), false);
+    second.move(PileType.CASCADE, 1, 6, PileType.OPEN, 3);
+    second.move(PileType.CASCADE, 0, 6, PileType.OPEN, 2);
+
+    Position a = Position.of(first.snapshot());
+    Position b = Position.of(second.snapshot());
+    assertNotEquals(a, b);
+    assertEquals(a.canonicalHash(), b.canonicalHash());
+    assertEquals(a.canonicalize().getPosition(), b.canonicalize().getPosition());
+
+    first.move(PileType.CASCADE, 2, 6, PileType.OPEN, 2);
+    assertNotEquals(a.canonicalHash(), Position.of(first.snapshot()).canonicalHash());
+  }
+
+  @Test
+  public void testMovesMapBack() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 3);
+    CanonicalPosition canonical = Position.of(model.snapshot()).canonicalize();
+    Position position = canonical.getPosition();
+    assertEquals(1, position.getPileSize(PileType.OPEN, 0));
+
+    Move move = new Move(PileType.OPEN, 0, 0, PileType.OPEN, 3);
+    Move original = canonical.toOriginal(move);
+    assertEquals(new Move(PileType.OPEN, 3, 0, PileType.OPEN, 2), original);
+    assertEquals(move, canonical.fromOriginal(original));
+  }
+
+  @Test
+  public void testSupermovesWithManyEmptyCascades() {
+    StringBuilder state = new StringBuilder("F1: A♣, 2♣, 3♣, 4♣, 5♣, 6♣, 7♣, 8♣, 9♣, 10♣, J♣, "
+            + "Q♣, K♣\nF2: A♦, 2♦, 3♦, 4♦, 5♦, 6♦, 7♦, 8♦, 9♦, 10♦, J♦, Q♦, K♦\n"
+            + "F3: A♥, 2♥, 3♥, 4♥, 5♥, 6♥, 7♥, 8♥\nF4: A♠, 2♠, 3♠, 4♠, 5♠, 6♠, 7♠\nO1:\n"
+            + "C1: K♠, Q♥, J♠\nC2: K♥, Q♠, J♥\nC3: 10♥, 9♠\nC4: 10♠, 9♥, 8♠");
+    for (int i = 5; i <= 34; i++) {
+      state.append("\nC").append(i).append(":");
+    }
+    Position position = Position.parse(state.toString());
+    assertTrue(position.moves(true).contains(new Move(PileType.CASCADE, 3, 0,
+            PileType.CASCADE, 1)));
+    assertFalse(position.moves(false).contains(new Move(PileType.CASCADE, 3, 0,
+            PileType.CASCADE, 1)));
+  }
+}
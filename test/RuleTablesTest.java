@@ -0,0 +1,96 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.BoardSnapshot;
+import freecell.model.Cards;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.PileType;
+import freecell.model.RuleTables;
+import freecell.model.RuleVariant;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the RuleTables, the freecell tables of RuleVariant and the builds cached by the
+ * models.
+ */
+public class RuleTablesTest {
+
+  private static boolean red(Cards card) {
+    return card.getSuit().equals("♦") || card.getSuit().equals("♥");
+  }
+
+  @Test
+  public void testTablesFollowTheRules() {
+    for (int i = 0; i < 52; i++) {
+      Cards card = Cards.fromCode(i);
+      for (int j = 0; j < 52; j++) {
+        Cards under = Cards.fromCode(j);
+        assertEquals(card + " on " + under,
+                red(card) != red(under) && under.getValue() == card.getValue() + 1,
+                RuleVariant.FREECELL.canStack(i, j));
+      }
+      int next = RuleTables.nextOnFoundation(i);
+      if (card.getValue() == 13) {
+        assertEquals(RuleTables.NO_CARD, next);
+      } else {
+        assertEquals(card.getSuit(), Cards.fromCode(next).getSuit());
+        assertEquals(card.getValue() + 1, Cards.fromCode(next).getValue());
+      }
+    }
+  }
+
+  @Test
+  public void testBuildRun() {
+    List<Cards> pile = new ArrayList<>();
+    assertEquals(0, RuleVariant.FREECELL.buildRun(pile));
+    pile.add(new Cards(9, "♠"));
+    pile.add(new Cards(8, "♣"));
+    pile.add(new Cards(7, "♥"));
+    pile.add(new Cards(6, "♠"));
+    assertEquals(3, RuleVariant.FREECELL.buildRun(pile));
+    pile.add(new Cards(6, "♦"));
+    assertEquals(1, RuleVariant.FREECELL.buildRun(pile));
+  }
+
+  @Test
+  public void testCachedBuildsMatchFreshModel() {
+    Random random = new Random(7);
+    PileType[] types = {PileType.CASCADE, PileType.CASCADE, PileType.OPEN, PileType.FOUNDATION};
+    for (int deal = 1; deal <= 5; deal++) {
+      AbstractFreecellModel model = new FreecellMultiMoveModel(8, 4);
+      model.startGame(DealGenerator.deal(deal), false);
+      for (int i = 0; i < 3000; i++) {
+        PileType source = types[random.nextInt(types.length)];
+        PileType destination = types[random.nextInt(types.length)];
+        int pileNumber = random.nextInt(source == PileType.CASCADE ? 8 : 4);
+        int destPileNumber = random.nextInt(destination == PileType.CASCADE ? 8 : 4);
+        BoardSnapshot snapshot = model.snapshot();
+        int cardIndex = Math.max(0, snapshot.getPileSize(source, pileNumber) - 1
+                - random.nextInt(4));
+        AbstractFreecellModel fresh = new FreecellMultiMoveModel(8, 4);
+        fresh.restore(snapshot);
+        String expected = play(fresh, source, pileNumber, cardIndex, destination,
+                destPileNumber);
+        assertEquals(expected, play(model, source, pileNumber, cardIndex, destination,
+                destPileNumber));
+        assertEquals(fresh.getGameState(), model.getGameState());
+      }
+    }
+  }
+
+  private static String play(AbstractFreecellModel model, PileType source, int pileNumber,
+                             int cardIndex, PileType destination, int destPileNumber) {
+    try {
+      model.move(source, pileNumber, cardIndex, destination, destPileNumber);
+      return "applied";
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return e.getMessage();
+    }
+  }
+}
@@ -0,0 +1,226 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.Cards;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.PileType;
+import freecell.model.RuleVariant;
+import freecell.model.VariantFreecellModel;
+import freecell.solver.Position;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests RuleVariant and the models playing by its rules.
+ */
+public class RuleVariantTest {
+
+  private List<Cards> deckForTest;
+
+  @Before
+  public void setup() {
+    deckForTest = new ArrayList<>();
+    for (String suit : new String[]{"♣", "♦", "♥", "♠"}) {
+      for (int i = 1; i <= 13; i++) {
+        deckForTest.add(new Cards(i, suit));
+      }
+    }
+  }
+
+  /**
+   * Returns a started model with one card of the ordered deck per cascade pile, so the card of
+   * code i is alone in the cascade pile i, and any cascade pile after the 52nd is empty.
+   */
+  private AbstractFreecellModel oneCardPerCascade(int cascades, int opens, RuleVariant variant) {
+    AbstractFreecellModel model = new VariantFreecellModel(cascades, opens, variant);
+    model.startGame(deckForTest, false);
+    return model;
+  }
+
+  @Test
+  public void testBakersGameBuildsBySuit() {
+    AbstractFreecellModel model = oneCardPerCascade(52, 4, RuleVariant.BAKERS_GAME);
+    model.move(PileType.CASCADE, 1, 0, PileType.CASCADE, 2);
+    assertEquals("2♣", model.getGameState().split("\n")[4 + 4 + 2].split(", ")[1]);
+    try {
+      model.move(PileType.CASCADE, 13, 0, PileType.CASCADE, 2);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("This card cannot be moved.", e.getMessage());
+    }
+
+    AbstractFreecellModel freecell = new FreecellModel(52, 4);
+    freecell.startGame(deckForTest, false);
+    try {
+      freecell.move(PileType.CASCADE, 1, 0, PileType.CASCADE, 2);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("This card cannot be moved.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testAcesStartFoundations() {
+    AbstractFreecellModel model = oneCardPerCascade(52, 4, RuleVariant.BAKERS_GAME);
+    try {
+      model.move(PileType.CASCADE, 1, 0, PileType.FOUNDATION, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("This card cannot be moved.", e.getMessage());
+    }
+    model.move(PileType.CASCADE, 0, 0, PileType.FOUNDATION, 0);
+    model.move(PileType.CASCADE, 1, 0, PileType.FOUNDATION, 0);
+
+    AbstractFreecellModel freecell = new FreecellModel(52, 4);
+    freecell.startGame(deckForTest, false);
+    freecell.move(PileType.CASCADE, 1, 0, PileType.FOUNDATION, 0);
+  }
+
+  @Test
+  public void testKingsOnlyOnEmptyCascades() {
+    for (RuleVariant variant : new RuleVariant[]{RuleVariant.EIGHT_OFF, RuleVariant.SEAHAVEN}) {
+      AbstractFreecellModel model = oneCardPerCascade(53, 4, variant);
+      try {
+        model.move(PileType.CASCADE, 11, 0, PileType.CASCADE, 52);
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertEquals("This card cannot be moved.", e.getMessage());
+      }
+      model.move(PileType.CASCADE, 12, 0, PileType.CASCADE, 52);
+      model.move(PileType.CASCADE, 11, 0, PileType.CASCADE, 52);
+    }
+
+    RuleVariant none = RuleVariant.getBuilder()
+            .emptyCascadeRule(RuleVariant.EmptyCascadeRule.NONE).build();
+    AbstractFreecellModel model = oneCardPerCascade(53, 4, none);
+    try {
+      model.move(PileType.CASCADE, 12, 0, PileType.CASCADE, 52);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("This card cannot be moved.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSupermovePolicies() {
+    assertEquals(1, RuleVariant.FREECELL.maxMovableCards(4, 2));
+    assertEquals(20, RuleVariant.FREECELL_MULTI_MOVE.maxMovableCards(4, 2));
+    assertEquals(5, RuleVariant.EIGHT_OFF.maxMovableCards(4, 2));
+
+    assertEquals(9, oneCardPerCascade(53, 8, RuleVariant.EIGHT_OFF).getMaxMovableCards());
+    AbstractFreecellModel multi = new FreecellMultiMoveModel(53, 8);
+    multi.startGame(deckForTest, false);
+    assertEquals(18, multi.getMaxMovableCards());
+
+    AbstractFreecellModel model = oneCardPerCascade(53, 1, RuleVariant.EIGHT_OFF);
+    model.move(PileType.CASCADE, 12, 0, PileType.CASCADE, 52);
+    model.move(PileType.CASCADE, 11, 0, PileType.CASCADE, 52);
+    model.move(PileType.CASCADE, 10, 0, PileType.CASCADE, 52);
+    try {
+      model.move(PileType.CASCADE, 52, 0, PileType.CASCADE, 12);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Source cards is not a valid build.", e.getMessage());
+    }
+    model.move(PileType.CASCADE, 52, 2, PileType.OPEN, 0);
+    assertEquals(1, model.getMaxMovableCards());
+  }
+
+  @Test
+  public void testVariantBuilder() {
+    RuleVariant variant = RuleVariant.getBuilder().name("spider-ish")
+            .buildRule(RuleVariant.BuildRule.ANY_SUIT).cascades(10).opens(2).build();
+    assertEquals("spider-ish", variant.getName());
+    assertEquals(10, variant.getCascades());
+    assertEquals(2, variant.getOpens());
+    assertTrue(variant.canStack(14, 2));
+    assertTrue(variant.isMultiMove());
+    assertFalse(variant.isFreecell());
+    assertTrue(RuleVariant.getBuilder().build().sameRules(RuleVariant.FREECELL_MULTI_MOVE));
+
+    try {
+      RuleVariant.getBuilder().buildRule(null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("The build rule cannot be null.", e.getMessage());
+    }
+    try {
+      RuleVariant.getBuilder().cascades(3);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("The number of cascades piles can't be less than 4.", e.getMessage());
+    }
+    try {
+      FreecellModel.getBuilder().variant(null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("The variant passed is null.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testModelBuilderVariant() {
+    FreecellOperations<Cards> model = FreecellModel.getBuilder()
+            .variant(RuleVariant.SEAHAVEN).build();
+    assertTrue(model instanceof VariantFreecellModel);
+    assertEquals(RuleVariant.SEAHAVEN, ((AbstractFreecellModel) model).getVariant());
+    model.startGame(model.getDeck(), false);
+    assertTrue(model.getGameState().contains("C10:"));
+
+    assertTrue(FreecellModel.getBuilder().variant(RuleVariant.FREECELL_MULTI_MOVE).build()
+            instanceof FreecellMultiMoveModel);
+    assertTrue(VariantFreecellModel.getBuilder(RuleVariant.FREECELL).build()
+            instanceof FreecellModel);
+  }
+
+  @Test
+  public void testHibernateCustomVariant() {
+    RuleVariant variant = RuleVariant.getBuilder()
+            .buildRule(RuleVariant.BuildRule.SAME_SUIT)
+            .emptyCascadeRule(RuleVariant.EmptyCascadeRule.KINGS_ONLY)
+            .supermovePolicy(RuleVariant.SupermovePolicy.FREE_OPENS)
+            .acesStartFoundations(true).build();
+    AbstractFreecellModel model = oneCardPerCascade(53, 4, variant);
+    model.move(PileType.CASCADE, 12, 0, PileType.CASCADE, 52);
+
+    AbstractFreecellModel copy = AbstractFreecellModel.rehydrate(model.hibernate());
+    assertTrue(copy.getVariant().sameRules(variant));
+    assertEquals(model.getGameState(), copy.getGameState());
+    try {
+      copy.move(PileType.CASCADE, 1, 0, PileType.FOUNDATION, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("This card cannot be moved.", e.getMessage());
+    }
+    copy.move(PileType.CASCADE, 11, 0, PileType.CASCADE, 52);
+  }
+
+  @Test
+  public void testSnapshotOfOtherVariant() {
+    AbstractFreecellModel bakers = oneCardPerCascade(52, 4, RuleVariant.BAKERS_GAME);
+    AbstractFreecellModel freecell = new FreecellModel(52, 4);
+    freecell.startGame(deckForTest, false);
+    try {
+      freecell.restore(bakers.snapshot());
+      fail();
+    } catch (IllegalArgumentException e) {
+      //expected
+    }
+    try {
+      Position.of(bakers.snapshot());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("The solver only follows the freecell rules.", e.getMessage());
+    }
+    Position.of(freecell.snapshot());
+  }
+}
@@ -0,0 +1,102 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.FreecellModel;
+import freecell.model.Move;
+import freecell.model.PileType;
+import freecell.solver.Position;
+import freecell.solver.SolutionStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the SolutionStore.
+ */
+public class SolutionStoreTest {
+
+  private final List<Path> directories = new ArrayList<>();
+
+  /**
+   * Returns a new temporary directory that is deleted after the test.
+   */
+  private Path newDirectory(String prefix) throws IOException {
+    Path directory = Files.createTempDirectory(prefix);
+    directories.add(directory);
+    return directory;
+  }
+
+  @After
+  public void deleteDirectories() throws IOException {
+    for (Path directory : directories) {
+      if (!Files.exists(directory)) {
+        continue;
+      }
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStoreSurvivesGrowthAndReopening() throws Exception {
+    Path directory = newDirectory("solutions");
+    Path index = directory.resolve("solutions.idx");
+    Path data = directory.resolve("solutions.dat");
+    try (SolutionStore store = new SolutionStore(index, data, 4)) {
+      for (long key = 1; key <= 1000; key++) {
+        assertTrue(store.put(key * 7919, new int[]{(int) key, (int) key + 1}));
+      }
+      assertFalse(store.put(7919, new int[]{5}));
+      assertEquals(1000, store.size());
+    }
+    try (SolutionStore store = new SolutionStore(index, data, 4)) {
+      assertEquals(1000, store.size());
+      for (long key = 1; key <= 1000; key++) {
+        assertArrayEquals(new int[]{(int) key, (int) key + 1}, store.get(key * 7919));
+      }
+      assertNull(store.get(3));
+    }
+  }
+
+  @Test
+  public void testSolutionsFollowPileOrderAndRules() throws Exception {
+    Path directory = newDirectory("solutions");
+    AbstractFreecellModel first = new FreecellModel(8, 4);
+    first.startGame(first.getDeck(), false);
+    first.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    AbstractFreecellModel second = new FreecellModel(8, 4);
+    second.startGame(second.getDeck(), false);
+    second.move(PileType.CASCADE, 0, 6, PileType.OPEN, 2);
+
+    try (SolutionStore store = new SolutionStore(directory.resolve("s.idx"),
+            directory.resolve("s.dat"), 16)) {
+      List<Move> solution = new ArrayList<>();
+      solution.add(new Move(PileType.OPEN, 0, 0, PileType.OPEN, 1));
+      store.put(Position.of(first.snapshot()), false, solution);
+
+      List<Move> found = store.get(Position.of(second.snapshot()), false);
+      assertEquals(1, found.size());
+      assertEquals(PileType.OPEN, found.get(0).getSource());
+      assertEquals(2, found.get(0).getPileNumber());
+      second.move(found.get(0).getSource(), found.get(0).getPileNumber(),
+              found.get(0).getCardIndex(), found.get(0).getDestination(),
+              found.get(0).getDestPileNumber());
+      assertNull(store.get(Position.of(first.snapshot()), true));
+    }
+  }
+}
@@ -0,0 +1,100 @@
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.PileType;
+import freecell.server.SpectatorFeed;
+import freecell.server.SpectatorFrame;
+import freecell.server.SpectatorHub;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * This class tests the SpectatorHub and the frames it sends to spectators.
+ */
+public class SpectatorHubTest {
+
+  @Test
+  public void testKeyframesAndDeltas() throws InterruptedException {
+    FreecellMultiMoveModel model = new FreecellMultiMoveModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    SpectatorHub hub = SpectatorHub.attach(model, 2, 16);
+    SpectatorFeed feed = hub.subscribe();
+
+    SpectatorFrame first = feed.poll(5, TimeUnit.SECONDS);
+    assertEquals(SpectatorFrame.Kind.KEYFRAME, first.getKind());
+    assertEquals(model.getGameState(), first.getState());
+
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    SpectatorFrame delta = feed.poll(5, TimeUnit.SECONDS);
+    assertNotNull(delta);
+    assertEquals(SpectatorFrame.Kind.DELTA, delta.getKind());
+    assertEquals(SpectatorHub.DELTA_SIZE, delta.getPayloadLength());
+    assertEquals(1, delta.getPayload()[5]);
+
+    model.move(PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+    SpectatorFrame keyframe = feed.poll(5, TimeUnit.SECONDS);
+    assertNotNull(keyframe);
+    assertEquals(SpectatorFrame.Kind.KEYFRAME, keyframe.getKind());
+    assertEquals(2, keyframe.getSequence());
+    assertEquals(model.getGameState(), keyframe.getState());
+    hub.close();
+  }
+
+  @Test
+  public void testSlowSpectatorGetsKeyframe() throws InterruptedException {
+    FreecellMultiMoveModel model = new FreecellMultiMoveModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    SpectatorHub hub = SpectatorHub.attach(model, 100, 1);
+    SpectatorFeed feed = hub.subscribe();
+
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    model.move(PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+    model.move(PileType.CASCADE, 2, 6, PileType.OPEN, 2);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (feed.getDropped() < 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+    SpectatorFrame frame = feed.poll();
+    assertEquals(SpectatorFrame.Kind.KEYFRAME, frame.getKind());
+    assertEquals(model.getGameState(), frame.getState());
+    hub.close();
+  }
+
+  @Test
+  public void testHubResyncsAfterFallingBehind() throws InterruptedException {
+    FreecellMultiMoveModel model = new FreecellMultiMoveModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    SpectatorHub hub = SpectatorHub.attach(model, 1000, 4096);
+    SpectatorFeed feed = hub.subscribe();
+    assertEquals(SpectatorFrame.Kind.KEYFRAME, feed.poll(5, TimeUnit.SECONDS).getKind());
+
+    //holding the hub keeps it from reading the events until the ring has wrapped around
+    synchronized (hub) {
+      for (int i = 0; i < 1500; i++) {
+        try {
+          model.move(PileType.OPEN, 0, 0, PileType.OPEN, 1);
+        } catch (IllegalArgumentException e) {
+          //every one of these moves is rejected, but still published
+        }
+      }
+      model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    }
+
+    SpectatorFrame frame;
+    do {
+      frame = feed.poll(5, TimeUnit.SECONDS);
+      assertNotNull(frame);
+    } while (frame.getKind() != SpectatorFrame.Kind.KEYFRAME);
+    assertEquals(model.getGameState(), frame.getState());
+
+    model.move(PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+    SpectatorFrame delta = feed.poll(5, TimeUnit.SECONDS);
+    assertNotNull(delta);
+    assertEquals(SpectatorFrame.Kind.DELTA, delta.getKind());
+    hub.close();
+  }
+}
@@ -0,0 +1,216 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.FreecellModel;
+import freecell.model.Move;
+import freecell.solver.MemoryBudget;
+import freecell.solver.Position;
+import freecell.solver.SearchContext;
+import freecell.solver.SearchResult;
+import freecell.solver.SpillingSearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the SpillingSearch.
+ */
+public class SpillingSearchTest {
+
+  private static final String FOUNDATIONS = "F1: A♣, 2♣, 3♣, 4♣, 5♣, 6♣, 7♣, 8♣, 9♣, 10♣, J♣, "
+          + "Q♣, K♣\n"
+          + "F2: A♦, 2♦, 3♦, 4♦, 5♦, 6♦, 7♦, 8♦, 9♦, 10♦, J♦, Q♦, K♦\n"
+          + "F3: A♥, 2♥, 3♥, 4♥, 5♥, 6♥, 7♥, 8♥, 9♥, 10♥, J♥, Q♥, K♥\n";
+
+  private final List<Path> directories = new ArrayList<>();
+
+  /**
+   * Returns a new temporary directory that is deleted after the test.
+   */
+  private Path newDirectory(String prefix) throws IOException {
+    Path directory = Files.createTempDirectory(prefix);
+    directories.add(directory);
+    return directory;
+  }
+
+  @After
+  public void deleteDirectories() throws IOException {
+    for (Path directory : directories) {
+      if (!Files.exists(directory)) {
+        continue;
+      }
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  private static SearchContext context() {
+    return new SearchContext(false, new MemoryBudget(1 << 24), 60000);
+  }
+
+  @Test
+  public void testFindsShortestSolution() throws Exception {
+    Path directory = newDirectory("spill");
+    Position position = Position.parse(FOUNDATIONS
+            + "F4: A♠, 2♠, 3♠, 4♠, 5♠, 6♠, 7♠, 8♠\n"
+            + "O1:\nO2:\nC1: K♠, 10♠\nC2: Q♠, 9♠\nC3: J♠\nC4:");
+    SearchResult result = new SpillingSearch("spill", directory, 2, false)
+            .search(position, context());
+    assertEquals(SearchResult.Outcome.SOLVED, result.getOutcome());
+    assertEquals(5, result.getMoves().size());
+    for (Move move : result.getMoves()) {
+      position = position.apply(move);
+    }
+    assertTrue(position.isSolved());
+    try (Stream<Path> left = Files.list(directory)) {
+      assertEquals(0, left.count());
+    }
+  }
+
+  @Test
+  public void testProvesUnsolvable() throws Exception {
+    Path directory = newDirectory("spill");
+    Position position = Position.parse(FOUNDATIONS
+            + "F4:\nO1:\nO2:\nC1: 2♠, K♠\nC2: Q♠, 3♠\nC3: J♠\nC4: 4♠");
+    SearchResult result = new SpillingSearch("spill", directory, 3, false)
+            .search(position, context());
+    assertEquals(SearchResult.Outcome.UNSOLVABLE, result.getOutcome());
+    assertTrue(result.getPositions() > 1);
+    assertTrue(result.getDepth() > 0);
+  }
+
+  @Test
+  public void testResumesFromCheckpoint() throws Exception {
+    Path directory = newDirectory("spill").resolve("search");
+    Position position = Position.parse(FOUNDATIONS
+            + "F4:\nO1:\nO2:\nC1: 2♠, K♠\nC2: Q♠, 3♠\nC3: J♠\nC4: 4♠");
+    SpillingSearch search = new SpillingSearch("spill", newDirectory("spill"), 3,
+            false);
+    SearchResult fresh = search.search(position, context());
+
+    SearchContext cancelled = context();
+    cancelled.cancel();
+    assertEquals(SearchResult.Outcome.STOPPED,
+            search.search(position, cancelled, directory).getOutcome());
+    assertTrue(Files.exists(directory.resolve("checkpoint.properties")));
+    try {
+      search.search(Position.parse(FOUNDATIONS
+              + "F4:\nO1:\nO2:\nC1: 2♠, K♠\nC2: 3♠, Q♠\nC3: J♠\nC4: 4♠"), context(), directory);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+
+    SearchResult resumed = search.search(position, context(), directory);
+    assertEquals(SearchResult.Outcome.UNSOLVABLE, resumed.getOutcome());
+    assertEquals(fresh.getPositions(), resumed.getPositions());
+    assertEquals(fresh.getDepth(), resumed.getDepth());
+    assertFalse(Files.exists(directory));
+  }
+
+  @Test
+  public void testRestartsFromCutShortFiles() throws Exception {
+    Path parent = newDirectory("spill");
+    Path directory = parent.resolve("search");
+    Position position = Position.parse(FOUNDATIONS
+            + "F4:\nO1:\nO2:\nC1: 2♠, K♠\nC2: Q♠, 3♠\nC3: J♠\nC4: 4♠");
+    SpillingSearch search = new SpillingSearch("spill", parent, 3, false);
+    SearchResult fresh = search.search(position, context());
+
+    SearchContext cancelled = context();
+    cancelled.cancel();
+    search.search(position, cancelled, directory);
+    try (FileChannel layer = FileChannel.open(directory.resolve("layer-1"),
+            StandardOpenOption.WRITE)) {
+      layer.truncate(0);
+    }
+    SearchResult resumed = search.search(position, context(), directory);
+    assertEquals(SearchResult.Outcome.UNSOLVABLE, resumed.getOutcome());
+    assertEquals(fresh.getPositions(), resumed.getPositions());
+    assertEquals(fresh.getDepth(), resumed.getDepth());
+    assertFalse(Files.exists(directory));
+  }
+
+  @Test
+  public void testMergesManyRunsExactly() throws Exception {
+    Position position = Position.parse(FOUNDATIONS
+            + "F4:\nO1:\nO2:\nO3:\nC1: 2♠, K♠\nC2: Q♠, 3♠\nC3: J♠, 5♠\nC4: 4♠, 10♠\n"
+            + "C5: 9♠, 6♠\nC6: 8♠, 7♠");
+    SearchResult result = new SpillingSearch("spill", newDirectory("spill"), 1,
+            false).search(position, context());
+    SearchResult buffered = new SpillingSearch("spill", newDirectory("spill"),
+            1 << 16, false).search(position, context());
+    assertEquals(SearchResult.Outcome.UNSOLVABLE, result.getOutcome());
+    assertEquals(buffered.getPositions(), result.getPositions());
+    assertEquals(buffered.getDepth(), result.getDepth());
+
+    Set<Position> seen = new HashSet<>();
+    List<Position> layer = new ArrayList<>();
+    seen.add(position.canonicalize().getPosition());
+    layer.add(position);
+    int widest = 0;
+    while (!layer.isEmpty()) {
+      List<Position> next = new ArrayList<>();
+      for (Position parent : layer) {
+        for (Move move : parent.moves(false)) {
+          Position child = parent.apply(move);
+          if (seen.add(child.canonicalize().getPosition())) {
+            next.add(child);
+          }
+        }
+      }
+      widest = Math.max(widest, next.size());
+      layer = next;
+    }
+    assertEquals(seen.size(), result.getPositions());
+    assertTrue(widest > 64);
+  }
+
+  @Test
+  public void testStopsWithoutMemory() throws Exception {
+    Position position = Position.of(startedModel().snapshot());
+    SearchResult result = new SpillingSearch("spill", newDirectory("spill"), 1024,
+            false).search(position, new SearchContext(false, new MemoryBudget(1024), 60000));
+    assertEquals(SearchResult.Outcome.STOPPED, result.getOutcome());
+  }
+
+  @Test
+  public void testInvalidConstruction() {
+    try {
+      new SpillingSearch("spill", null, 16, false);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+    try {
+      new SpillingSearch("spill", Path.of("."), 0, false);
+      fail("The above line should have thrown an exception");
+    } catch (IllegalArgumentException e) {
+      //do not do anything except catch the exception and let the test continue
+    }
+  }
+
+  private static AbstractFreecellModel startedModel() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(model.getDeck(), false);
+    return model;
+  }
+}
@@ -0,0 +1,123 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import freecell.model.AbstractFreecellModel;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.Move;
+import freecell.solver.DepthFirstStrategy;
+import freecell.solver.MemoryBudget;
+import freecell.solver.Position;
+import freecell.solver.SearchContext;
+import freecell.solver.TranspositionTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the TranspositionTable.
+ */
+public class TranspositionTableTest {
+
+  @Test
+  public void testStoreAndProbe() {
+    TranspositionTable table = new TranspositionTable(1 << 16);
+    assertEquals(4096, table.getCapacity());
+    assertEquals(TranspositionTable.MISS, table.probe(12345));
+    table.store(12345, 17, -3);
+    long entry = table.probe(12345);
+    assertEquals(17, TranspositionTable.depth(entry));
+    assertEquals(-3, TranspositionTable.value(entry));
+    table.store(12345, 4, 8);
+    assertEquals(4, TranspositionTable.depth(table.probe(12345)));
+    table.clear();
+    assertEquals(TranspositionTable.MISS, table.probe(12345));
+  }
+
+  @Test
+  public void testReplacementPrefersOldAndDeep() {
+    TranspositionTable table = new TranspositionTable(64);
+    for (long hash = 1; hash <= 4; hash++) {
+      table.store(hash, (int) hash * 10, 0);
+    }
+    table.store(5, 1, 0);
+    assertEquals(TranspositionTable.MISS, table.probe(4));
+    assertEquals(10, TranspositionTable.depth(table.probe(1)));
+
+    table.newSearch();
+    table.store(6, 1, 0);
+    assertEquals(1, TranspositionTable.depth(table.probe(6)));
+    assertEquals(TranspositionTable.MISS, table.probe(3));
+    table.store(7, 1, 0);
+    assertTrue(table.probe(6) != TranspositionTable.MISS);
+    assertEquals(TranspositionTable.MISS, table.probe(2));
+    assertEquals(10, TranspositionTable.depth(table.probe(1)));
+  }
+
+  @Test
+  public void testDepthFirstWithTable() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(1), false);
+    TranspositionTable table = new TranspositionTable(1 << 24);
+    List<Move> solution = new DepthFirstStrategy("depth-first", 400, false, table)
+            .solve(Position.of(model.snapshot()), new SearchContext(false,
+                    new MemoryBudget(1 << 20), 30000));
+    assertNotNull(solution);
+    for (Move move : solution) {
+      model.move(move.getSource(), move.getPileNumber(), move.getCardIndex(),
+              move.getDestination(), move.getDestPileNumber());
+    }
+    assertTrue(model.isGameOver());
+  }
+
+  @Test
+  public void testDepthFirstPaysFromBudget() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(1), false);
+    Position position = Position.of(model.snapshot());
+    DepthFirstStrategy strategy = new DepthFirstStrategy("depth-first", 400, false,
+            new TranspositionTable(1 << 20));
+    MemoryBudget small = new MemoryBudget(1000);
+    assertNull(strategy.solve(position, new SearchContext(false, small, 30000)));
+    assertEquals(0, small.getUsed());
+
+    MemoryBudget budget = new MemoryBudget(1 << 22);
+    assertNotNull(strategy.solve(position, new SearchContext(false, budget, 30000)));
+    assertEquals(0, budget.getUsed());
+  }
+
+  @Test
+  public void testTableReusedBySearches() {
+    AbstractFreecellModel model = new FreecellModel(8, 4);
+    model.startGame(DealGenerator.deal(1), false);
+    Position position = Position.of(model.snapshot());
+    TranspositionTable table = new TranspositionTable(1 << 24);
+    DepthFirstStrategy single = new DepthFirstStrategy("depth-first", 400, false, table);
+    DepthFirstStrategy multi = new DepthFirstStrategy("depth-first-supermoves", 400, true, table);
+    assertNotNull(single.solve(position, new SearchContext(false, new MemoryBudget(1 << 20),
+            30000)));
+    assertNotNull(single.solve(position, new SearchContext(false, new MemoryBudget(1 << 20),
+            30000)));
+    assertNotNull(multi.solve(position, new SearchContext(true, new MemoryBudget(1 << 20),
+            30000)));
+    assertNotNull(single.solve(position, new SearchContext(false, new MemoryBudget(1 << 20),
+            30000)));
+  }
+
+  @Test
+  public void testAgeOfEntries() {
+    TranspositionTable table = new TranspositionTable(1 << 16);
+    int first = table.newSearch();
+    table.store(1, 5, 0, first);
+    int second = table.newSearch();
+    assertEquals(first, TranspositionTable.age(table.probe(1)));
+    assertTrue(first != second);
+    for (int i = 0; i < 256; i++) {
+      table.newSearch();
+    }
+    assertEquals(TranspositionTable.MISS, table.probe(1));
+  }
+}